@@ -0,0 +1,340 @@
+package Interpretor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**Clasa contine masuratorile de performanta ale interpretorului: cate o masuratoare pentru fiecare
+ * etapa (analiza sintactica, analiza semantica, construirea arborelui de parsare, compilarea si
+ * evaluarea) si interpretarea completa a unui fisier. Fiecare masuratoare este repetata pentru mai
+ * multe valori ale parametrilor scriptului (lungimea expresiilor, adancimea parantezelor, numarul
+ * de operatori ternari pe linie, numarul de variabile si numarul de cifre ale numerelor), variind
+ * cate un parametru fata de valorile implicite. Evaluarea este masurata in fiecare aritmetica: cu
+ * numerele implicite (sub 1000) calculul nu depaseste int, deci se masoara costul verificarilor,
+ * iar numerele mari (ce nu incap pe int sau pe long) masoara trecerea pe long si BigInteger.
+ * <p>
+ * Pentru fiecare masuratoare se fac intai iteratii de incalzire (pentru compilarea JIT), apoi
+ * iteratiile masurate; fiecare iteratie apeleaza masuratoarea pana la expirarea timpului ei. Se
+ * afiseaza debitul (linii pe secunda, media si abaterea standard a iteratiilor) si memoria alocata
+ * pe linie de firul de executie curent.
+ * <p>
+ * Utilizare: java Interpretor.Masuratori [-filtru=regex] [-timp=ms] [-incalzire=N] [-iteratii=N] [-csv=fisier]
+ */
+public class Masuratori {
+
+	//Valorile implicite ale parametrilor si valorile parcurse pentru fiecare parametru.
+	//Numarul de cifre 0 inseamna numere sub 1000.
+	private static final int OPERANZI = 16, ADANCIME = 2, TERNARE = 1, VARIABILE = 64, CIFRE = 0;
+	private static final int[] OPERANZI_PARCURSI = {4, 16, 64};
+	private static final int[] ADANCIMI_PARCURSE = {0, 2, 8};
+	private static final int[] TERNARE_PARCURSE = {0, 1, 4};
+	private static final int[] VARIABILE_PARCURSE = {8, 64, 1024};
+	private static final int[] CIFRE_PARCURSE = {0, 12, 30};
+
+	//Numarul de linii prelucrate de un apel al masuratorilor pe etape, respectiv al interpretarii complete.
+	private static final int LINII_ETAPA = 1024;
+	private static final int LINII_FISIER = 20000;
+
+	/**O masuratoare: prelucreaza un lot de linii si intoarce o valoare ce depinde de rezultat,
+	 * pentru ca prelucrarea sa nu poata fi eliminata de compilatorul JIT.
+	 */
+	private interface Masuratoare{
+		long executa() throws Exception;
+	}
+
+	private static volatile long consum;
+
+	private final com.sun.management.ThreadMXBean fire = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+	private final Pattern filtru;
+	private final long timpIteratie;
+	private final int incalzire;
+	private final int iteratii;
+	private final List<String> randuriCsv = new ArrayList<String>();
+
+	public Masuratori(Pattern filtru, long timpIteratie, int incalzire, int iteratii){
+		this.filtru=filtru;
+		this.timpIteratie=timpIteratie;
+		this.incalzire=incalzire;
+		this.iteratii=iteratii;
+	}
+
+	/**Metoda construieste un script valid: intai cate o atribuire pentru fiecare variabila, apoi
+	 * linii de forma variabila=expresie cu parametrii dati.
+	 * @param linii
+	 * Numarul de linii cu expresii (fara declaratii).
+	 * @param operanzi
+	 * Numarul de operanzi ai lantului de operatii de pe fiecare linie.
+	 * @param adancime
+	 * Numarul de paranteze imbricate din lant.
+	 * @param ternare
+	 * Numarul de operanzi inlocuiti cu un operator ternar ((A&gt;B)?C:D).
+	 * @param variabile
+	 * Numarul de variabile din care sunt alesi operanzii.
+	 * @param cifre
+	 * Numarul de cifre ale numerelor din expresii (0 pentru numere sub 1000).
+	 * @param samanta
+	 * Samanta generatorului de numere aleatoare (acelasi script pentru aceeasi samanta).
+	 * @return
+	 * Liniile scriptului.
+	 */
+	static List<String> script(int linii, int operanzi, int adancime, int ternare, int variabile, int cifre, long samanta){
+		Random aleator = new Random(samanta);
+		List<String> script = new ArrayList<String>(variabile+linii);
+		for(int k=0; k<variabile; k++){
+			script.add("v" + k + "=" + aleator.nextInt(100));
+		}
+		String[] operatori = {"+", "-", "*"};
+		for(int i=0; i<linii; i++){
+			String[] termeni = new String[operanzi];
+			for(int k=0; k<operanzi; k++){
+				termeni[k] = operand(aleator, variabile, cifre);
+			}
+			for(int t=0; t<ternare; t++){
+				termeni[aleator.nextInt(operanzi)] = "((" + operand(aleator, variabile, cifre) + ">" + operand(aleator, variabile, cifre) + ")?"
+						+ operand(aleator, variabile, cifre) + ":" + operand(aleator, variabile, cifre) + ")";
+			}
+			//Primele adancime operatii au operandul drept intre paranteze: a+(b*(c-...)).
+			String expresie = termeni[operanzi-1];
+			for(int k=operanzi-2; k>=0; k--){
+				String operator = operatori[aleator.nextInt(operatori.length)];
+				expresie = termeni[k] + operator + (k<adancime ? "(" + expresie + ")" : expresie);
+			}
+			script.add("v" + aleator.nextInt(variabile) + "=" + expresie);
+		}
+		return script;
+	}
+
+	private static String operand(Random aleator, int variabile, int cifre){
+		if(aleator.nextInt(4)!=0){
+			return "v" + aleator.nextInt(variabile);
+		}
+		if(cifre==0){
+			return String.valueOf(aleator.nextInt(1000));
+		}
+		StringBuilder numar = new StringBuilder(cifre);
+		numar.append((char)('1'+aleator.nextInt(9)));
+		for(int k=1; k<cifre; k++){
+			numar.append((char)('0'+aleator.nextInt(10)));
+		}
+		return numar.toString();
+	}
+
+	/**Metoda ruleaza toate masuratorile ce trec de filtru, pentru fiecare set de parametri.
+	 */
+	public void ruleaza() throws Exception{
+		System.out.printf("%-16s %9s %9s %8s %10s %6s %14s %12s %10s%n", "masuratoare", "operanzi", "adancime", "ternare", "variabile", "cifre", "linii/s", "abatere", "B/linie");
+		randuriCsv.add("masuratoare,operanzi,adancime,ternare,variabile,cifre,linii_pe_secunda,abatere,octeti_pe_linie");
+		for(int operanzi : OPERANZI_PARCURSI){
+			ruleazaSet(operanzi, ADANCIME, TERNARE, VARIABILE, CIFRE);
+		}
+		for(int adancime : ADANCIMI_PARCURSE){
+			if(adancime!=ADANCIME) ruleazaSet(OPERANZI, adancime, TERNARE, VARIABILE, CIFRE);
+		}
+		for(int ternare : TERNARE_PARCURSE){
+			if(ternare!=TERNARE) ruleazaSet(OPERANZI, ADANCIME, ternare, VARIABILE, CIFRE);
+		}
+		for(int variabile : VARIABILE_PARCURSE){
+			if(variabile!=VARIABILE) ruleazaSet(OPERANZI, ADANCIME, TERNARE, variabile, CIFRE);
+		}
+		for(int cifre : CIFRE_PARCURSE){
+			if(cifre!=CIFRE) ruleazaSet(OPERANZI, ADANCIME, TERNARE, VARIABILE, cifre);
+		}
+	}
+
+	private void ruleazaSet(int operanzi, int adancime, int ternare, int variabile, int cifre) throws Exception{
+		//Masuratorile pe etape prelucreaza doar liniile cu expresii, nu si declaratiile variabilelor.
+		List<String> script = script(LINII_ETAPA, operanzi, adancime, ternare, variabile, cifre, 1);
+		List<String> linii = script.subList(variabile, script.size());
+		String[] membriStangi = new String[linii.size()];
+		String[] membriDrepti = new String[linii.size()];
+		for(int i=0; i<linii.size(); i++){
+			int egal = linii.get(i).indexOf('=');
+			membriStangi[i] = linii.get(i).substring(0, egal);
+			membriDrepti[i] = linii.get(i).substring(egal+1);
+		}
+
+		//Formele intermediare, pregatite o singura data pentru etapele ce le primesc.
+		TabelaSimboli tabela = new TabelaSimboli();
+		int[] declarate = new int[variabile];
+		for(int k=0; k<variabile; k++){
+			declarate[k] = tabela.interneaza("v" + k);
+		}
+		AnalizatorSintactic sintactic = new AnalizatorSintactic(tabela);
+		Instructiune[] instructiuni = new Instructiune[linii.size()];
+		ExpresieCompilata[] coduri = new ExpresieCompilata[linii.size()];
+		Evaluator compilator = new Evaluator(tabela);
+		for(int i=0; i<linii.size(); i++){
+			Expresie expresie = sintactic.parseaza(membriDrepti[i]);
+			int slot = tabela.interneaza(membriStangi[i]);
+			instructiuni[i] = new Instructiune(tabela.nume(slot), slot, expresie);
+			coduri[i] = compilator.compile(expresie);
+		}
+
+		String parametri = operanzi + "," + adancime + "," + ternare + "," + variabile + "," + cifre;
+		masoara("sintactic", parametri, linii.size(), () -> {
+			long suma = 0;
+			for(String membruDrept : membriDrepti){
+				suma += sintactic.parseaza(membruDrept).tip;
+			}
+			return suma;
+		});
+		AnalizatorSemantic semantic = new AnalizatorSemantic();
+		masoara("semantic", parametri, linii.size(), () -> {
+			semantic.reseteaza();
+			for(int slot : declarate){
+				semantic.declara(slot);
+			}
+			long suma = 0;
+			for(int i=0; i<instructiuni.length; i++){
+				if(semantic.analyzeRow(instructiuni[i], i+1)) suma++;
+			}
+			return suma;
+		});
+		ArboreDeParsare arbore = new ArboreDeParsare();
+		masoara("arbore", parametri, linii.size(), () -> {
+			long suma = 0;
+			for(Instructiune instructiune : instructiuni){
+				suma += arbore.toTree(instructiune.expresie).length();
+			}
+			return suma;
+		});
+		masoara("compilare", parametri, linii.size(), () -> {
+			long suma = 0;
+			for(Instructiune instructiune : instructiuni){
+				suma += compilator.compile(instructiune.expresie).cod.length;
+			}
+			return suma;
+		});
+		Evaluator evaluator = new Evaluator(tabela);
+		masoara("evaluare", parametri, linii.size(), () -> {
+			long suma = 0;
+			for(ExpresieCompilata cod : coduri){
+				suma += evaluator.calculate(cod);
+			}
+			return suma;
+		});
+		Evaluator evaluatorExact = new Evaluator(tabela);
+		evaluatorExact.setAritmetica(Evaluator.ARITMETICA_EXACTA);
+		masoara("evaluare-exacta", parametri, linii.size(), () -> {
+			long suma = 0;
+			for(ExpresieCompilata cod : coduri){
+				suma += evaluatorExact.calculateExact(cod);
+			}
+			return suma;
+		});
+		Evaluator evaluatorEroare = new Evaluator(tabela);
+		evaluatorEroare.setAritmetica(Evaluator.ARITMETICA_EROARE);
+		masoara("evaluare-eroare", parametri, linii.size(), () -> {
+			long suma = 0;
+			for(ExpresieCompilata cod : coduri){
+				suma += evaluatorEroare.calculateVerificat(cod);
+			}
+			return suma;
+		});
+
+		if(filtru.matcher("interpretare").find()){
+			Path director = Files.createTempDirectory("masuratori");
+			Path fisier = director.resolve("script.txt");
+			Files.write(fisier, script(LINII_FISIER, operanzi, adancime, ternare, variabile, cifre, 1));
+			try{
+				masoara("interpretare", parametri, LINII_FISIER+variabile, () -> {
+					Interpretor interpretor = new Interpretor(fisier.toString());
+					interpretor.interpret();
+					return interpretor.getNumarLinii();
+				});
+			}finally{
+				try(DirectoryStream<Path> fisiere = Files.newDirectoryStream(director)){
+					for(Path f : fisiere) Files.delete(f);
+				}
+				Files.delete(director);
+			}
+		}
+	}
+
+	private void masoara(String nume, String parametri, int linii, Masuratoare masuratoare) throws Exception{
+		if(!filtru.matcher(nume).find()){
+			return;
+		}
+		long fir = Thread.currentThread().getId();
+		for(int k=0; k<incalzire; k++){
+			iteratie(masuratoare);
+		}
+		double[] debite = new double[iteratii];
+		long apeluri = 0;
+		long alocat = fire.getThreadAllocatedBytes(fir);
+		for(int k=0; k<iteratii; k++){
+			long inceput = System.nanoTime();
+			long apeluriIteratie = iteratie(masuratoare);
+			debite[k] = apeluriIteratie*linii/((System.nanoTime()-inceput)/1e9);
+			apeluri += apeluriIteratie;
+		}
+		double octetiPeLinie = (double)(fire.getThreadAllocatedBytes(fir)-alocat)/(apeluri*linii);
+
+		double medie = 0, abatere = 0;
+		for(double debit : debite) medie += debit/iteratii;
+		for(double debit : debite) abatere += (debit-medie)*(debit-medie)/Math.max(1, iteratii-1);
+		abatere = Math.sqrt(abatere);
+
+		String[] p = parametri.split(",");
+		System.out.printf("%-16s %9s %9s %8s %10s %6s %14.0f %12.0f %10.1f%n", nume, p[0], p[1], p[2], p[3], p[4], medie, abatere, octetiPeLinie);
+		randuriCsv.add(String.format(Locale.ROOT, "%s,%s,%.0f,%.0f,%.1f", nume, parametri, medie, abatere, octetiPeLinie));
+	}
+
+	/**Metoda apeleaza masuratoarea pana la expirarea timpului unei iteratii.
+	 * @return
+	 * Numarul de apeluri.
+	 */
+	private long iteratie(Masuratoare masuratoare) throws Exception{
+		long sfarsit = System.nanoTime()+timpIteratie*1000000;
+		long apeluri = 0;
+		long suma = 0;
+		do{
+			suma += masuratoare.executa();
+			apeluri++;
+		}while(System.nanoTime()<sfarsit);
+		consum += suma;
+		return apeluri;
+	}
+
+	public static void main(String[] args) throws Exception{
+		Pattern filtru = Pattern.compile("");
+		long timp = 500;
+		int incalzire = 3, iteratii = 5;
+		String csv = null;
+		for(String arg : args){
+			if(arg.startsWith("-filtru=")){
+				filtru = Pattern.compile(arg.substring("-filtru=".length()));
+			}else if(arg.startsWith("-timp=")){
+				timp = Long.parseLong(arg.substring("-timp=".length()));
+			}else if(arg.startsWith("-incalzire=")){
+				incalzire = Integer.parseInt(arg.substring("-incalzire=".length()));
+			}else if(arg.startsWith("-iteratii=")){
+				iteratii = Integer.parseInt(arg.substring("-iteratii=".length()));
+			}else if(arg.startsWith("-csv=")){
+				csv = arg.substring("-csv=".length());
+			}else{
+				System.out.println("Utilizare: java Interpretor.Masuratori [-filtru=regex] [-timp=ms] [-incalzire=N] [-iteratii=N] [-csv=fisier]");
+				System.out.println("Masuratori: sintactic, semantic, arbore, compilare, evaluare, evaluare-exacta, evaluare-eroare, interpretare");
+				return;
+			}
+		}
+
+		Masuratori masuratori = new Masuratori(filtru, timp, incalzire, iteratii);
+		masuratori.ruleaza();
+		if(csv!=null){
+			try(PrintWriter out = new PrintWriter(csv)){
+				for(String rand : masuratori.randuriCsv) out.println(rand);
+			}catch(IOException e){
+				System.out.println("Nu s-a putut scrie fisierul " + csv + ".");
+			}
+		}
+	}
+}
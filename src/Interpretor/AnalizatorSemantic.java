@@ -1,9 +1,13 @@
 package Interpretor;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.util.HashSet;
+import java.util.ArrayDeque;
+import java.util.BitSet;
 
 public class AnalizatorSemantic {
 	
@@ -11,121 +15,159 @@ public class AnalizatorSemantic {
 	
 	private PrintWriter pwsa = null;
 	
-	private HashSet<String> hsEvidentaVariabile = null;
+	//Fluxul fisierului de output, ce numara octetii scrisi.
+	private FluxNumarat flux = null;
+	
+	private BitSet bsEvidentaVariabile = null;
+	
+	//Nodurile ramase de parcurs in cautarea primei variabile nedeclarate.
+	private final ArrayDeque<Expresie> deVizitat = new ArrayDeque<Expresie>();
+	
+	/**Constructorul creeaza un analizator semantic fara fisier de output, folosit doar
+	 * pentru a stabili ce instructiuni pot fi evaluate.
+	 */
+	public AnalizatorSemantic(){
+		bsEvidentaVariabile = new BitSet();
+	}
+	
+	/**Constructorul creeaza un analizator semantic ce scrie rezultatul analizei intr-un
+	 * PrintWriter dat, de exemplu peste un StringWriter cand rezultatul fiecarei linii
+	 * trebuie retinut separat.
+	 * @param pwsa
+	 * Destinatia rezultatului analizei semantice.
+	 */
+	public AnalizatorSemantic(PrintWriter pwsa){
+		this.pwsa=pwsa;
+		bsEvidentaVariabile = new BitSet();
+	}
 	
 	/**Constructorul initializeaza analizatorul semantic prin deschiderea fisierului in care se va scrie
-	 * rezultatul analizei semantice si prin initializarea unui HashSet ce va tine evidenta 
-	 * variabilelor declarate.
+	 * rezultatul analizei semantice si prin initializarea unui BitSet (indexat dupa slotul
+	 * variabilelor) ce va tine evidenta variabilelor declarate.
 	 * @param numeFisierCitire
 	 * Numele fisierului ce contine instructiunile de interpretat si va influenta numele fisierului de output.
 	 */
 	public AnalizatorSemantic(String numeFisierCitire){		
 		//Se formeaza numele fisierului in care se va scrie analiza.
-		int pozitiePunctExtensie = numeFisierCitire.indexOf('.');
+		//Extensia se cauta doar in numele fisierului, nu si in directoarele din cale.
+		int inceputNume = numeFisierCitire.length() - new File(numeFisierCitire).getName().length();
+		int pozitiePunctExtensie = numeFisierCitire.indexOf('.', inceputNume);
 		if(pozitiePunctExtensie!=-1){
 			numeFisierScriereSA = numeFisierCitire.substring(0, pozitiePunctExtensie) + "_sa" + numeFisierCitire.substring(pozitiePunctExtensie);
 		}else{
 			numeFisierScriereSA = numeFisierCitire+"_sa";
 		}
 		
-		//Initializare HashSet pentru mentinerea evidentei variabilelor declarate. 
-		hsEvidentaVariabile = new HashSet<String>();
+		//Initializare BitSet pentru mentinerea evidentei variabilelor declarate. 
+		bsEvidentaVariabile = new BitSet();
 				
 		//Se incearca deschiderea fisierului de output pentru analiza semantica.
 		try{
-			pwsa = new PrintWriter(new File(numeFisierScriereSA));
+			flux = new FluxNumarat(new FileOutputStream(numeFisierScriereSA));
+			pwsa = new PrintWriter(new BufferedWriter(new OutputStreamWriter(flux)));
 		}catch(IOException e){
 			System.out.println("Nu s-a putut deschide fisierul de scriere sa.");
 			e.printStackTrace();
 		}
 	}
 	
+	/**Metoda intoarce fluxul fisierului de output, ce numara octetii scrisi.
+	 * @return
+	 * Fluxul sau null daca nu exista fisier de output.
+	 */
+	public FluxNumarat getFlux(){
+		return flux;
+	}
+	
 	/**Metoda pentru a termina analiza semantica in sensul inchiderii
 	 * fisierului de output si salvarii continutului acestuia.
 	 */
 	public void close(){
-		hsEvidentaVariabile=null;
+		bsEvidentaVariabile=null;
 		//Se inchide fisierul de output.
-		pwsa.close();
+		if(pwsa!=null){
+			pwsa.close();
+		}
+	}
+	
+	/**Metoda reia analiza de la inceputul fisierului: nicio variabila nu mai este declarata.
+	 */
+	public void reseteaza(){
+		bsEvidentaVariabile.clear();
+	}
+	
+	/**Metoda declara variabila unei instructiuni deja cunoscute ca fiind corecta,
+	 * fara a o analiza din nou.
+	 * @param slot
+	 * Slotul variabilei careia i se face atribuirea.
+	 */
+	public void declara(int slot){
+		bsEvidentaVariabile.set(slot);
 	}
 	
 	/**Metoda ce analizeaza din punct de vedere semantic o instructiune ce se afla pe o linie.
-	 * @param linie
-	 * Linia care se doreste a fi analizata din punct de vedere semantic.
+	 * @param instructiune
+	 * Instructiunea (analizata sintactic) care se doreste a fi analizata din punct de vedere semantic.
 	 * @param indiceLinie
 	 * Numarul liniei la care s-a ajuns cu analizarea semantica.
 	 * @return
 	 * Metoda intoarce true sau false in functie de corectitudinea semantica a instructiunii. 
 	 */
-	public boolean analyzeRow(String linie, int indiceLinie){
-		int pozitieCursor = 1;
-		int pozitieEgal = linie.indexOf('=');
-		//Se obtine variabila careia trebuie sa i se faca declararea (memorarea in hashset).
-		String deDeclarat = linie.substring(0, pozitieEgal);
-		
-		//Se obtine expresia din care trebuie analizata existenta variabilelor.
-		String verificareAtribuire = linie.substring(pozitieEgal);
+	public boolean analyzeRow(Instructiune instructiune, int indiceLinie){
+		//Se obtine variabila careia trebuie sa i se faca declararea (memorarea in bitset).
+		String deDeclarat = instructiune.variabila;
 		
 		//Daca primul caracter din membrul stang este o cifra automat membrul stang nu este o variabila.
 		if(Character.isDigit(deDeclarat.charAt(0))){
-			pwsa.println("membrul stang nu este o variabila la linia "+ indiceLinie +" coloana 1");
+			if(pwsa!=null){
+				pwsa.println("membrul stang nu este o variabila la linia "+ indiceLinie +" coloana 1");
+			}
 			return false;
 		}
 		
-		//Se incepe analiza existentei variabilelor din expresie.
-		String variabila = "";
-		while(pozitieCursor < verificareAtribuire.length()){
-			char c = verificareAtribuire.charAt(pozitieCursor);
-			
-			//Se trece peste caracterele ce nu pot alcatui o variabila.
-			if(variabila.equals("") && 
-				(Character.isDigit(c) || c=='+' || c=='-' || c=='*' || c=='(' || c==')' || c=='?' || c=='>' || c==':')){
-				pozitieCursor++;
-				continue;
-			}
-			
-			/*Daca s-a gasit o litera inseamana ca am ajuns la inceputul
-			 * numelui unei variabile.
-			 */
-			int pozitieInceputVariabila = 0;
-			if(variabila.equals("") && Character.isLetter(c)){
-				//Se alcatuieste numele variabilei si se retine coloana la care a aparut.
-				variabila+=c;
-				pozitieInceputVariabila = pozitieCursor;
-				pozitieCursor++;
-				while(pozitieCursor < verificareAtribuire.length()){
-					c = verificareAtribuire.charAt(pozitieCursor);
-					if(Character.isDigit(c) || Character.isLetter(c)){
-						variabila+=c;
-						pozitieCursor++;
-					}else{
-						pozitieCursor++;
-						break;
-					}
-				}
-			}
-			
-			if(hsEvidentaVariabile.contains(variabila)){
-				/*Daca variabila a fost declarata intr-o instructiune precedenta
-				 * atunci se continua cu analiza expresiei.
-				 */
-				variabila="";
-				continue;
-			}else{
-				/*Daca variabila nu exista in hashset inseamna ca acesta nu a fost
-				 * declarata intr-o instructiune anterioara si se semnaleaza eroarea.
-				 */
-				pwsa.println(variabila + " nedeclarata la linia " + indiceLinie + " coloana " + (pozitieInceputVariabila+pozitieEgal+1));
-				return false;
+		/*Se cauta, in ordinea in care apar in linie, variabilele din arborele expresiei;
+		 * prima variabila nedeclarata intr-o instructiune precedenta este semnalata ca eroare.
+		 */
+		Expresie nedeclarata = primaNedeclarata(instructiune.expresie);
+		if(nedeclarata!=null){
+			if(pwsa!=null){
+				//Coloana din arbore este relativa la membrul drept, ce incepe dupa variabila si semnul =.
+				int coloana = deDeclarat.length() + 1 + nedeclarata.coloana;
+				pwsa.println(nedeclarata.text + " nedeclarata la linia " + indiceLinie + " coloana " + coloana);
 			}
+			return false;
 		}
 		
 		/*Daca nu a fost semnalata nicio eroare insemana ca expresia
 		 * este corecta din punct de vedere semantic si atunci se si 
 		 * declara variabila careia i se face atribuirea.
 		 */
-		pwsa.println("Ok!");
-		hsEvidentaVariabile.add(deDeclarat);
+		if(pwsa!=null){
+			pwsa.println("Ok!");
+		}
+		bsEvidentaVariabile.set(instructiune.slot);
 		return true;
 	}
+	
+	/**Metoda parcurge arborele expresiei de la stanga la dreapta (ordinea in care
+	 * operanzii apar in linie) si intoarce prima variabila nedeclarata.
+	 * @param expresie
+	 * Arborele expresiei.
+	 * @return
+	 * Frunza ce contine prima variabila nedeclarata sau null daca toate variabilele sunt declarate.
+	 */
+	private Expresie primaNedeclarata(Expresie expresie){
+		deVizitat.clear();
+		deVizitat.push(expresie);
+		while(!deVizitat.isEmpty()){
+			Expresie nod = deVizitat.pop();
+			if(nod.tip==Expresie.VARIABILA){
+				if(!bsEvidentaVariabile.get(nod.slot)) return nod;
+			}else{
+				//Operanzii sunt scosi din stiva in ordinea in care apar in linie.
+				nod.adaugaFii(deVizitat);
+			}
+		}
+		return null;
+	}
 }
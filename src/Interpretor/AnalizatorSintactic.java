@@ -0,0 +1,302 @@
+package Interpretor;
+
+import java.util.Arrays;
+
+/**Analizator sintactic descendent ce transforma, intr-o singura trecere,
+ * o instructiune in arborele sintactic al membrului drept. Gramatica recunoscuta este:
+ * <pre>
+ * expresie = [+|-] produs { (+|-) produs }
+ * produs   = primar { * primar }
+ * primar   = variabila | numar | ( expresie ) | ( expresie &gt; expresie ) ? expresie : D
+ * </pre>
+ * unde D (parametrul D al operatorului ternar) este o expresie pana la paranteza care
+ * inchide operatorul ternar, daca acesta este incadrat de paranteze, sau un lant de
+ * termeni legati prin scadere in caz contrar. Regulile nu se apeleaza recursiv: cadrele
+ * regulilor neincheiate sunt retinute pe o stiva explicita.
+ */
+public class AnalizatorSintactic {
+
+	private TabelaSimboli tabela = null;
+
+	//Starile automatului: regulile gramaticii (apelate)...
+	private static final int INTOARCERE = 0;
+	private static final int EXPRESIE = 1;
+	private static final int PRODUS = 2;
+	private static final int PRIMAR = 3;
+	private static final int PARAMETRU_D = 4;
+	//...si punctele in care continua o regula dupa ce regula apelata s-a incheiat.
+	private static final int SEMN = 5;
+	private static final int SUME = 6;
+	private static final int PRODUSE = 7;
+	private static final int INCHIDE = 8;
+	private static final int TERNAR_B = 9;
+	private static final int TERNAR_C = 10;
+	private static final int TERNAR_D = 11;
+	private static final int PRIMUL_TERMEN_D = 12;
+	private static final int TERMEN_D = 13;
+
+	private String linie = null;
+	private int pozitie = 0;
+
+	//Stiva cadrelor regulilor neincheiate, pastrata in vectori paraleli intre apeluri.
+	private int[] stari = new int[64];
+	private char[] operatori = new char[64];
+	private boolean[] incadrate = new boolean[64];
+	private Expresie[] membriA = new Expresie[64];
+	private Expresie[] membriB = new Expresie[64];
+	private Expresie[] membriC = new Expresie[64];
+	private int varf = 0;
+
+	/**Constructorul primeste tabela de simboluri in care vor fi internate variabilele din expresii.
+	 * @param tabela
+	 * Tabela de simboluri comuna tuturor etapelor interpretarii.
+	 */
+	public AnalizatorSintactic(TabelaSimboli tabela){
+		this.tabela=tabela;
+	}
+
+	/**Metoda analizeaza sintactic membrul drept al unei instructiuni. Coloanele retinute
+	 * in frunze sunt relative la inceputul membrului drept, astfel incat arborele obtinut
+	 * poate fi refolosit pentru orice linie cu acelasi membru drept.
+	 * @param expresie
+	 * Textul aflat dupa semnul = in linie.
+	 * @return
+	 * Arborele sintactic al expresiei.
+	 */
+	public Expresie parseaza(String expresie){
+		this.linie=expresie;
+		this.pozitie=0;
+
+		Expresie rezultat = expresie();
+		if(pozitie<linie.length()){
+			eroare();
+		}
+
+		this.linie=null;
+		return rezultat;
+	}
+
+	/**Metoda intoarce caracterul curent sau 0 daca s-a ajuns la finalul liniei.
+	 * @return
+	 * Caracterul de la pozitia curenta.
+	 */
+	private char curent(){
+		return pozitie<linie.length() ? linie.charAt(pozitie) : 0;
+	}
+
+	/**Metoda consuma caracterul asteptat sau semnaleaza eroarea de sintaxa.
+	 * @param c
+	 * Caracterul asteptat la pozitia curenta.
+	 */
+	private void consuma(char c){
+		if(curent()!=c){
+			eroare();
+		}
+		pozitie++;
+	}
+
+	private void eroare(){
+		throw new IllegalArgumentException("Eroare de sintaxa in expresia \"" + linie + "\" la pozitia " + (pozitie+1));
+	}
+
+	/**Metoda analizeaza expresia ce incepe la pozitia curenta. Fiecare regula a gramaticii
+	 * este o stare a unui automat; in locul apelurilor recursive, regula apelanta isi pune
+	 * pe stiva cadrul cu starea in care continua si cu membrii deja analizati, astfel incat
+	 * adancimea imbricarii este limitata doar de memoria disponibila.
+	 */
+	private Expresie expresie(){
+		varf=0;
+		int apel = EXPRESIE;
+		Expresie valoare = null;
+		while(true){
+			switch(apel){
+			case EXPRESIE:
+				//expresie = [+|-] produs { (+|-) produs }
+				//Semnul unar se aplica intregului produs ce urmeaza (la fel ca in forma poloneza
+				//calculata anterior cu ajutorul stivei de operatori).
+				puneCadru(SUME, null, (char)0);
+				char semn = curent();
+				if(semn=='+' || semn=='-'){
+					pozitie++;
+					puneCadru(SEMN, null, semn);
+				}
+				apel = PRODUS;
+				continue;
+			case PRODUS:
+				//produs = primar { * primar }
+				puneCadru(PRODUSE, null, (char)0);
+				apel = PRIMAR;
+				continue;
+			case PRIMAR:
+				//primar = variabila | numar | ( expresie ) | operator ternar
+				char primul = curent();
+				if(Character.isLetter(primul) || Character.isDigit(primul)){
+					valoare = operand();
+					apel = INTOARCERE;
+					continue;
+				}
+				if(primul!='('){
+					eroare();
+				}
+				//Operatorul ternar este incadrat de paranteze daca paranteza conditiei este
+				//precedata de o alta paranteza deschisa: ((A>B)?C:D).
+				puneCadru(INCHIDE, null, (char)0);
+				incadrate[varf-1] = pozitie>0 && linie.charAt(pozitie-1)=='(';
+				pozitie++;
+				apel = EXPRESIE;
+				continue;
+			case PARAMETRU_D:
+				//Parametrul D al unui operator ternar neincadrat de paranteze este un lant de
+				//termeni legati prin scadere ([+|-] termen { - termen }) ce se incheie la primul
+				//alt operator sau dupa primul termen aflat intre paranteze.
+				char semnD = curent();
+				if(semnD=='+' || semnD=='-'){
+					pozitie++;
+				}else{
+					semnD = 0;
+				}
+				puneCadru(PRIMUL_TERMEN_D, null, semnD);
+				apel = PRIMAR;
+				continue;
+			default:
+				break;
+			}
+
+			//Regula curenta s-a incheiat cu rezultatul din valoare: se continua regula apelanta.
+			if(varf==0){
+				return valoare;
+			}
+			int cadru = varf-1;
+			switch(stari[cadru]){
+			case SEMN:
+				valoare = Expresie.unar(operatori[cadru]=='+' ? Expresie.PLUS_UNAR : Expresie.MINUS_UNAR, valoare);
+				varf--;
+				break;
+			case SUME:
+				if(operatori[cadru]!=0){
+					valoare = Expresie.binar(operatori[cadru]=='+' ? Expresie.ADUNARE : Expresie.SCADERE, membriA[cadru], valoare);
+				}
+				char c = curent();
+				if(c=='+' || c=='-'){
+					pozitie++;
+					membriA[cadru] = valoare;
+					operatori[cadru] = c;
+					apel = PRODUS;
+				}else{
+					elibereaza();
+				}
+				break;
+			case PRODUSE:
+				if(operatori[cadru]!=0){
+					valoare = Expresie.binar(Expresie.INMULTIRE, membriA[cadru], valoare);
+				}
+				if(curent()=='*'){
+					pozitie++;
+					membriA[cadru] = valoare;
+					operatori[cadru] = '*';
+					apel = PRIMAR;
+				}else{
+					elibereaza();
+				}
+				break;
+			case INCHIDE:
+				//Fie paranteza se inchide, fie membrul analizat este conditia unui operator ternar.
+				if(curent()!='>'){
+					consuma(')');
+					varf--;
+				}else{
+					pozitie++;
+					membriA[cadru] = valoare;
+					stari[cadru] = TERNAR_B;
+					apel = EXPRESIE;
+				}
+				break;
+			case TERNAR_B:
+				consuma(')');
+				consuma('?');
+				membriB[cadru] = valoare;
+				stari[cadru] = TERNAR_C;
+				apel = EXPRESIE;
+				break;
+			case TERNAR_C:
+				consuma(':');
+				membriC[cadru] = valoare;
+				stari[cadru] = TERNAR_D;
+				apel = incadrate[cadru] ? EXPRESIE : PARAMETRU_D;
+				break;
+			case TERNAR_D:
+				valoare = Expresie.ternar(membriA[cadru], membriB[cadru], membriC[cadru], valoare);
+				elibereaza();
+				break;
+			case PRIMUL_TERMEN_D:
+			case TERMEN_D:
+				boolean paranteza = linie.charAt(pozitie-1)==')';
+				if(stari[cadru]==TERMEN_D){
+					valoare = Expresie.binar(Expresie.SCADERE, membriA[cadru], valoare);
+				}else if(operatori[cadru]!=0){
+					valoare = Expresie.unar(operatori[cadru]=='+' ? Expresie.PLUS_UNAR : Expresie.MINUS_UNAR, valoare);
+				}
+				if(!paranteza && curent()=='-'){
+					pozitie++;
+					membriA[cadru] = valoare;
+					stari[cadru] = TERMEN_D;
+					apel = PRIMAR;
+				}else{
+					elibereaza();
+				}
+				break;
+			default:
+				throw new IllegalStateException("Stare necunoscuta a analizorului sintactic: " + stari[cadru]);
+			}
+		}
+	}
+
+	/**Metoda pune pe stiva cadrul unei reguli ce va continua dupa ce se incheie regula apelata.
+	 * @param stare
+	 * Starea in care continua regula.
+	 * @param primul
+	 * Primul membru deja analizat al regulii.
+	 * @param operator
+	 * Operatorul ce leaga membrul deja analizat de cel ce urmeaza.
+	 */
+	private void puneCadru(int stare, Expresie primul, char operator){
+		if(varf==stari.length){
+			int lungime = 2*varf;
+			stari = Arrays.copyOf(stari, lungime);
+			operatori = Arrays.copyOf(operatori, lungime);
+			incadrate = Arrays.copyOf(incadrate, lungime);
+			membriA = Arrays.copyOf(membriA, lungime);
+			membriB = Arrays.copyOf(membriB, lungime);
+			membriC = Arrays.copyOf(membriC, lungime);
+		}
+		stari[varf] = stare;
+		operatori[varf] = operator;
+		incadrate[varf] = false;
+		membriA[varf] = primul;
+		varf++;
+	}
+
+	/**Metoda scoate de pe stiva cadrul regulii incheiate, eliberand membrii retinuti.
+	 */
+	private void elibereaza(){
+		varf--;
+		membriA[varf] = null;
+		membriB[varf] = null;
+		membriC[varf] = null;
+	}
+
+	/**Metoda citeste un numar sau numele unei variabile (o succesiune de litere si cifre);
+	 * variabilele sunt internate in tabela de simboluri.
+	 */
+	private Expresie operand(){
+		int inceput = pozitie;
+		while(pozitie<linie.length() && (Character.isLetter(linie.charAt(pozitie)) || Character.isDigit(linie.charAt(pozitie)))){
+			pozitie++;
+		}
+		if(Character.isDigit(linie.charAt(inceput))){
+			return Expresie.numar(linie.substring(inceput, pozitie), inceput+1);
+		}
+		int slot = tabela.interneaza(linie, inceput, pozitie);
+		return Expresie.variabila(tabela.nume(slot), slot, inceput+1);
+	}
+}
@@ -1,10 +1,13 @@
 package Interpretor;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.util.Stack;
-import java.util.StringTokenizer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 
 public class ArboreDeParsare {
 
@@ -23,6 +26,31 @@ public class ArboreDeParsare {
 	
 	private PrintWriter pwpt = null;
 	
+	//Fluxul fisierului de output, ce numara octetii scrisi.
+	private FluxNumarat flux = null;
+	
+	//Zona in care se construieste afisarea arborelui unei expresii.
+	private StringBuilder sbArbore = new StringBuilder();
+	
+	private static final String SFARSIT_LINIE = System.lineSeparator();
+	
+	//Liniile afisarii (cate una pentru fiecare nivel din arbore), refolosite de la o expresie la alta.
+	private char[][] linii = new char[0][];
+	private int[] lungimi = new int[0];
+	private int inaltime = 0;
+	
+	//Stiva de actiuni a afisarii: subarborele de afisat (null pentru un caracter), nivelul si caracterul.
+	private Nod[] actiuniNod = new Nod[64];
+	private int[] actiuniNivel = new int[64];
+	private char[] actiuniCaracter = new char[64];
+	private int numarActiuni = 0;
+	
+	/**Constructorul creeaza un arbore de parsare fara fisier de output, folosit doar
+	 * pentru construirea afisarilor (toTree) pe alte fire de executie.
+	 */
+	public ArboreDeParsare(){
+	}
+	
 	/**Constructorul initializeaza arborele de parsare prin deschiderea
 	 * fisierului in care se va scrie rezultatul parsarii.
 	 * @param numeFisierCitire
@@ -30,7 +58,9 @@ public class ArboreDeParsare {
 	 */
 	public ArboreDeParsare(String numeFisierCitire){
 		//Se formeaza numele fisierului in care se va scrie pasarea expresiilor.
-		int pozitiePunctExtensie = numeFisierCitire.indexOf('.');
+		//Extensia se cauta doar in numele fisierului, nu si in directoarele din cale.
+		int inceputNume = numeFisierCitire.length() - new File(numeFisierCitire).getName().length();
+		int pozitiePunctExtensie = numeFisierCitire.indexOf('.', inceputNume);
 		if(pozitiePunctExtensie !=-1){
 			numeFisierScrierePT = numeFisierCitire.substring(0, pozitiePunctExtensie) + "_pt" + numeFisierCitire.substring(pozitiePunctExtensie);
 		}else{
@@ -39,13 +69,22 @@ public class ArboreDeParsare {
 		
 		//Se incearca deschiderea fisierului de output pentru arborele de parsare.
 		try{
-			pwpt = new PrintWriter(new File(numeFisierScrierePT));
+			flux = new FluxNumarat(new FileOutputStream(numeFisierScrierePT));
+			pwpt = new PrintWriter(new BufferedWriter(new OutputStreamWriter(flux)));
 		}catch(IOException e){
 			System.out.println("Nu s-a putut deschide fisierul de scriere pt.");
 			e.printStackTrace();
 		}
 	}
 	
+	/**Metoda intoarce fluxul fisierului de output, ce numara octetii scrisi.
+	 * @return
+	 * Fluxul sau null daca nu exista fisier de output.
+	 */
+	public FluxNumarat getFlux(){
+		return flux;
+	}
+	
 	/**Metoda pentru a termina parsarea in sensul inchiderii
 	 * fisierului de output si salvarii continutului acestuia.
 	 */
@@ -54,35 +93,20 @@ public class ArboreDeParsare {
 		pwpt.close();
 	}
 	
-	/**Metoda stabileste daca un String primit ca parametru este numar intreg.
-	 * @param variabila
-	 * String-ul ce se doreste sa se verifice daca este numar intreg.
-	 * @return
-	 * Raspunsul daca String-ul este numar intreg sau nu.
-	 */
-	private boolean esteNumar(String variabila){
-		/*Se testeaza daca un string primit ca parametru este
-		 * numar intreg sau nu prin intermediul prinderii unei
-		 * exceptii.
-		 */
-		try{
-			int i = Integer.parseInt(variabila);
-		}catch(NumberFormatException e){
-			return false;
-		}
-		return true;
-	}
-	
-	/**Metoda realizeaza arborele de parsare al expresiei in forma 
-	 * poloneza ce i se atribuie variabilei si afiseaza rezultatul
-	 * in fisierul de output.
-	 * @param variabila
-	 * Variabila careia i se atribuie forma poloneza.
-	 * @param formaPoloneza
-	 * Expresia in forma poloneza careia i se doreste construit 
+	/**Metoda realizeaza arborele de parsare al expresiei ce i se
+	 * atribuie unei variabile si intoarce afisarea acestuia. Afisarea nu depinde
+	 * de numele variabilei, deci poate fi refolosita pentru orice linie cu acelasi
+	 * membru drept.
+	 * @param expresie
+	 * Arborele sintactic al expresiei careia i se doreste construit 
 	 * arborele de parsare.
+	 * @return
+	 * Textul ce se scrie in fisierul pt pentru expresia data.
 	 */
-	public void toTree(String variabila, String formaPoloneza){
+	public String toTree(Expresie expresie){
+		Evenimente.ArboreAfisat eveniment = new Evenimente.ArboreAfisat();
+		eveniment.begin();
+		
 		//Se creaza arborele de parsare pentru expresia curenta.
 		Nod arbore=new Nod();
 		arbore.isOperator=true;
@@ -90,163 +114,157 @@ public class ArboreDeParsare {
 		
 		arbore.st=new Nod();
 		arbore.st.isOperator=false;
-		arbore.st.variabila=variabila;
 		
-		arbore.dr=calculateArbore(formaPoloneza);
+		arbore.dr=calculateArbore(expresie);
 		
-		//Se scrie parsarea expresiei in fisierul pt.
+		//Se construieste parsarea expresiei.
+		sbArbore.setLength(0);
 		recursiveDisplay(arbore);
+		String afisare = sbArbore.toString();
+		
+		eveniment.end();
+		if(eveniment.shouldCommit()){
+			eveniment.inaltimeArbore = inaltime;
+			eveniment.lungimeAfisare = afisare.length();
+			eveniment.commit();
+		}
+		return afisare;
 	}
 	
-	/**Metoda construieste arborele de parsare al expresiei primite ca parametru in forma poloneza. 
-	 * @param formaPoloneza
-	 * Expresia in forma poloneza careia i se doreste realizat un arbore de parsare.
+	/**Metoda scrie in fisierul pt afisarea arborelui de parsare al unei linii.
+	 * @param arbore
+	 * Afisarea obtinuta prin toTree.
+	 */
+	public void afiseaza(String arbore){
+		pwpt.print(arbore);
+	}
+	
+	/**Metoda construieste arborele de parsare al expresiei pornind de la arborele sintactic al acesteia.
+	 * Nodurile sunt create inaintea fiilor si completate cand sunt scoase din stiva de noduri de
+	 * construit, astfel incat nicio parcurgere a arborelui sa nu fie recursiva: un lant foarte lung
+	 * de termeni ar depasi altfel stiva firului de executie.
+	 * @param expresie
+	 * Arborele sintactic al expresiei careia i se doreste realizat un arbore de parsare.
 	 * @return
 	 * Arborele de parsare al expresiei.
 	 */
-	private Nod calculateArbore(String formaPoloneza){
-		/*Se initializeaza arborele rezultat cu null
-		 * si stiva in care se va produce "calculul" arborelui.
-		 */
-		Nod rezultat = null;
-		Stack<Nod> numere = new Stack<Nod>();
-		
-		/*Se doreste descompunerea expresiei in token dupa spatii
-		 * (similar in modul in care a fost construita).
-		 */
-		StringTokenizer st = new StringTokenizer(formaPoloneza);
-		String variabila="";
-		
-		//Se incepe evaluarea expresiei.
-		while(st.hasMoreTokens()){
-			variabila=st.nextToken();
-			if(esteNumar(variabila)){
-				/*Daca se intalneste un numar atunci se creaza un nod
-				 * pentru acel numar si nodul este introdus in stiva.
+	private Nod calculateArbore(Expresie expresie){
+		Nod radacina = new Nod();
+		ArrayDeque<Expresie> expresii = new ArrayDeque<Expresie>();
+		ArrayDeque<Nod> noduri = new ArrayDeque<Nod>();
+		expresii.push(expresie);
+		noduri.push(radacina);
+		while(!expresii.isEmpty()){
+			expresie = expresii.pop();
+			Nod aux = noduri.pop();
+			if(expresie.esteOperand()){
+				/*Daca se intalneste un numar sau o variabila atunci se creaza
+				 * o frunza pentru acesta.
 				 */
-				Nod aux = new Nod();
 				aux.isOperator=false;
-				aux.variabila=variabila;
-				numere.push(aux);
-			}else{
-				if(variabila.equals("+")){
-					/*La adunare (operator binar) se scot doua noduri (care pot reprezenta 
-					 * arbori) din stiva, se creaza un nod + ce va avea ca fii cele doua noduri
-					 * si acest nod este pus in stiva. 
-					 */
-					Nod a=numere.pop();
-					Nod b=numere.pop();
-					Nod aux=new Nod();
-					aux.isOperator=true;
-					aux.operator='+';
-					aux.st=b;
-					aux.dr=a;
-					numere.push(aux);
-				}else if(variabila.equals("$")){
-					/*La adunare (operator unar) se scoate un nod (ce poate reprezenta un arbore)
-					 * din stiva, se creaza un nod $ ce va avea ca fiu drept nodul scos si se va
-					 * introduce in stiva nodul creat.
-					 */
-					Nod a=numere.pop();
-					Nod aux=new Nod();
-					aux.dr=a;
-					aux.isOperator=true;
-					aux.operator='$';
-					numere.push(aux);
-				}else if(variabila.equals("@")){
-					/*La scadere (operator unar) se va scoate un nod (ce poate reprezenta un arbore)
-					 * din stiva, se creaza un nod @ ce va avea ca fiu drept nodul scos si se va
-					 * pune in stiva nodul creat. 
-					 */
-					Nod a=numere.pop();
-					Nod aux=new Nod();
-					aux.dr=a;
-					aux.isOperator=true;
-					aux.operator='@';
-					numere.push(aux);
-				}else if(variabila.equals("-")){
-					/*La scadere (operator binar) se vor scoate doua noduri (ce pot reprezenta arbori)
-					 * din stiva, se creaza un nod - ce va avea ca fii nodurile extrase si se va
-					 * introduce in stiva nodul creat.
-					 */
-					Nod a=numere.pop();
-					Nod b=numere.pop();
-					Nod aux=new Nod();
-					aux.isOperator=true;
-					aux.operator='-';
-					aux.st=b;
-					aux.dr=a;
-					numere.push(aux);
-				}else if(variabila.equals("*")){
-					/*La inmultire se vor scoate doau noduri (ce pot reprezenta arbori) din stiva,
-					 * se creeaza un nod * ce va avea ca fii cele doua noduri extrase si se va 
-					 * introduce in stiva nodul creat.
-					 */
-					Nod a=numere.pop();
-					Nod b=numere.pop();
-					Nod aux=new Nod();
-					aux.isOperator=true;
-					aux.operator='*';
-					aux.st=b;
-					aux.dr=a;
-					numere.push(aux);
-				}else if(variabila.equals("#")){
-					/*La intalnirea functiei asociate operatorului ternar(#) se scot 4 noduri
-					 * (ce pot reprezenta arbori) din stiva si va fi creata structura operatorului
-					 * ternar prezentata in enunt si nodul : va fi introdus in stiva.
-					 */
-					Nod d=numere.pop();
-					Nod c=numere.pop();
-					Nod b=numere.pop();
-					Nod a=numere.pop();
-					Nod aux=new Nod();
-					aux.isOperator=true;
-					aux.operator=':';
-					aux.dr=d;
-					
-					aux.st=new Nod();
-					aux.st.isOperator=true;
-					aux.st.operator='?';
-					aux.st.dr=c;
-					
-					aux.st.st=new Nod();
-					aux.st.st.isOperator=true;
-					aux.st.st.operator='>';
-					aux.st.st.dr=b;
-					aux.st.st.st=a;
-					
-					numere.push(aux);
-				}else{
-					/*Daca se intalneste o variabila atunci acesteia
-					 * i se creaza un nod ce este introdus in stiva.
-					 */
-					Nod aux = new Nod();
-					aux.isOperator=false;
-					aux.variabila=variabila;
-					numere.push(aux);
-				}
+				aux.variabila=expresie.text;
+				continue;
+			}
+			
+			aux.isOperator=true;
+			switch(expresie.tip){
+			case Expresie.PLUS_UNAR:
+			case Expresie.MINUS_UNAR:
+				/*Operatorii unari ($ pentru adunare si @ pentru scadere) au
+				 * ca fiu drept operandul lor.
+				 */
+				aux.operator = expresie.tip==Expresie.PLUS_UNAR ? '$' : '@';
+				aux.dr=fiu(expresie.a, expresii, noduri);
+				break;
+			case Expresie.TERNAR:
+				/*Pentru operatorul ternar este creata structura prezentata in enunt:
+				 * nodul : are ca fii nodul ? (ce are ca fii nodul > si parametrul C) si parametrul D.
+				 */
+				aux.operator=':';
+				aux.dr=fiu(expresie.d, expresii, noduri);
+				
+				aux.st=new Nod();
+				aux.st.isOperator=true;
+				aux.st.operator='?';
+				aux.st.dr=fiu(expresie.c, expresii, noduri);
+				
+				aux.st.st=new Nod();
+				aux.st.st.isOperator=true;
+				aux.st.st.operator='>';
+				aux.st.st.dr=fiu(expresie.b, expresii, noduri);
+				aux.st.st.st=fiu(expresie.a, expresii, noduri);
+				break;
+			default:
+				//Operatorii binari +, - si * au ca fii cei doi operanzi.
+				if(expresie.tip==Expresie.ADUNARE) aux.operator='+';
+				if(expresie.tip==Expresie.SCADERE) aux.operator='-';
+				if(expresie.tip==Expresie.INMULTIRE) aux.operator='*';
+				aux.st=fiu(expresie.a, expresii, noduri);
+				aux.dr=fiu(expresie.b, expresii, noduri);
+				break;
 			}
 		}
-		
-		/*La final va ramane in stiva doar un nod ce va
-		 * reprezenta arborele expresiei primita in forma poloneza.
-		 */
-		rezultat=numere.pop();
-		return rezultat;
+		return radacina;
 	}
+	
+	/**Metoda creeaza nodul (inca necompletat) corespunzator unui operand si il pune in stiva
+	 * nodurilor de construit.
+	 * @return
+	 * Nodul creat.
+	 */
+	private Nod fiu(Expresie operand, ArrayDeque<Expresie> expresii, ArrayDeque<Nod> noduri){
+		Nod nod = new Nod();
+		expresii.push(operand);
+		noduri.push(nod);
+		return nod;
+	}
+	
 	/**Metoda stabileste inaltimea arborelui si identifica tipul nodurilor componente.
+	 * Arborele este parcurs nivel cu nivel: tipul unei frunze depinde doar de operatorul
+	 * din nodul parinte, iar inaltimea este numarul de niveluri.
+	 * @param radacina
+	 * Arborele de parsare.
+	 * @return
+	 * Inaltimea arborelui.
+	 */
+	private int initializareTipCalculInaltime(Nod radacina){
+		int inaltime = 0;
+		ArrayDeque<Nod> nivel = new ArrayDeque<Nod>();
+		ArrayDeque<Nod> urmator = new ArrayDeque<Nod>();
+		nivel.add(radacina);
+		while(!nivel.isEmpty()){
+			inaltime++;
+			for(Nod parcurgere : nivel){
+				if(parcurgere.isOperator==false){
+					continue;
+				}
+				/*Daca nodul nu este frunza deci este operator, atunci se precizeaza tipul E pentru nod,
+				 * iar fiii sai (doar cel drept pentru operatorii unari) trec pe nivelul urmator.
+				 */
+				parcurgere.tip='E';
+				if(parcurgere.operator!='$' && parcurgere.operator!='@'){
+					urmator.add(tipFrunza(parcurgere.st, parcurgere.operator));
+				}
+				urmator.add(tipFrunza(parcurgere.dr, parcurgere.operator));
+			}
+			ArrayDeque<Nod> parcurs = nivel;
+			nivel = urmator;
+			urmator = parcurs;
+			urmator.clear();
+		}
+		return inaltime;
+	}
+	
+	/**Metoda identifica tipul (T/F/N) unui nod daca acesta este frunza.
 	 * @param parcurgere
-	 * Subarborele curent in care s-a ajuns cu parcurgerea.
+	 * Nodul fiu.
 	 * @param parinte
 	 * Operatorul din nodul parinte.
 	 * @return
-	 * Inaltimea subarborelui curent.
+	 * Nodul primit.
 	 */
-	private int initializareTipCalculInaltime(Nod parcurgere, char parinte){
+	private static Nod tipFrunza(Nod parcurgere, char parinte){
 		if(parcurgere.isOperator==false){
-			/*Daca nodul este frunza se face indentificare tipului (T/F/N)
-			 * si se returneaza inaltimea 1.
-			 */
 			if(parinte=='+' || parinte=='-' || parinte=='@' || parinte=='$' || parinte=='='){
 				parcurgere.tip='T';
 			}
@@ -256,52 +274,48 @@ public class ArboreDeParsare {
 			if(parinte=='?' || parinte==':' || parinte=='>'){
 				parcurgere.tip='N';
 			}
-			return 1;
-		}else{
-			/*Daca nodul nu este frunza deci este operator, atunci se precizeaza tipul E pentru nod
-			 * si se calculeaza inaltimea arborelui curent in functie de tipul de operator (unar
-			 * sau binar).
-			 */
-			parcurgere.tip='E';
-			if(parcurgere.operator=='$' || parcurgere.operator=='@'){
-				return initializareTipCalculInaltime(parcurgere.dr, parcurgere.operator)+1;
-			}else{
-				int a=initializareTipCalculInaltime(parcurgere.st, parcurgere.operator);
-				int b=initializareTipCalculInaltime(parcurgere.dr, parcurgere.operator);
-				if(a>b){
-					return a+1;
-				}else{
-					return b+1;
-				}
-			}
 		}
-		
+		return parcurgere;
 	}
 	
 	/**Metoda condenseaza operatorii unari care se afla inaintea frunzelor
-	 * pentru a nu reduce acele frunze in mod eronat la termeni. 
+	 * pentru a nu reduce acele frunze in mod eronat la termeni.
+	 * @param radacina
+	 * Arborele de parsare (radacina este operatorul =).
+	 */
+	private void condensare(Nod radacina){
+		/*Se condenseza operatorii unari pentru a se respecta semnificatia notatiilor T,F si N 
+		 * si faptul ca gramatica nu permite aplicarea operatorilor unari pe expresii. Stiva contine
+		 * operatorii binari ai caror fii urmeaza sa fie condensati.
+		 */
+		ArrayDeque<Nod> deCondensat = new ArrayDeque<Nod>();
+		deCondensat.push(radacina);
+		while(!deCondensat.isEmpty()){
+			Nod parinte = deCondensat.pop();
+			condensareFiu(parinte.st, parinte.operator, deCondensat);
+			condensareFiu(parinte.dr, parinte.operator, deCondensat);
+		}
+	}
+	
+	/**Metoda condenseaza un fiu al unui operator binar.
 	 * @param parcurgere
-	 * Subarborele curent in care s-a ajuns cu procesarea.
+	 * Fiul curent.
 	 * @param parinte
 	 * Operatorul din nodul parinte.
+	 * @param deCondensat
+	 * Stiva in care se pune fiul daca este la randul lui operator binar.
 	 */
-	private void condensare(Nod parcurgere, char parinte){
-		/*Se condenseza operatorii unari pentru a se respecta semnificatia notatiilor T,F si N 
-		 * si faptul ca gramatica nu permite aplicarea operatorilor unari pe expresii.
-		 */
+	private void condensareFiu(Nod parcurgere, char parinte, ArrayDeque<Nod> deCondensat){
 		if(parcurgere.isOperator==false) return;
-		if(parcurgere.isOperator && parcurgere.operator!='$' && parcurgere.operator!='@' ){
-			condensare(parcurgere.st, parcurgere.operator);
-			condensare(parcurgere.dr, parcurgere.operator);
-			return;
-		}
-		if(parcurgere.isOperator && (parcurgere.operator=='$' || parcurgere.operator=='@') && parcurgere.dr.isOperator){
-			parcurgere.isOperator=true;
+		//Un operator unar aplicat unui operator este inlocuit de acesta.
+		while((parcurgere.operator=='$' || parcurgere.operator=='@') && parcurgere.dr.isOperator){
 			parcurgere.tip='E';
 			parcurgere.operator = parcurgere.dr.operator;
 			parcurgere.st = parcurgere.dr.st;
 			parcurgere.dr = parcurgere.dr.dr;
-			condensare(parcurgere,parinte);
+		}
+		if(parcurgere.operator!='$' && parcurgere.operator!='@'){
+			deCondensat.push(parcurgere);
 			return;
 		}
 		if(parinte=='*'){
@@ -322,124 +336,185 @@ public class ArboreDeParsare {
 		parcurgere.dr=null;
 	}
 	
-	/**Metoda afiseaza arborele de parsare in fisierul de output
+	/**Metoda construieste afisarea arborelui de parsare
 	 * de la radacina pana la nivelul inaltimii lui.
 	 * @param parcurgere
-	 * Arborele care se doreste afisat in fisier.
+	 * Arborele care se doreste afisat.
 	 */
 	private void recursiveDisplay(Nod parcurgere){
 		/*Se realizeaza afisarea dorita in enunt a expresiei
-		 * la fiecare pas cu un nivel mai mult in arbore.
+		 * la fiecare pas cu un nivel mai mult in arbore. Toate liniile
+		 * afisarii (cate una pentru fiecare nivel) se construiesc simultan,
+		 * intr-o singura parcurgere a arborelui.
 		 */
-		condensare(parcurgere,'#');
-		int h=initializareTipCalculInaltime(parcurgere,'#');
-		for(int i=0; i<h; i++){
-			afisareNrNivele(parcurgere, i,false);
-			pwpt.println();
+		condensare(parcurgere);
+		inaltime=initializareTipCalculInaltime(parcurgere);
+		if(linii.length<inaltime){
+			int vechi = linii.length;
+			linii = Arrays.copyOf(linii, inaltime);
+			lungimi = Arrays.copyOf(lungimi, inaltime);
+			for(int i=vechi; i<inaltime; i++){
+				linii[i] = new char[64];
+			}
+		}
+		Arrays.fill(lungimi, 0, inaltime, 0);
+		
+		afisareNivele(parcurgere);
+		for(int i=0; i<inaltime; i++){
+			sbArbore.append(linii[i], 0, lungimi[i]);
+			sbArbore.append(SFARSIT_LINIE);
 		}
 	}
 	
-	/**Metoda scrie in fisierul de output parsarea expresiei pana la un nivel
-	 * maxim de adancime in arbore egal cu nr.
-	 * @param parcurgere
-	 * Subarborele curent in care s-a ajuns cu procesarea afisarii.
-	 * @param nr
-	 * Cate nivele se mai poate inainta in adancime in arbore.
-	 * @param paranteze
-	 * Daca pe nivelul curent expresia de afisat trebuie sau nu incadrata de paranteze.
+	/**Metoda adauga un caracter la liniile afisarii de la un nivel in jos.
+	 * @param nivel
+	 * Prima linie (nivelul din arbore) la care se adauga caracterul.
+	 * @param c
+	 * Caracterul adaugat.
 	 */
-	private void afisareNrNivele(Nod parcurgere, int nr, boolean paranteze){
-		/*Se afiseaza nr nivele din arbore prin recursivitate si se tin cont
-		 * daca expresia ce trebuie afisata trebuie incadrata sau nu de paranteze
-		 * (acest lucru pentru a nu afisa paranteze inutile si pentru a fi cat mai
-		 * apropiata de o scriere realizata de un om).
-		 */
-		if(nr<0) return;
-		if(parcurgere.isOperator==false || nr==0){
-			pwpt.print(parcurgere.tip);
-			return;
-		}
-		if(parcurgere.isOperator && parcurgere.operator=='='){
-			afisareNrNivele(parcurgere.st,nr-1,false);
-			pwpt.print('=');
-			afisareNrNivele(parcurgere.dr,nr-1,false);
-			return;
+	private void adauga(int nivel, char c){
+		for(int i=nivel; i<inaltime; i++){
+			adaugaPeLinie(i, c);
 		}
-		if(paranteze){
-			pwpt.print("(");
+	}
+	
+	private void adaugaPeLinie(int i, char c){
+		if(lungimi[i]==linii[i].length){
+			linii[i] = Arrays.copyOf(linii[i], 2*lungimi[i]);
 		}
-		if(parcurgere.isOperator && (parcurgere.operator=='+' || parcurgere.operator=='-')){
-			if((parcurgere.st.isOperator && parcurgere.st.operator!=':' && parcurgere.st.operator!='@' && parcurgere.st.operator!='$') || !parcurgere.st.isOperator){
-				afisareNrNivele(parcurgere.st,nr-1,false);
-			}else if(parcurgere.st.isOperator && (parcurgere.st.operator==':' || parcurgere.st.operator=='@' || parcurgere.st.operator=='$')){
-				afisareNrNivele(parcurgere.st,nr-1,true);
+		linii[i][lungimi[i]++] = c;
+	}
+	
+	/**Metoda adauga la toate liniile afisarii arborelui contributia fiecarui subarbore. Linia i
+	 * contine parsarea expresiei pana la un nivel maxim de adancime in arbore egal cu i, deci
+	 * un nod aflat pe nivelul nivel apare ca tip pe linia nivel, iar pe liniile urmatoare este
+	 * inlocuit de operatorul sau si de fiii sai.
+	 * <p>
+	 * Arborele este parcurs cu o stiva explicita de actiuni (afisarea unui subarbore sau adaugarea
+	 * unui caracter), in ordinea in care acestea ar fi fost facute de o parcurgere recursiva.
+	 * @param radacina
+	 * Arborele care se doreste afisat.
+	 */
+	private void afisareNivele(Nod radacina){
+		/*Se afiseaza nivelele din arbore si se tine cont daca expresia ce trebuie
+		 * afisata trebuie incadrata sau nu de paranteze (acest lucru pentru a nu afisa
+		 * paranteze inutile si pentru a fi cat mai apropiata de o scriere realizata de un om).
+		 */
+		numarActiuni = 0;
+		afiseaza(radacina, 0, false);
+		while(numarActiuni>0){
+			numarActiuni--;
+			Nod parcurgere = actiuniNod[numarActiuni];
+			int nivel = actiuniNivel[numarActiuni];
+			char caracter = actiuniCaracter[numarActiuni];
+			actiuniNod[numarActiuni] = null;
+			if(parcurgere==null){
+				adauga(nivel, caracter);
+				continue;
 			}
-			pwpt.print(parcurgere.operator);
-			if((parcurgere.dr.isOperator && parcurgere.dr.operator!=':' && parcurgere.dr.operator!='@' && parcurgere.dr.operator!='$') || !parcurgere.dr.isOperator){
-				afisareNrNivele(parcurgere.dr,nr-1,false);
-			}else if(parcurgere.dr.isOperator && (parcurgere.dr.operator==':' || parcurgere.dr.operator=='@' || parcurgere.dr.operator=='$')){
-				afisareNrNivele(parcurgere.dr,nr-1,true);
+			boolean paranteze = caracter=='(';
+			if(parcurgere.isOperator==false){
+				adauga(nivel, parcurgere.tip);
+				continue;
 			}
-		}
-		
-		if(parcurgere.isOperator && parcurgere.operator=='*'){
-			if(!parcurgere.st.isOperator || (parcurgere.st.isOperator && parcurgere.st.operator=='*')){
-				afisareNrNivele(parcurgere.st,nr-1,false);
-			}else{
-				afisareNrNivele(parcurgere.st,nr-1,true);
+			adaugaPeLinie(nivel, parcurgere.tip);
+			int urmator = nivel+1;
+			if(urmator==inaltime) continue;
+			
+			//Actiunile nodului sunt puse in ordinea fireasca, apoi inversate pentru a fi scoase in aceasta ordine.
+			int inceput = numarActiuni;
+			if(parcurgere.isOperator && parcurgere.operator=='='){
+				afiseaza(parcurgere.st,urmator,false);
+				scrie(urmator, '=');
+				afiseaza(parcurgere.dr,urmator,false);
+				inverseaza(inceput);
+				continue;
 			}
-			pwpt.print(parcurgere.operator);
-			if(!parcurgere.dr.isOperator || (parcurgere.dr.isOperator && parcurgere.dr.operator=='*')){
-				afisareNrNivele(parcurgere.dr,nr-1,false);
-			}else{
-				afisareNrNivele(parcurgere.dr,nr-1,true);
+			if(paranteze){
+				scrie(urmator, '(');
 			}
-		}
-		
-		if(parcurgere.isOperator && parcurgere.operator==':'){
-			afisareNrNivele(parcurgere.st,nr-1,false); //Parametrii A, B si C de la ternar
- 			pwpt.print(parcurgere.operator);//:
-			if(!parcurgere.dr.isOperator){//Parametrul D de la ternar
-				afisareNrNivele(parcurgere.dr,nr-1,false);
-			}else{
-				afisareNrNivele(parcurgere.dr,nr-1,true);
+			if(parcurgere.isOperator && (parcurgere.operator=='+' || parcurgere.operator=='-')){
+				afiseaza(parcurgere.st,urmator,parcurgere.st.isOperator && (parcurgere.st.operator==':' || parcurgere.st.operator=='@' || parcurgere.st.operator=='$'));
+				scrie(urmator, parcurgere.operator);
+				afiseaza(parcurgere.dr,urmator,parcurgere.dr.isOperator && (parcurgere.dr.operator==':' || parcurgere.dr.operator=='@' || parcurgere.dr.operator=='$'));
 			}
-		}
-		
-		if(parcurgere.isOperator && parcurgere.operator=='?'){
-			afisareNrNivele(parcurgere.st,nr-1,true); //Parametrii A si B de la ternar
-			pwpt.print(parcurgere.operator);//?
-			if(!parcurgere.dr.isOperator){//Parametrul C de la ternar
-				afisareNrNivele(parcurgere.dr,nr-1,false);
-			}else{
-				afisareNrNivele(parcurgere.dr,nr-1,true);
+			
+			if(parcurgere.isOperator && parcurgere.operator=='*'){
+				afiseaza(parcurgere.st,urmator,parcurgere.st.isOperator && parcurgere.st.operator!='*');
+				scrie(urmator, parcurgere.operator);
+				afiseaza(parcurgere.dr,urmator,parcurgere.dr.isOperator && parcurgere.dr.operator!='*');
 			}
-		}
-		
-		if(parcurgere.isOperator && parcurgere.operator=='>'){
-			if(!parcurgere.st.isOperator || (parcurgere.st.isOperator && parcurgere.st.operator!=':')){//Parametrul  A de la ternar
-				afisareNrNivele(parcurgere.st,nr-1,false);
-			}else{
-				afisareNrNivele(parcurgere.dr,nr-1,true);
+			
+			if(parcurgere.isOperator && parcurgere.operator==':'){
+				afiseaza(parcurgere.st,urmator,false); //Parametrii A, B si C de la ternar
+				scrie(urmator, parcurgere.operator);//:
+				afiseaza(parcurgere.dr,urmator,parcurgere.dr.isOperator);//Parametrul D de la ternar
 			}
-			pwpt.print(parcurgere.operator);//?
-			if(!parcurgere.dr.isOperator || (parcurgere.dr.isOperator && parcurgere.dr.operator!=':')){//Parametrul B de la ternar
-				afisareNrNivele(parcurgere.dr,nr-1,false);
-			}else{
-				afisareNrNivele(parcurgere.dr,nr-1,true);
+			
+			if(parcurgere.isOperator && parcurgere.operator=='?'){
+				afiseaza(parcurgere.st,urmator,true); //Parametrii A si B de la ternar
+				scrie(urmator, parcurgere.operator);//?
+				afiseaza(parcurgere.dr,urmator,parcurgere.dr.isOperator);//Parametrul C de la ternar
 			}
+			
+			if(parcurgere.isOperator && parcurgere.operator=='>'){
+				if(!parcurgere.st.isOperator || (parcurgere.st.isOperator && parcurgere.st.operator!=':')){//Parametrul  A de la ternar
+					afiseaza(parcurgere.st,urmator,false);
+				}else{
+					afiseaza(parcurgere.dr,urmator,true);
+				}
+				scrie(urmator, parcurgere.operator);//>
+				afiseaza(parcurgere.dr,urmator,parcurgere.dr.isOperator && parcurgere.dr.operator==':');//Parametrul B de la ternar
+			}
+			
+			if(parcurgere.isOperator && parcurgere.operator=='$'){
+				scrie(urmator, '+');
+				afiseaza(parcurgere.dr,urmator,true);
+			}
+			if(parcurgere.isOperator && parcurgere.operator=='@'){
+				scrie(urmator, '-');
+				afiseaza(parcurgere.dr,urmator,true);
+			}
+			if(paranteze){
+				scrie(urmator, ')');
+			}
+			inverseaza(inceput);
 		}
-		
-		if(parcurgere.isOperator && parcurgere.operator=='$'){
-			pwpt.print('+');
-			afisareNrNivele(parcurgere.dr,nr-1,true);
-		}
-		if(parcurgere.isOperator && parcurgere.operator=='@'){
-			pwpt.print('-');
-			afisareNrNivele(parcurgere.dr,nr-1,true);
+	}
+	
+	/**Metoda pune in stiva de actiuni afisarea unui subarbore.
+	 * @param paranteze
+	 * Daca expresia de afisat trebuie sau nu incadrata de paranteze.
+	 */
+	private void afiseaza(Nod parcurgere, int nivel, boolean paranteze){
+		puneActiune(parcurgere, nivel, paranteze ? '(' : ' ');
+	}
+	
+	/**Metoda pune in stiva de actiuni adaugarea unui caracter de la un nivel in jos.
+	 */
+	private void scrie(int nivel, char c){
+		puneActiune(null, nivel, c);
+	}
+	
+	private void puneActiune(Nod parcurgere, int nivel, char c){
+		if(numarActiuni==actiuniNod.length){
+			actiuniNod = Arrays.copyOf(actiuniNod, 2*numarActiuni);
+			actiuniNivel = Arrays.copyOf(actiuniNivel, 2*numarActiuni);
+			actiuniCaracter = Arrays.copyOf(actiuniCaracter, 2*numarActiuni);
 		}
-		if(paranteze){
-			pwpt.print(")");
+		actiuniNod[numarActiuni] = parcurgere;
+		actiuniNivel[numarActiuni] = nivel;
+		actiuniCaracter[numarActiuni] = c;
+		numarActiuni++;
+	}
+	
+	/**Metoda inverseaza actiunile puse in stiva incepand de la o pozitie.
+	 */
+	private void inverseaza(int inceput){
+		for(int i=inceput, j=numarActiuni-1; i<j; i++, j--){
+			Nod nod = actiuniNod[i]; actiuniNod[i] = actiuniNod[j]; actiuniNod[j] = nod;
+			int nivel = actiuniNivel[i]; actiuniNivel[i] = actiuniNivel[j]; actiuniNivel[j] = nivel;
+			char c = actiuniCaracter[i]; actiuniCaracter[i] = actiuniCaracter[j]; actiuniCaracter[j] = c;
 		}
 	}
 }
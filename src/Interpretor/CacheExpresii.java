@@ -0,0 +1,175 @@
+package Interpretor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**Cache de dimensiune limitata, cu evacuarea celei mai vechi intrari folosite (LRU), ce asociaza
+ * textului membrului drept al unei instructiuni forma sa analizata: arborele sintactic, forma
+ * compilata si afisarea arborelui de parsare. Liniile ce repeta un membru drept deja intalnit
+ * nu mai trec prin analiza sintactica, compilare si construirea arborelui de parsare.
+ * Cautarile si adaugarile sunt sincronizate, cache-ul fiind folosit si de firele ce
+ * analizeaza sintactic fragmente ale fisierului in paralel.
+ */
+public class CacheExpresii {
+
+	/**Clasa interna ce modeleaza o intrare din cache.
+	 */
+	public static class Intrare{
+		final Expresie expresie;
+		final String arbore;
+		//Forma compilata este calculata doar la prima evaluare.
+		ExpresieCompilata compilata;
+		//Arborele simplificat de optimizator, din care provine forma compilata.
+		Expresie simplificata;
+		//Indicele expresiei in fisierul precompilat scris (-1 daca nu a fost inca scrisa).
+		int indicePrecompilare = -1;
+
+		public Intrare(Expresie expresie, String arbore){
+			this.expresie=expresie;
+			this.arbore=arbore;
+		}
+	}
+
+	private final int capacitate;
+	private final LinkedHashMap<Cheie,Intrare> intrari;
+
+	private long gasiri = 0;
+	private long ratari = 0;
+	private long evacuari = 0;
+
+	//Cheia folosita la cautarile dupa o portiune dintr-o secventa de caractere.
+	private final Cheie cheie = new Cheie();
+
+	/**Constructorul initializeaza un cache gol.
+	 * @param capacitate
+	 * Numarul maxim de expresii retinute; 0 dezactiveaza cache-ul.
+	 */
+	public CacheExpresii(int capacitate){
+		this.capacitate=capacitate;
+		//Ordinea de acces a LinkedHashMap-ului da ordinea de evacuare.
+		this.intrari = new LinkedHashMap<Cheie,Intrare>(16, 0.75f, true){
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Cheie,Intrare> ceaMaiVeche){
+				if(size()>CacheExpresii.this.capacitate){
+					evacuari++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**Metoda cauta in cache forma analizata a unui membru drept.
+	 * @param membruDrept
+	 * Textul expresiei.
+	 * @return
+	 * Intrarea gasita sau null daca expresia nu se afla in cache.
+	 */
+	public synchronized Intrare get(String membruDrept){
+		return get(membruDrept, 0, membruDrept.length());
+	}
+
+	/**Metoda cauta in cache forma analizata a unui membru drept aflat intre doua pozitii
+	 * dintr-o secventa de caractere, fara a crea un String pentru acesta.
+	 * @param sursa
+	 * Secventa de caractere ce contine expresia (de exemplu linia curenta).
+	 * @param inceput
+	 * Pozitia primului caracter al expresiei.
+	 * @param sfarsit
+	 * Pozitia de dupa ultimul caracter al expresiei.
+	 * @return
+	 * Intrarea gasita sau null daca expresia nu se afla in cache.
+	 */
+	public synchronized Intrare get(CharSequence sursa, int inceput, int sfarsit){
+		cheie.seteaza(sursa, inceput, sfarsit);
+		Intrare intrare = intrari.get(cheie);
+		cheie.sursa=null;
+		if(intrare!=null){
+			gasiri++;
+		}else{
+			ratari++;
+		}
+		return intrare;
+	}
+
+	/**Cheia cache-ului: caracterele dintre doua pozitii ale unei secvente. Cheile retinute in
+	 * cache sunt String-uri intregi, iar cheia de cautare este refolosita pentru portiuni din linia
+	 * curenta; doua chei sunt egale daca au aceleasi caractere, indiferent de secventa lor.
+	 */
+	private static class Cheie{
+		private CharSequence sursa;
+		private int inceput, sfarsit;
+		private int hash;
+
+		//Cheia de cautare, pozitionata de seteaza.
+		Cheie(){
+		}
+
+		//Cheia retinuta in cache pentru un membru drept.
+		Cheie(String text){
+			sursa = text;
+			sfarsit = text.length();
+			hash = text.hashCode();
+		}
+
+		/**Metoda pozitioneaza cheia de cautare; hashCode-ul este cel al String-ului cu aceleasi caractere.
+		 */
+		void seteaza(CharSequence sursa, int inceput, int sfarsit){
+			this.sursa=sursa;
+			this.inceput=inceput;
+			this.sfarsit=sfarsit;
+			int h = 0;
+			for(int i=inceput; i<sfarsit; i++){
+				h = 31*h + sursa.charAt(i);
+			}
+			hash = h;
+		}
+
+		@Override
+		public int hashCode(){
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o){
+			if(!(o instanceof Cheie)) return false;
+			Cheie alta = (Cheie)o;
+			int lungime = sfarsit-inceput;
+			if(hash!=alta.hash || lungime!=alta.sfarsit-alta.inceput) return false;
+			for(int i=0; i<lungime; i++){
+				if(sursa.charAt(inceput+i)!=alta.sursa.charAt(alta.inceput+i)) return false;
+			}
+			return true;
+		}
+	}
+
+	/**Metoda adauga in cache forma analizata a unui membru drept, evacuand
+	 * la nevoie intrarea folosita cel mai demult.
+	 * @param membruDrept
+	 * Textul expresiei.
+	 * @param intrare
+	 * Forma analizata a expresiei.
+	 */
+	public synchronized void put(String membruDrept, Intrare intrare){
+		if(capacitate>0){
+			intrari.put(new Cheie(membruDrept), intrare);
+		}
+	}
+
+	public synchronized long getGasiri(){
+		return gasiri;
+	}
+
+	public synchronized long getRatari(){
+		return ratari;
+	}
+
+	public synchronized long getEvacuari(){
+		return evacuari;
+	}
+
+	@Override
+	public synchronized String toString(){
+		return "cache expresii: capacitate=" + capacitate + " gasiri=" + gasiri + " ratari=" + ratari + " evacuari=" + evacuari;
+	}
+}
@@ -0,0 +1,165 @@
+package Interpretor;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**Clasa citeste un fisier linie cu linie direct din memorie (FileChannel.map), fara a crea
+ * cate un String pentru fiecare linie. Linia curenta este expusa ca o secventa de caractere
+ * ce refera octetii din fisier; fisierele mai mari decat o fereastra de mapare sunt parcurse
+ * prin ferestre succesive. Liniile se termina, ca la BufferedReader.readLine, in \n, \r sau \r\n.
+ */
+public class CititorMapat {
+
+	//Dimensiunea unei ferestre de mapare.
+	private static final int DIMENSIUNE_FEREASTRA = 1<<26;
+
+	private final FileChannel canal;
+	private final long dimensiuneFisier;
+
+	//Fereastra mapata curent si pozitia ei in fisier.
+	private MappedByteBuffer fereastra = null;
+	private long inceputFereastra = 0;
+
+	//Pozitia (relativa la fereastra) de la care se cauta urmatoarea linie.
+	private int pozitie = 0;
+
+	private final Linie linie = new Linie();
+
+	/**Clasa interna ce modeleaza linia curenta: octetii dintre doua pozitii din fereastra.
+	 * Pentru liniile ce contin doar caractere ASCII fiecare octet este un caracter; celelalte
+	 * trebuie decodificate cu toString().
+	 */
+	public class Linie implements CharSequence{
+		private int inceput, sfarsit;
+		private boolean ascii;
+
+		@Override
+		public int length(){
+			return sfarsit-inceput;
+		}
+
+		@Override
+		public char charAt(int index){
+			return (char)fereastra.get(inceput+index);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end){
+			return decodifica(inceput+start, inceput+end);
+		}
+
+		/**Metoda stabileste daca linia contine doar caractere ASCII, caz in care charAt
+		 * intoarce caracterele liniei.
+		 */
+		public boolean esteAscii(){
+			return ascii;
+		}
+
+		@Override
+		public String toString(){
+			return decodifica(inceput, sfarsit);
+		}
+	}
+
+	/**Constructorul deschide fisierul si mapeaza prima fereastra.
+	 * @param numeFisier
+	 * Numele fisierului de citit.
+	 * @throws IOException
+	 * Daca fisierul nu poate fi deschis sau mapat.
+	 */
+	public CititorMapat(String numeFisier) throws IOException{
+		canal = FileChannel.open(Paths.get(numeFisier), StandardOpenOption.READ);
+		dimensiuneFisier = canal.size();
+		mapeaza(0, DIMENSIUNE_FEREASTRA);
+	}
+
+	/**Metoda avanseaza la urmatoarea linie din fisier.
+	 * @return
+	 * false daca s-a ajuns la sfarsitul fisierului.
+	 * @throws IOException
+	 * Daca o fereastra noua nu poate fi mapata.
+	 */
+	public boolean urmatoareaLinie() throws IOException{
+		if(inceputFereastra+pozitie>=dimensiuneFisier){
+			return false;
+		}
+
+		int sfarsit;
+		boolean ascii = true;
+		while(true){
+			sfarsit = pozitie;
+			int limita = fereastra.limit();
+			byte octet = 0;
+			while(sfarsit<limita && (octet = fereastra.get(sfarsit))!='\n' && octet!='\r'){
+				if(octet<0) ascii = false;
+				sfarsit++;
+			}
+			if(sfarsit<limita || inceputFereastra+limita>=dimensiuneFisier){
+				break;
+			}
+			/*Linia continua dupa fereastra curenta: se mapeaza o fereastra noua ce incepe
+			 * cu linia curenta (de doua ori mai mare daca linia nu incape in fereastra).
+			 */
+			int dimensiune = pozitie==0 ? (int)Math.min(2L*limita, Integer.MAX_VALUE) : DIMENSIUNE_FEREASTRA;
+			mapeaza(inceputFereastra+pozitie, dimensiune);
+			ascii = true;
+		}
+
+		linie.inceput = pozitie;
+		linie.sfarsit = sfarsit;
+		linie.ascii = ascii;
+
+		//Se sare peste terminatorul liniei (\r\n este un singur terminator).
+		pozitie = sfarsit;
+		if(pozitie<fereastra.limit()){
+			if(fereastra.get(pozitie++)=='\r'){
+				if(pozitie==fereastra.limit() && inceputFereastra+pozitie<dimensiuneFisier){
+					//Terminatorul \r\n este impartit intre doua ferestre.
+					int lungime = linie.sfarsit-linie.inceput;
+					mapeaza(inceputFereastra+linie.inceput, Math.max(DIMENSIUNE_FEREASTRA, lungime+2));
+					linie.inceput = 0;
+					linie.sfarsit = lungime;
+					pozitie = lungime+1;
+				}
+				if(pozitie<fereastra.limit() && fereastra.get(pozitie)=='\n'){
+					pozitie++;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**Metoda intoarce linia curenta. Obiectul intors este refolosit la fiecare apel
+	 * al metodei urmatoareaLinie.
+	 * @return
+	 * Linia curenta.
+	 */
+	public Linie linie(){
+		return linie;
+	}
+
+	/**Metoda inchide fisierul.
+	 * @throws IOException
+	 * Daca inchiderea esueaza.
+	 */
+	public void close() throws IOException{
+		canal.close();
+		fereastra = null;
+	}
+
+	private void mapeaza(long inceput, int dimensiune) throws IOException{
+		inceputFereastra = inceput;
+		fereastra = canal.map(FileChannel.MapMode.READ_ONLY, inceput, Math.min(dimensiune, dimensiuneFisier-inceput));
+		pozitie = 0;
+	}
+
+	private String decodifica(int inceput, int sfarsit){
+		byte[] octeti = new byte[sfarsit-inceput];
+		fereastra.get(inceput, octeti);
+		return new String(octeti, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,175 @@
+package Interpretor;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**Clasa este un client de test de incarcare pentru modul server: deschide un numar de sesiuni
+ * simultane si, in fiecare, trimite pe rand un numar de cereri (o linie, apoi asteapta raspunsul),
+ * masurand latenta fiecarei cereri. La final afiseaza debitul si percentilele latentei.
+ * <p>
+ * Utilizare: java Interpretor.ClientIncarcare adresa [sesiuni] [cereri]
+ * unde adresa este portul sau calea socketului Unix data serverului.
+ */
+public class ClientIncarcare {
+
+	/**Clasa interna ce modeleaza o sesiune a clientului.
+	 */
+	private static class Sesiune{
+		final int indice;
+		int trimise = 0;
+		long momentTrimitere;
+		ByteBuffer iesire;
+		final ByteBuffer intrare = ByteBuffer.allocate(256);
+
+		Sesiune(int indice){
+			this.indice=indice;
+		}
+	}
+
+	private final SocketAddress adresa;
+	private final int sesiuni;
+	private final int cereri;
+	private final long[] latente;
+	private int masurate = 0;
+	private int raspunsuriEroare = 0;
+
+	public ClientIncarcare(SocketAddress adresa, int sesiuni, int cereri){
+		this.adresa=adresa;
+		this.sesiuni=sesiuni;
+		this.cereri=cereri;
+		latente = new long[sesiuni*cereri];
+	}
+
+	/**Metoda construieste cererea cu numarul dat a unei sesiuni: prima atribuie variabila sesiunii,
+	 * urmatoarele o recalculeaza pe baza valorii anterioare (deci folosesc tabela sesiunii).
+	 */
+	private static String cerere(int sesiune, int numar){
+		if(numar==0){
+			return "v=" + sesiune + "\n";
+		}
+		return "v=(v>1000)?v-(7*" + numar + ")*3:v*2+" + (numar%10) + "\n";
+	}
+
+	/**Metoda ruleaza testul si afiseaza rezultatul.
+	 * @throws IOException
+	 * Daca nu se poate face conexiunea cu serverul.
+	 */
+	public void ruleaza() throws IOException{
+		try(Selector selector = Selector.open()){
+			boolean tcp = adresa instanceof InetSocketAddress;
+			//Conexiunile se deschid blocant, una cate una, ca sa nu depaseasca coada serverului.
+			for(int i=0; i<sesiuni; i++){
+				SocketChannel conexiune = tcp ? SocketChannel.open() : SocketChannel.open(StandardProtocolFamily.UNIX);
+				conexiune.connect(adresa);
+				if(tcp){
+					conexiune.setOption(StandardSocketOptions.TCP_NODELAY, true);
+				}
+				conexiune.configureBlocking(false);
+				conexiune.register(selector, SelectionKey.OP_READ, new Sesiune(i));
+			}
+
+			long inceput = System.nanoTime();
+			for(SelectionKey cheie : selector.keys()){
+				trimite(cheie);
+			}
+			int active = sesiuni;
+			while(active>0){
+				selector.select();
+				Iterator<SelectionKey> chei = selector.selectedKeys().iterator();
+				while(chei.hasNext()){
+					SelectionKey cheie = chei.next();
+					chei.remove();
+					if(cheie.isWritable()){
+						scrie(cheie);
+					}
+					if(cheie.isValid() && cheie.isReadable() && citeste(cheie)){
+						active--;
+					}
+				}
+			}
+			long durata = System.nanoTime()-inceput;
+			raporteaza(durata);
+		}
+	}
+
+	private void trimite(SelectionKey cheie) throws IOException{
+		Sesiune sesiune = (Sesiune)cheie.attachment();
+		sesiune.iesire = ByteBuffer.wrap(cerere(sesiune.indice, sesiune.trimise).getBytes(StandardCharsets.UTF_8));
+		sesiune.trimise++;
+		sesiune.momentTrimitere = System.nanoTime();
+		scrie(cheie);
+	}
+
+	private void scrie(SelectionKey cheie) throws IOException{
+		Sesiune sesiune = (Sesiune)cheie.attachment();
+		((SocketChannel)cheie.channel()).write(sesiune.iesire);
+		cheie.interestOps(sesiune.iesire.hasRemaining() ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+	}
+
+	/**Metoda citeste raspunsul sesiunii si trimite urmatoarea cerere.
+	 * @return
+	 * true daca sesiunea si-a terminat cererile.
+	 */
+	private boolean citeste(SelectionKey cheie) throws IOException{
+		Sesiune sesiune = (Sesiune)cheie.attachment();
+		if(((SocketChannel)cheie.channel()).read(sesiune.intrare)<0){
+			throw new IOException("Serverul a inchis sesiunea " + sesiune.indice + ".");
+		}
+		ByteBuffer intrare = sesiune.intrare;
+		int sfarsit = -1;
+		for(int i=0; i<intrare.position(); i++){
+			if(intrare.get(i)=='\n'){
+				sfarsit = i;
+				break;
+			}
+		}
+		if(sfarsit<0){
+			return false;
+		}
+		latente[masurate++] = System.nanoTime()-sesiune.momentTrimitere;
+		String raspuns = new String(intrare.array(), 0, sfarsit, StandardCharsets.UTF_8);
+		if(!raspuns.startsWith("v=")){
+			raspunsuriEroare++;
+		}
+		intrare.clear();
+
+		if(sesiune.trimise<cereri){
+			trimite(cheie);
+			return false;
+		}
+		cheie.channel().close();
+		return true;
+	}
+
+	private void raporteaza(long durata){
+		Arrays.sort(latente, 0, masurate);
+		System.out.println("sesiuni=" + sesiuni + " cereri/sesiune=" + cereri + " raspunsuri=" + masurate + " erori=" + raspunsuriEroare);
+		System.out.printf("timp=%.3fs debit=%.0f cereri/s%n", durata/1e9, masurate/(durata/1e9));
+		System.out.printf("latenta (us): p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f%n",
+				percentila(0.50)/1e3, percentila(0.90)/1e3, percentila(0.99)/1e3, percentila(0.999)/1e3, latente[masurate-1]/1e3);
+	}
+
+	private long percentila(double p){
+		return latente[Math.min(masurate-1, (int)Math.ceil(p*masurate)-1)];
+	}
+
+	public static void main(String[] args) throws IOException{
+		if(args.length<1){
+			System.out.println("Utilizare: java Interpretor.ClientIncarcare adresa [sesiuni] [cereri]");
+			return;
+		}
+		int sesiuni = args.length>1 ? Integer.parseInt(args[1]) : 1000;
+		int cereri = args.length>2 ? Integer.parseInt(args[2]) : 100;
+		new ClientIncarcare(Server.adresa(args[0]), sesiuni, cereri).ruleaza();
+	}
+}
@@ -1,53 +1,293 @@
 package Interpretor;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.util.HashMap;
-import java.util.Stack;
-import java.util.StringTokenizer;
+import java.math.BigInteger;
+import java.util.Arrays;
 
 public class Evaluator {
 	
+	/*Aritmetica evaluarii: modulara (rezultatele ce nu incap pe int sunt reduse modulo 2^32),
+	 * exacta (rezultatele ce nu incap pe int sunt calculate pe long si, daca nici acolo nu incap,
+	 * ca BigInteger) sau cu eroare (o linie al carei calcul nu incape pe int este eronata).
+	 */
+	public static final int ARITMETICA_MODULARA = 0;
+	public static final int ARITMETICA_EXACTA = 1;
+	public static final int ARITMETICA_EROARE = 2;
+	
+	//Rezultatul intors de calculul verificat pe int cand un rezultat intermediar nu incape pe int.
+	public static final long DEPASIRE = Long.MIN_VALUE;
+	
+	//Starile unui nod in stiva compilatorului: inainte de compilarea operanzilor, respectiv dupa (fara incadrare).
+	private static final int INTRARE = -2;
+	private static final int FARA_SUBEXPRESIE = -1;
+	
 	private String numeFisierScriereEE = null;
 	
 	private PrintWriter pwee = null;
 	
-	private HashMap<String,Integer> hmTabelValori = null;
+	//Fluxul fisierului de output, ce numara octetii scrisi.
+	private FluxNumarat flux = null;
+	
+	private TabelaSimboli tabela = null;
+	
+	private int[] valori = null;
+	
+	private int[] stiva = null;
+	
+	//Evaluarea pe mai multe fire de executie (null daca evaluarea este secventiala).
+	private EvaluatorParalel paralel = null;
+	
+	//Numerotarea valorilor pentru refolosirea subexpresiilor comune (null daca este dezactivata).
+	private NumerotareValori numerotare = null;
+	
+	//Executia scriptului ca bytecode JVM (null daca se foloseste interpretorul pe stiva).
+	private MotorJVM motorJVM = null;
+	
+	//Evaluarea doar a variabilelor cerute (null daca se evalueaza toate liniile).
+	private Interogare interogare = null;
+	
+	private int aritmetica = ARITMETICA_MODULARA;
+	/*Aritmetica exacta: valorile variabilelor pe long, iar cele ce nu incap pe long ca BigInteger
+	 * (null daca valoarea incape pe long), stiva corespunzatoare si numarul variabilelor a caror
+	 * valoare nu incape pe int. Cat timp acesta este 0, expresiile sunt calculate intai pe int.
+	 */
+	private long[] valoriLungi = null;
+	private BigInteger[] valoriMari = null;
+	private long[] stivaLunga = null;
+	private BigInteger[] stivaMare = null;
+	private int numarLate = 0;
+	private BigInteger rezultatMare = null;
+	//Aritmetica cu eroare: variabilele a caror ultima atribuire a depasit int nu au valoare.
+	private boolean[] nedefinite = null;
+	private int numarNedefinite = 0;
+	//Ultima evaluare a depasit int (linie eronata sau, in aritmetica exacta, rezultat mai mare).
+	private boolean depasire = false;
+	
+	//Zonele de lucru ale compilatorului, refolosite de la o expresie la alta.
+	private int[] cod = new int[64];
+	private int[] constante = new int[16];
+	private int lungimeCod = 0;
+	private int numarConstante = 0;
+	private BigInteger[] constanteMari = null;
+	private int[] numereNoduri = null;
+	private int indiceNod = 0;
+	//Stiva nodurilor de compilat si starea fiecaruia: INTRARE, FARA_SUBEXPRESIE sau inceputul codului incadrat.
+	private Expresie[] deEmis = new Expresie[64];
+	private int[] stareEmitere = new int[64];
+	
+	/**Constructorul creeaza un evaluator fara fisier de output, folosit doar
+	 * pentru compilarea expresiilor.
+	 * @param tabela
+	 * Tabela de simboluri in care sunt internate variabilele.
+	 */
+	public Evaluator(TabelaSimboli tabela){
+		this.tabela = tabela;
+		valori = new int[16];
+		stiva = new int[16];
+	}
 	
 	/**Constructorul initializeaza evaluatorul prin deschiderea fisierului in care se va scrie
-	 * rezultatul evaluarii expresiilor si prin initializarea unui HashMap ce va tine evidenta 
-	 * valoriilor variabilelor.
+	 * rezultatul evaluarii expresiilor si prin initializarea tabelului (indexat dupa slot) ce va tine
+	 * evidenta valoriilor variabilelor.
 	 * @param numeFisierCitire
 	 * Numele fisierului ce contine instructiunile de interpretat si va influenta numele fisierului de output.
+	 * @param tabela
+	 * Tabela de simboluri in care sunt internate variabilele.
 	 */
-	public Evaluator(String numeFisierCitire){
+	public Evaluator(String numeFisierCitire, TabelaSimboli tabela){
 		//Se formeaza numele fisierului in care se va scrie rezultatul evaluarii expresiilor.
-		int pozitiePunctExtensie = numeFisierCitire.indexOf('.');
+		//Extensia se cauta doar in numele fisierului, nu si in directoarele din cale.
+		int inceputNume = numeFisierCitire.length() - new File(numeFisierCitire).getName().length();
+		int pozitiePunctExtensie = numeFisierCitire.indexOf('.', inceputNume);
 		if(pozitiePunctExtensie!=-1){
 			numeFisierScriereEE = numeFisierCitire.substring(0, pozitiePunctExtensie) + "_ee" + numeFisierCitire.substring(pozitiePunctExtensie);
 		}else{
 			numeFisierScriereEE = numeFisierCitire+"_ee";
 		}
-		//Initializare HashMap pentru mentinerea unui tabel cu valoriile asociate variabilelor.
-		hmTabelValori = new HashMap<String,Integer>();
+		//Initializare tabel de valori (indexat dupa slot) si stiva de evaluare.
+		this.tabela = tabela;
+		valori = new int[16];
+		stiva = new int[16];
 		
 		//Se incearca deschiderea fisierului de output pentru evaluarea expresiilor.
 		try{
-			pwee = new PrintWriter(new File(numeFisierScriereEE));
+			flux = new FluxNumarat(new FileOutputStream(numeFisierScriereEE));
+			pwee = new PrintWriter(new BufferedWriter(new OutputStreamWriter(flux)));
 		}catch(IOException e){
 			System.out.println("Nu s-a putut deschide fisierul de scriere ee.");
 			e.printStackTrace();
 		}
 	}
 	
+	/**Metoda stabileste aritmetica evaluarii secventiale pe stiva. Aritmetica exacta si cea cu
+	 * eroare calculeaza expresia intai pe int, verificand fiecare rezultat intermediar; doar daca
+	 * unul nu incape pe int, expresia este recalculata pe long cu Math.*Exact si, la depasirea
+	 * acestuia, cu BigInteger (aritmetica exacta), respectiv linia este eronata (aritmetica cu
+	 * eroare). In acest din urma caz variabila ramane fara valoare, iar liniile ce o citesc sunt
+	 * eronate pana la o noua atribuire reusita. Toti operanzii unui ternar sunt calculati, deci o
+	 * depasire in ramura neselectata face de asemenea linia eronata.
+	 * @param aritmetica
+	 * ARITMETICA_MODULARA, ARITMETICA_EXACTA sau ARITMETICA_EROARE.
+	 */
+	public void setAritmetica(int aritmetica){
+		this.aritmetica = aritmetica;
+		if(aritmetica==ARITMETICA_EXACTA){
+			valoriLungi = new long[valori.length];
+			valoriMari = new BigInteger[valori.length];
+			stivaLunga = new long[stiva.length];
+			stivaMare = new BigInteger[stiva.length];
+		}else if(aritmetica==ARITMETICA_EROARE){
+			nedefinite = new boolean[valori.length];
+		}
+	}
+	
+	/**Metoda activeaza evaluarea pe mai multe fire de executie: instructiunile sunt doar
+	 * retinute pe masura ce sunt primite, iar la inchidere sunt evaluate in paralel dupa
+	 * graful dependentelor dintre ele si scrise in fisierul de output in ordinea liniilor.
+	 * @param numarFire
+	 * Numarul de fire de executie folosite.
+	 */
+	public void setParalel(int numarFire){
+		paralel = new EvaluatorParalel(numarFire);
+	}
+	
+	/**Metoda activeaza executia ca bytecode JVM: instructiunile sunt doar retinute pe masura
+	 * ce sunt primite, iar la inchidere intregul script este tradus intr-o clasa ascunsa,
+	 * executat si scris in fisierul de output in ordinea liniilor.
+	 */
+	public void setMotorJVM(){
+		motorJVM = new MotorJVM();
+	}
+	
+	/**Metoda intoarce motorul JVM al evaluatorului.
+	 * @return
+	 * Motorul JVM sau null daca se foloseste interpretorul pe stiva.
+	 */
+	public MotorJVM getMotorJVM(){
+		return motorJVM;
+	}
+	
+	/**Metoda activeaza refolosirea subexpresiilor comune: subexpresiile ce se repeta (pe aceeasi
+	 * linie sau pe linii diferite) sunt calculate o singura data, iar valoarea lor este refolosita
+	 * pana la reatribuirea uneia dintre variabilele pe care le citesc. Se aplica doar evaluarii
+	 * secventiale si expresiilor compilate dupa activare.
+	 */
+	public void setSubexpresiiComune(){
+		numerotare = new NumerotareValori();
+	}
+	
+	/**Metoda activeaza modul interogare: instructiunile corecte sunt doar retinute, iar la
+	 * inchidere se evalueaza numai liniile de care depind valorile finale ale variabilelor
+	 * cerute. Fisierul de output contine doar variabilele cerute, in ordinea in care au fost
+	 * cerute; o variabila careia nu i s-a atribuit nicio valoare este scrisa ca nedeclarata.
+	 * @param variabile
+	 * Numele variabilelor ale caror valori finale se cer.
+	 */
+	public void setInterogare(String... variabile){
+		int[] tinte = new int[variabile.length];
+		for(int i=0; i<variabile.length; i++){
+			tinte[i] = tabela.interneaza(variabile[i]);
+		}
+		interogare = new Interogare(tinte);
+	}
+	
+	/**Metoda intoarce interogarea evaluatorului.
+	 * @return
+	 * Interogarea sau null daca se evalueaza toate liniile.
+	 */
+	public Interogare getInterogare(){
+		return interogare;
+	}
+	
+	/**Metoda intoarce numerotarea valorilor folosita pentru subexpresiile comune.
+	 * @return
+	 * Numerotarea valorilor sau null daca refolosirea subexpresiilor este dezactivata.
+	 */
+	public NumerotareValori getNumerotareValori(){
+		return numerotare;
+	}
+	
+	/**Metoda intoarce fluxul fisierului de output, ce numara octetii scrisi.
+	 * @return
+	 * Fluxul sau null daca nu exista fisier de output.
+	 */
+	public FluxNumarat getFlux(){
+		return flux;
+	}
+	
 	/**Metoda pentru a termina evaluarea expresiilor in sensul inchiderii
 	 * fisierului de output si salvarii continutului acestuia.
 	 */
 	public void close(){
-		hmTabelValori=null;
+		if(interogare!=null){
+			//Se evalueaza doar liniile necesare si se scriu valorile finale ale variabilelor cerute.
+			asiguraCapacitate();
+			boolean[] definite = interogare.evalueaza(valori);
+			int[] tinte = interogare.getTinte();
+			for(int i=0; i<tinte.length; i++){
+				if(definite[i]){
+					scrieRezultat(tabela.nume(tinte[i]), valori[tinte[i]]);
+				}else{
+					pwee.println(tabela.nume(tinte[i]) + " nedeclarata");
+				}
+			}
+		}
+		if(motorJVM!=null){
+			//Se executa scriptul generat si se scriu rezultatele in ordinea liniilor.
+			asiguraCapacitate();
+			int[] rezultate = motorJVM.executa(valori);
+			for(int i=0; i<motorJVM.numarLinii(); i++){
+				int slot = motorJVM.slot(i);
+				if(slot<0){
+					pwee.println("error");
+				}else{
+					scrieRezultat(tabela.nume(slot), rezultate[i]);
+				}
+			}
+		}
+		if(paralel!=null){
+			//Se evalueaza toate instructiunile retinute si se scriu rezultatele in ordinea liniilor.
+			asiguraCapacitate();
+			int[] rezultate = paralel.evalueaza(valori);
+			for(int i=0; i<paralel.numarLinii(); i++){
+				int slot = paralel.slot(i);
+				if(slot<0){
+					pwee.println("error");
+				}else{
+					scrieRezultat(tabela.nume(slot), rezultate[i]);
+				}
+			}
+			paralel.close();
+			paralel=null;
+		}
+		tabela=null;
+		valori=null;
+		stiva=null;
 		//Se inchide fisierul de output.
-		pwee.close();
+		if(pwee!=null){
+			pwee.close();
+		}
+	}
+	
+	/**Metoda inchide fisierul de output atunci cand interpretarea s-a oprit cu o eroare,
+	 * fara a mai evalua instructiunile retinute (interogare, motorul JVM, evaluarea paralela).
+	 */
+	public void abandoneaza(){
+		if(paralel!=null){
+			paralel.close();
+			paralel=null;
+		}
+		tabela=null;
+		valori=null;
+		stiva=null;
+		if(pwee!=null){
+			pwee.close();
+		}
 	}
 	
 	/**Metoda ce permite Interpretorului sa forteze evaluatorul sa scrie
@@ -55,135 +295,591 @@ public class Evaluator {
 	 * (cand nu este corecta din punct de vedere semantic).
 	 */
 	public void nonCalculable(){
+		if(interogare!=null){
+			//Liniile incorecte nu atribuie nimic, deci nu influenteaza variabilele cerute.
+			return;
+		}
+		if(motorJVM!=null){
+			motorJVM.adauga(-1, null, null);
+			return;
+		}
+		if(paralel!=null){
+			paralel.adauga(-1, null);
+			return;
+		}
 		//Se scrie eroare in caz ca o expresie este necalculabila.
 		pwee.println("error");
 	}
 	
-	/**Metoda atribuie variabilei rezultatul evaluarii expresiei in forma poloneza
+	/**Metoda atribuie variabilei rezultatul evaluarii expresiei
 	 * si scrie variabila si valoarea acesteia in fisierul de output.
-	 * @param variabila
-	 * Variabila careia i se face atribuirea evaluarii expresiei in forma poloneza.
-	 * @param formaPoloneza
-	 * Expresia in forma poloneza care se doreste evaluata pentru a se atribui rezultatul variabilei.
-	 */
-	public void evaluate(String variabila, String formaPoloneza){
-		/*Evaluarea unei expresii din forma poloneza, scrierea rezultatului
-		 * in fisierul de output si adaugarea sau reinnoirea valorii careia
-		 * i s-a aplicat atribuirea expresiei.
+	 * @param instructiune
+	 * Instructiunea ce contine variabila careia i se face atribuirea.
+	 * @param compilata
+	 * Forma compilata a expresiei a carei evaluare se atribuie variabilei.
+	 */
+	public void evaluate(Instructiune instructiune, ExpresieCompilata compilata){
+		if(interogare!=null){
+			interogare.adauga(instructiune.slot, compilata);
+			return;
+		}
+		if(motorJVM!=null){
+			motorJVM.adauga(instructiune.slot, instructiune.expresie, compilata);
+			return;
+		}
+		if(paralel!=null){
+			paralel.adauga(instructiune.slot, compilata);
+			return;
+		}
+		
+		/*Evaluarea, scrierea rezultatului in fisierul de output si reinnoirea
+		 * valorii variabilei careia i s-a aplicat atribuirea nu aloca memorie (evenimentul
+		 * JFR nu paraseste metoda, deci alocarea lui este eliminata de compilatorul JIT).
 		 */
-		Integer rezultat = calculate(formaPoloneza);
-		pwee.println(variabila + "=" + rezultat);
-		hmTabelValori.put(variabila, rezultat);
+		Evenimente.ExpresieEvaluata eveniment = new Evenimente.ExpresieEvaluata();
+		eveniment.begin();
+		if(aritmetica==ARITMETICA_MODULARA){
+			int rezultat = calculate(compilata);
+			scrieRezultat(instructiune.variabila, rezultat);
+			valori[instructiune.slot] = rezultat;
+			if(numerotare!=null){
+				numerotare.atribuire(instructiune.slot);
+			}
+		}else{
+			evaluateVerificat(instructiune, compilata);
+		}
+		eveniment.end();
+		if(eveniment.shouldCommit()){
+			eveniment.variabila = instructiune.variabila;
+			eveniment.valoare = valoare(instructiune.slot);
+			eveniment.depasire = depasire;
+			eveniment.lungimeCod = compilata.cod.length;
+			eveniment.adancimeStiva = compilata.adancimeStiva;
+			eveniment.commit();
+		}
+	}
+	
+	/**Metoda evalueaza o instructiune in aritmetica exacta sau cu eroare.
+	 */
+	private void evaluateVerificat(Instructiune instructiune, ExpresieCompilata compilata){
+		int slot = instructiune.slot;
+		if(aritmetica==ARITMETICA_EROARE){
+			long rezultat = calculateVerificat(compilata);
+			depasire = rezultat==DEPASIRE;
+			if(depasire!=nedefinite[slot]){
+				nedefinite[slot] = depasire;
+				numarNedefinite += depasire ? 1 : -1;
+			}
+			if(depasire){
+				pwee.println("error");
+			}else{
+				scrieRezultat(instructiune.variabila, (int)rezultat);
+				valori[slot] = (int)rezultat;
+			}
+			return;
+		}
+		
+		long rezultat = calculateExact(compilata);
+		depasire = rezultatMare!=null || rezultat!=(int)rezultat;
+		if(rezultatMare!=null){
+			pwee.print(instructiune.variabila);
+			pwee.print('=');
+			pwee.println(rezultatMare);
+		}else{
+			scrieRezultat(instructiune.variabila, rezultat);
+		}
+		boolean eraLata = valoriMari[slot]!=null || valoriLungi[slot]!=(int)valoriLungi[slot];
+		if(depasire!=eraLata){
+			numarLate += depasire ? 1 : -1;
+		}
+		valori[slot] = (int)rezultat;
+		valoriLungi[slot] = rezultat;
+		valoriMari[slot] = rezultatMare;
+	}
+	
+	/**Metoda intoarce textul valorii curente a unei variabile.
+	 */
+	private String valoare(int slot){
+		if(aritmetica==ARITMETICA_EXACTA){
+			return valoriMari[slot]!=null ? valoriMari[slot].toString() : String.valueOf(valoriLungi[slot]);
+		}
+		return String.valueOf(valori[slot]);
+	}
+	
+	private void scrieRezultat(String variabila, int rezultat){
+		pwee.print(variabila);
+		pwee.print('=');
+		pwee.println(rezultat);
 	}
 	
-	/**Metoda stabileste daca un String primit ca parametru este numar intreg.
-	 * @param variabila
-	 * String-ul ce se doreste sa se verifice daca este numar intreg.
+	private void scrieRezultat(String variabila, long rezultat){
+		pwee.print(variabila);
+		pwee.print('=');
+		pwee.println(rezultat);
+	}
+	
+	/**Metoda compileaza arborele unei expresii intr-un vector de coduri de operatie
+	 * (in ordinea formei poloneze), un bazin de constante si referinte catre sloturile variabilelor.
+	 * @param expresie
+	 * Arborele expresiei care se doreste compilata.
 	 * @return
-	 * Raspunsul daca String-ul este numar intreg sau nu.
+	 * Forma compilata a expresiei.
 	 */
-	private boolean esteNumar(String variabila){
-		/*Se testeaza daca un string primit ca parametru este
-		 * numar intreg sau nu prin intermediul prinderii unei
-		 * exceptii.
-		 */
-		try{
-			int i = Integer.parseInt(variabila);
-		}catch(NumberFormatException e){
-			return false;
+	public ExpresieCompilata compile(Expresie expresie){
+		lungimeCod = 0;
+		numarConstante = 0;
+		constanteMari = null;
+		if(numerotare!=null && paralel==null){
+			numereNoduri = numerotare.numeroteaza(expresie);
+			indiceNod = 0;
 		}
-		return true;
+		int adancimeMaxima = emite(expresie);
+		numereNoduri = null;
+		return new ExpresieCompilata(Arrays.copyOf(cod, lungimeCod), Arrays.copyOf(constante, numarConstante),
+				constanteMari==null ? null : Arrays.copyOf(constanteMari, numarConstante), adancimeMaxima);
 	}
 	
-	/**Metoda primeste o expresie in forma poloneza si intoarce rezultatul evaluarii acesteia.
-	 * @param formaPoloneza
-	 * Expresia in forma poloneza care se doreste evaluata.
+	/**Metoda genereaza codul unei expresii, in postordine. Parcurgerea foloseste o stiva explicita
+	 * (nu recursivitatea), astfel incat o expresie foarte lunga, de exemplu un lant de mii de termeni,
+	 * sa nu depaseasca stiva firului de executie. Fiecare nod este pus in stiva de doua ori: la intrare
+	 * se pun in stiva operanzii sai, iar la iesire (dupa codul operanzilor) se genereaza operatorul.
+	 * <p>
+	 * Daca un subarbore este o subexpresie comuna, codul lui este incadrat de SUBEXPRESIE si MEMOREAZA,
+	 * astfel incat sa fie executat doar cand valoarea retinuta nu mai este valabila (subexpresiile
+	 * comune din interiorul lui sunt retinute la randul lor).
+	 * @param expresie
+	 * Arborele pentru care se genereaza cod.
 	 * @return
-	 * Un intreg ce reprezinta rezultatul evaluarii expresiei in forma poloneza.
+	 * Adancimea maxima atinsa de stiva in timpul evaluarii expresiei.
 	 */
-	public Integer calculate(String formaPoloneza){
-		/*Se initializeaza rezultatul si stiva in care se 
-		 * va efectua calculul expresiei primita in forma poloneza.
-		 */
-		int rezultat = 0;
-		Stack<Integer> numere = new Stack<Integer>();
-		
-		/*Se doreste descompunerea expresiei in token dupa spatii
-		 * (similar in modul in care a fost construita).
-		 */
-		StringTokenizer st = new StringTokenizer(formaPoloneza);
-		String variabila="";
-		
-		//Se incepe evaluarea expresiei.
-		while(st.hasMoreTokens()){
-			variabila=st.nextToken();
-			if(esteNumar(variabila)){
-				/*Daca se intalneste un numar intreg atunci acesta este
-				 * pus in stiva.
+	private int emite(Expresie expresie){
+		int adancime = 0, adancimeMaxima = 0;
+		int varf = 0;
+		deEmis[varf] = expresie;
+		stareEmitere[varf++] = INTRARE;
+		while(varf>0){
+			Expresie nod = deEmis[--varf];
+			int stare = stareEmitere[varf];
+			deEmis[varf] = null;
+			if(stare==INTRARE){
+				//Numerele nodurilor sunt date in preordine, deci se consuma la intrarea in nod.
+				int inceput = FARA_SUBEXPRESIE;
+				if(numereNoduri!=null){
+					int numar = numereNoduri[indiceNod++];
+					if(numerotare.merita(numar)){
+						adaugaCod(ExpresieCompilata.SUBEXPRESIE, numerotare.intrare(numar, nod));
+						adaugaCod(0);
+						inceput = lungimeCod;
+					}
+				}
+				if(varf+5>deEmis.length){
+					deEmis = Arrays.copyOf(deEmis, 2*deEmis.length);
+					stareEmitere = Arrays.copyOf(stareEmitere, 2*stareEmitere.length);
+				}
+				deEmis[varf] = nod;
+				stareEmitere[varf++] = inceput;
+				//Operanzii sunt pusi invers, pentru a fi scosi (si compilati) in ordinea a, b, c, d.
+				if(nod.d!=null) varf = puneOperand(varf, nod.d);
+				if(nod.c!=null) varf = puneOperand(varf, nod.c);
+				if(nod.b!=null) varf = puneOperand(varf, nod.b);
+				if(nod.a!=null) varf = puneOperand(varf, nod.a);
+				continue;
+			}
+			
+			switch(nod.tip){
+			case Expresie.NUMAR:
+				/*Numerele sunt puse in bazinul de constante. Valoarea exacta a celor ce nu incap
+				 * pe int este retinuta separat, pentru aritmetica exacta si cea cu eroare.
 				 */
-				numere.push(Integer.parseInt(variabila));
-			}else{
-				if(variabila.equals("+")){
-					/*La adunare (operator binar) se scot doua numere din varful stivei
-					 * si se pune in stiva suma lor. 
-					 */
-					int a=numere.pop();
-					int b=numere.pop();
-					numere.push(b+a);
-				}else if(variabila.equals("$")){
-					/*La adunare (operator unar) se scoate numarul din varful stivei
-					 * si se introduce acelasi numar in stiva.
-					 */
-					int a=numere.pop();
-					numere.push(+a);
-				}else if(variabila.equals("@")){
-					/*La scadere (operator unar) se scoate numarul din varful stivei
-					 * si se introduce opusul numarului respectiv in stiva.
-					 */
-					int a=numere.pop();
-					numere.push(-a);
-				}else if(variabila.equals("-")){
-					/*La scadere (operator binar) se scot doua numere din varful stivei
-					 * si se introduce diferenta dintre cele doua in stiva.
-					 */
-					int a=numere.pop();
-					int b=numere.pop();
-					numere.push(b-a);
-				}else if(variabila.equals("*")){
-					/*La inmultire se scot doua numere din varful stivei si se introduce
-					 * in stiva produsul lor.
-					 */
-					int a=numere.pop();
-					int b=numere.pop();
-					numere.push(b*a);
-				}else if(variabila.equals("#")){
-					/*Cand se intalneste functia asociata operatorului ternar(#)
-					 * se scot 4 numere din stiva, se evalueaza expresia si se 
-					 * introduce rezultatul in stiva.
-					 */
-					int d = numere.pop();
-					int c = numere.pop();
-					int b = numere.pop();
-					int a = numere.pop();
-					if(a>b){
-						numere.push(c);
-					}else{
-						numere.push(d);
+				if(numarConstante==constante.length) constante = Arrays.copyOf(constante, numarConstante*2);
+				constante[numarConstante] = nod.valoare();
+				if(nod.text.length()>=10){
+					BigInteger valoare = nod.valoareExacta();
+					if(valoare.bitLength()>=32){
+						if(constanteMari==null) constanteMari = new BigInteger[constante.length];
+						if(constanteMari.length<constante.length) constanteMari = Arrays.copyOf(constanteMari, constante.length);
+						constanteMari[numarConstante] = valoare;
 					}
-				}else{
-					/*Daca s-a intalnit o variabila atunci se pune in stiva
-					 * valoarea asociata acesteia(aceasta se obtine din 
-					 * hashmap-ul tabel de valori).
-					 */
-					numere.push(hmTabelValori.get(variabila));
 				}
+				adaugaCod(ExpresieCompilata.CONSTANTA, numarConstante++);
+				adancimeMaxima = Math.max(adancimeMaxima, ++adancime);
+				break;
+			case Expresie.VARIABILA:
+				//Variabilele sunt inlocuite de slotul lor din tabelul de valori.
+				adaugaCod(ExpresieCompilata.VARIABILA, nod.slot);
+				adancimeMaxima = Math.max(adancimeMaxima, ++adancime);
+				break;
+			case Expresie.PLUS_UNAR:
+				//Adunarea unara nu modifica valoarea, deci nu genereaza cod.
+				break;
+			case Expresie.MINUS_UNAR:
+				adaugaCod(ExpresieCompilata.MINUS_UNAR);
+				break;
+			case Expresie.TERNAR:
+				//Operatorul ternar (A>B)?C:D consuma 4 valori din stiva.
+				adaugaCod(ExpresieCompilata.TERNAR);
+				adancime -= 3;
+				break;
+			default:
+				if(nod.tip==Expresie.ADUNARE) adaugaCod(ExpresieCompilata.ADUNARE);
+				if(nod.tip==Expresie.SCADERE) adaugaCod(ExpresieCompilata.SCADERE);
+				if(nod.tip==Expresie.INMULTIRE) adaugaCod(ExpresieCompilata.INMULTIRE);
+				adancime--;
+				break;
+			}
+			if(stare!=FARA_SUBEXPRESIE){
+				//Instructiunea SUBEXPRESIE (intrarea si lungimea codului incadrat) precede codul subarborelui.
+				adaugaCod(ExpresieCompilata.MEMOREAZA, cod[stare-2]);
+				cod[stare-1] = lungimeCod-stare;
+			}
+		}
+		return adancimeMaxima;
+	}
+	
+	private int puneOperand(int varf, Expresie operand){
+		deEmis[varf] = operand;
+		stareEmitere[varf] = INTRARE;
+		return varf+1;
+	}
+	
+	private void adaugaCod(int operatie){
+		if(lungimeCod==cod.length) cod = Arrays.copyOf(cod, lungimeCod*2);
+		cod[lungimeCod++] = operatie;
+	}
+	
+	private void adaugaCod(int operatie, int operand){
+		adaugaCod(operatie);
+		adaugaCod(operand);
+	}
+	
+	/**Metoda executa o expresie compilata pe o stiva de intregi primitivi
+	 * si intoarce rezultatul evaluarii acesteia.
+	 * @param expresie
+	 * Expresia compilata care se doreste evaluata.
+	 * @param v
+	 * Tabelul de valori ale variabilelor, indexat dupa slot.
+	 * @param s
+	 * Stiva de evaluare, de dimensiune cel putin egala cu adancimea necesara expresiei.
+	 * @return
+	 * Rezultatul evaluarii expresiei.
+	 */
+	static int executa(ExpresieCompilata expresie, int[] v, int[] s){
+		return executa(expresie, v, s, null);
+	}
+	
+	/**Metoda executa o expresie compilata ce poate contine subexpresii comune.
+	 * @param numerotare
+	 * Numerotarea valorilor in care sunt retinute valorile subexpresiilor comune
+	 * (poate fi null daca expresia a fost compilata fara subexpresii comune).
+	 */
+	static int executa(ExpresieCompilata expresie, int[] v, int[] s, NumerotareValori numerotare){
+		int[] cod = expresie.cod;
+		int[] constante = expresie.constante;
+		int varf = -1;
+		int pc = 0;
+		
+		while(pc<cod.length){
+			switch(cod[pc++]){
+			case ExpresieCompilata.CONSTANTA:
+				s[++varf] = constante[cod[pc++]];
+				break;
+			case ExpresieCompilata.VARIABILA:
+				s[++varf] = v[cod[pc++]];
+				break;
+			case ExpresieCompilata.ADUNARE:
+				varf--;
+				s[varf] = s[varf] + s[varf+1];
+				break;
+			case ExpresieCompilata.SCADERE:
+				varf--;
+				s[varf] = s[varf] - s[varf+1];
+				break;
+			case ExpresieCompilata.INMULTIRE:
+				varf--;
+				s[varf] = s[varf] * s[varf+1];
+				break;
+			case ExpresieCompilata.MINUS_UNAR:
+				s[varf] = -s[varf];
+				break;
+			case ExpresieCompilata.TERNAR:
+				/*Functia asociata operatorului ternar (#) consuma 4 valori:
+				 * (A>B)?C:D si lasa in stiva C sau D.
+				 */
+				varf-=3;
+				s[varf] = s[varf]>s[varf+1] ? s[varf+2] : s[varf+3];
+				break;
+			case ExpresieCompilata.SUBEXPRESIE:
+				//Daca valoarea retinuta este valabila se sare peste codul subexpresiei.
+				int intrare = cod[pc++];
+				int lungime = cod[pc++];
+				if(numerotare.valabila(intrare)){
+					s[++varf] = numerotare.valoare(intrare);
+					pc += lungime;
+				}
+				break;
+			case ExpresieCompilata.MEMOREAZA:
+				numerotare.memoreaza(cod[pc++], s[varf]);
+				break;
 			}
 		}
 		
 		/*La final va ramane doar un intreg in stiva care va reprezenta
-		 * rezultatul expresiei primite ca parametru.
+		 * rezultatul expresiei.
 		 */
-		rezultat=numere.pop();
-		return new Integer(rezultat);
+		return s[varf];
+	}
+	
+	/**Metoda primeste forma compilata a unei expresii si intoarce rezultatul evaluarii acesteia.
+	 * @param compilata
+	 * Forma compilata a expresiei care se doreste evaluata.
+	 * @return
+	 * Un intreg ce reprezinta rezultatul evaluarii expresiei.
+	 */
+	public int calculate(ExpresieCompilata compilata){
+		asiguraCapacitate();
+		//Stiva este refolosita de la o expresie la alta si creste doar cand este nevoie.
+		if(stiva.length<compilata.adancimeStiva){
+			stiva = new int[compilata.adancimeStiva];
+		}
+		return executa(compilata, valori, stiva, numerotare);
+	}
+	
+	/**Metoda primeste forma compilata a unei expresii si o evalueaza in aritmetica cu eroare.
+	 * @param compilata
+	 * Forma compilata a expresiei care se doreste evaluata.
+	 * @return
+	 * Rezultatul evaluarii expresiei sau DEPASIRE daca un rezultat intermediar nu incape pe int,
+	 * o constanta nu incape pe int sau expresia citeste o variabila fara valoare.
+	 */
+	public long calculateVerificat(ExpresieCompilata compilata){
+		asiguraCapacitate();
+		if(stiva.length<compilata.adancimeStiva){
+			stiva = new int[compilata.adancimeStiva];
+		}
+		if(numarNedefinite>0){
+			for(int slot : compilata.variabileCitite()){
+				if(nedefinite[slot]){
+					return DEPASIRE;
+				}
+			}
+		}
+		return executaVerificat(compilata, valori, stiva);
+	}
+	
+	/**Metoda primeste forma compilata a unei expresii si o evalueaza in aritmetica exacta.
+	 * @param compilata
+	 * Forma compilata a expresiei care se doreste evaluata.
+	 * @return
+	 * Rezultatul evaluarii expresiei daca incape pe long; altfel rezultatul este intors de
+	 * getRezultatMare, iar valoarea intoarsa este redusa modulo 2^64.
+	 */
+	public long calculateExact(ExpresieCompilata compilata){
+		asiguraCapacitate();
+		if(stiva.length<compilata.adancimeStiva){
+			stiva = new int[compilata.adancimeStiva];
+		}
+		if(stivaLunga.length<compilata.adancimeStiva){
+			stivaLunga = new long[compilata.adancimeStiva];
+			stivaMare = new BigInteger[compilata.adancimeStiva];
+		}
+		rezultatMare = null;
+		//Cat timp toate variabilele incap pe int, expresia se calculeaza intai pe int.
+		if(numarLate==0){
+			long rezultat = executaVerificat(compilata, valori, stiva);
+			if(rezultat!=DEPASIRE){
+				return rezultat;
+			}
+		}
+		return executaExact(compilata);
+	}
+	
+	/**Metoda intoarce rezultatul ultimei evaluari exacte daca acesta nu incape pe long.
+	 * @return
+	 * Rezultatul sau null daca acesta incape pe long.
+	 */
+	public BigInteger getRezultatMare(){
+		return rezultatMare;
+	}
+	
+	/**Metoda executa o expresie compilata (fara subexpresii comune) pe o stiva de intregi
+	 * primitivi, verificand ca fiecare rezultat intermediar incape pe int. Operatiile se fac
+	 * pe long, iar rezultatul se compara cu trunchierea lui la int; astfel cazul obisnuit nu
+	 * plateste costul unei exceptii.
+	 * @return
+	 * Rezultatul evaluarii expresiei sau DEPASIRE daca un rezultat intermediar sau o constanta
+	 * nu incape pe int.
+	 */
+	static long executaVerificat(ExpresieCompilata expresie, int[] v, int[] s){
+		if(expresie.constanteMari!=null){
+			return DEPASIRE;
+		}
+		int[] cod = expresie.cod;
+		int[] constante = expresie.constante;
+		int varf = -1;
+		int pc = 0;
+		long rezultat;
+		
+		while(pc<cod.length){
+			switch(cod[pc++]){
+			case ExpresieCompilata.CONSTANTA:
+				s[++varf] = constante[cod[pc++]];
+				break;
+			case ExpresieCompilata.VARIABILA:
+				s[++varf] = v[cod[pc++]];
+				break;
+			case ExpresieCompilata.ADUNARE:
+				varf--;
+				rezultat = (long)s[varf] + s[varf+1];
+				if(rezultat!=(int)rezultat) return DEPASIRE;
+				s[varf] = (int)rezultat;
+				break;
+			case ExpresieCompilata.SCADERE:
+				varf--;
+				rezultat = (long)s[varf] - s[varf+1];
+				if(rezultat!=(int)rezultat) return DEPASIRE;
+				s[varf] = (int)rezultat;
+				break;
+			case ExpresieCompilata.INMULTIRE:
+				varf--;
+				rezultat = (long)s[varf] * s[varf+1];
+				if(rezultat!=(int)rezultat) return DEPASIRE;
+				s[varf] = (int)rezultat;
+				break;
+			case ExpresieCompilata.MINUS_UNAR:
+				if(s[varf]==Integer.MIN_VALUE) return DEPASIRE;
+				s[varf] = -s[varf];
+				break;
+			case ExpresieCompilata.TERNAR:
+				varf-=3;
+				s[varf] = s[varf]>s[varf+1] ? s[varf+2] : s[varf+3];
+				break;
+			}
+		}
+		return s[varf];
+	}
+	
+	/**Metoda executa o expresie compilata (fara subexpresii comune) pe long, folosind
+	 * Math.*Exact; o valoare ce nu incape pe long este trecuta, impreuna cu operatiile ce o
+	 * folosesc, pe BigInteger. Rezultatul ramane la baza stivei.
+	 */
+	private long executaExact(ExpresieCompilata expresie){
+		int[] cod = expresie.cod;
+		int[] constante = expresie.constante;
+		BigInteger[] constanteMari = expresie.constanteMari;
+		long[] s = stivaLunga;
+		BigInteger[] m = stivaMare;
+		int varf = -1;
+		int pc = 0;
+		
+		while(pc<cod.length){
+			switch(cod[pc++]){
+			case ExpresieCompilata.CONSTANTA:
+				int indice = cod[pc++];
+				varf++;
+				if(constanteMari!=null && constanteMari[indice]!=null){
+					pune(varf, constanteMari[indice]);
+				}else{
+					s[varf] = constante[indice];
+					m[varf] = null;
+				}
+				break;
+			case ExpresieCompilata.VARIABILA:
+				int slot = cod[pc++];
+				varf++;
+				s[varf] = valoriLungi[slot];
+				m[varf] = valoriMari[slot];
+				break;
+			case ExpresieCompilata.ADUNARE:
+				varf--;
+				if(m[varf]==null && m[varf+1]==null){
+					try{
+						s[varf] = Math.addExact(s[varf], s[varf+1]);
+						break;
+					}catch(ArithmeticException e){
+						//Rezultatul nu incape pe long si se calculeaza ca BigInteger.
+					}
+				}
+				pune(varf, mare(varf).add(mare(varf+1)));
+				break;
+			case ExpresieCompilata.SCADERE:
+				varf--;
+				if(m[varf]==null && m[varf+1]==null){
+					try{
+						s[varf] = Math.subtractExact(s[varf], s[varf+1]);
+						break;
+					}catch(ArithmeticException e){
+						//Rezultatul nu incape pe long si se calculeaza ca BigInteger.
+					}
+				}
+				pune(varf, mare(varf).subtract(mare(varf+1)));
+				break;
+			case ExpresieCompilata.INMULTIRE:
+				varf--;
+				if(m[varf]==null && m[varf+1]==null){
+					try{
+						s[varf] = Math.multiplyExact(s[varf], s[varf+1]);
+						break;
+					}catch(ArithmeticException e){
+						//Rezultatul nu incape pe long si se calculeaza ca BigInteger.
+					}
+				}
+				pune(varf, mare(varf).multiply(mare(varf+1)));
+				break;
+			case ExpresieCompilata.MINUS_UNAR:
+				if(m[varf]==null){
+					try{
+						s[varf] = Math.negateExact(s[varf]);
+						break;
+					}catch(ArithmeticException e){
+						//Opusul lui Long.MIN_VALUE nu incape pe long.
+					}
+				}
+				pune(varf, mare(varf).negate());
+				break;
+			case ExpresieCompilata.TERNAR:
+				varf-=3;
+				boolean conditie;
+				if(m[varf]==null && m[varf+1]==null){
+					conditie = s[varf]>s[varf+1];
+				}else{
+					conditie = mare(varf).compareTo(mare(varf+1))>0;
+				}
+				int ales = conditie ? varf+2 : varf+3;
+				s[varf] = s[ales];
+				m[varf] = m[ales];
+				break;
+			}
+		}
+		rezultatMare = m[varf];
+		return s[varf];
+	}
+	
+	/**Metoda intoarce valoarea exacta a unei pozitii din stiva exacta.
+	 */
+	private BigInteger mare(int pozitie){
+		return stivaMare[pozitie]!=null ? stivaMare[pozitie] : BigInteger.valueOf(stivaLunga[pozitie]);
+	}
+	
+	/**Metoda pune o valoare exacta pe o pozitie din stiva exacta; valorile ce incap pe long
+	 * revin pe long.
+	 */
+	private void pune(int pozitie, BigInteger valoare){
+		stivaLunga[pozitie] = valoare.longValue();
+		stivaMare[pozitie] = valoare.bitLength()<64 ? null : valoare;
+	}
+	
+	/**Metoda mareste tabelul de valori odata cu tabela de simboluri.
+	 */
+	private void asiguraCapacitate(){
+		if(valori.length<tabela.numarSimboli()){
+			valori = Arrays.copyOf(valori, Math.max(tabela.numarSimboli(), 2*valori.length));
+			if(valoriLungi!=null){
+				valoriLungi = Arrays.copyOf(valoriLungi, valori.length);
+				valoriMari = Arrays.copyOf(valoriMari, valori.length);
+			}
+			if(nedefinite!=null){
+				nedefinite = Arrays.copyOf(nedefinite, valori.length);
+			}
+		}
 	}
 }
@@ -0,0 +1,155 @@
+package Interpretor;
+
+import java.util.Arrays;
+
+/**Clasa evalueaza o singura expresie compilata pentru multe randuri de date deodata: fiecare
+ * variabila libera primeste o coloana (int[]) cu valorile ei pe fiecare rand, iar rezultatul
+ * este tot o coloana. Randurile sunt prelucrate in blocuri de RANDURI_BLOC: fiecare cod de operatie
+ * se aplica unui bloc intreg (stiva contine blocuri, nu valori), astfel incat interpretarea codului
+ * se face o data pe bloc, iar calculul propriu-zis sunt bucle simple peste vectori.
+ * <p>
+ * Buclele sunt scalare si simple, astfel incat compilatorul C2 le vectorizeaza automat; operatorul
+ * ternar este o selectie, fara salturi. Un obiect EvaluatorColoane nu poate fi folosit simultan
+ * de mai multe fire de executie.
+ */
+public class EvaluatorColoane {
+
+	//Numarul de randuri prelucrate deodata de fiecare cod de operatie.
+	private static final int RANDURI_BLOC = 1024;
+
+	private final ExpresieCompilata expresie;
+	private final int[] variabile;
+	private final int[][] stiva;
+
+	/**Constructorul pregateste evaluarea unei expresii compilate.
+	 * @param expresie
+	 * Forma compilata a expresiei (subexpresiile comune, daca exista, sunt calculate din nou pentru fiecare rand).
+	 */
+	public EvaluatorColoane(ExpresieCompilata expresie){
+		this.expresie=expresie;
+		//O variabila citita de mai multe ori are o singura coloana.
+		int[] citite = expresie.variabileCitite();
+		Arrays.sort(citite);
+		int numar = 0;
+		for(int k=0; k<citite.length; k++){
+			if(numar==0 || citite[k]!=citite[numar-1]){
+				citite[numar++] = citite[k];
+			}
+		}
+		this.variabile=Arrays.copyOf(citite, numar);
+		stiva = new int[Math.max(expresie.adancimeStiva, 1)][RANDURI_BLOC];
+	}
+
+	/**Metoda analizeaza sintactic si compileaza o expresie.
+	 * @param expresie
+	 * Textul expresiei (membrul drept al unei instructiuni).
+	 * @param tabela
+	 * Tabela de simboluri in care sunt internate variabilele expresiei; sloturile lor
+	 * sunt indicii coloanelor primite de evalueaza.
+	 * @return
+	 * Evaluatorul expresiei.
+	 */
+	public static EvaluatorColoane compileaza(String expresie, TabelaSimboli tabela){
+		return new EvaluatorColoane(new Evaluator(tabela).compile(new AnalizatorSintactic(tabela).parseaza(expresie)));
+	}
+
+	/**Metoda intoarce sloturile variabilelor libere ale expresiei, pentru care trebuie date coloane.
+	 * @return
+	 * Sloturile distincte ale variabilelor, in ordine crescatoare (fiecare slot apare o singura data,
+	 * oricate ori ar fi citita variabila).
+	 */
+	public int[] getVariabile(){
+		return variabile.clone();
+	}
+
+	/**Metoda evalueaza expresia pentru fiecare rand.
+	 * @param coloane
+	 * Coloanele variabilelor, indexate dupa slot; fiecare coloana necesara are cel putin numarRanduri valori.
+	 * @param numarRanduri
+	 * Numarul de randuri evaluate.
+	 * @return
+	 * Coloana rezultatelor, cu numarRanduri valori.
+	 */
+	public int[] evalueaza(int[][] coloane, int numarRanduri){
+		for(int slot : variabile){
+			if(slot>=coloane.length || coloane[slot]==null || coloane[slot].length<numarRanduri){
+				throw new IllegalArgumentException("Lipseste coloana variabilei cu slotul " + slot + " sau are mai putin de " + numarRanduri + " valori.");
+			}
+		}
+		int[] rezultat = new int[numarRanduri];
+		for(int inceput=0; inceput<numarRanduri; inceput+=RANDURI_BLOC){
+			int n = Math.min(RANDURI_BLOC, numarRanduri-inceput);
+			evalueazaBloc(coloane, inceput, n);
+			System.arraycopy(stiva[0], 0, rezultat, inceput, n);
+		}
+		return rezultat;
+	}
+
+	/**Metoda executa codul expresiei pe un bloc de randuri; rezultatul ramane in stiva[0].
+	 */
+	private void evalueazaBloc(int[][] coloane, int inceput, int n){
+		int[] cod = expresie.cod;
+		int[][] s = stiva;
+		int varf = -1;
+		int pc = 0;
+
+		while(pc<cod.length){
+			switch(cod[pc++]){
+			case ExpresieCompilata.CONSTANTA:
+				Arrays.fill(s[++varf], 0, n, expresie.constante[cod[pc++]]);
+				break;
+			case ExpresieCompilata.VARIABILA:
+				System.arraycopy(coloane[cod[pc++]], inceput, s[++varf], 0, n);
+				break;
+			case ExpresieCompilata.ADUNARE:
+				varf--;
+				adunare(s[varf], s[varf+1], n);
+				break;
+			case ExpresieCompilata.SCADERE:
+				varf--;
+				scadere(s[varf], s[varf+1], n);
+				break;
+			case ExpresieCompilata.INMULTIRE:
+				varf--;
+				inmultire(s[varf], s[varf+1], n);
+				break;
+			case ExpresieCompilata.MINUS_UNAR:
+				minus(s[varf], n);
+				break;
+			case ExpresieCompilata.TERNAR:
+				varf-=3;
+				ternar(s[varf], s[varf+1], s[varf+2], s[varf+3], n);
+				break;
+			case ExpresieCompilata.SUBEXPRESIE:
+				//Valorile retinute apartin evaluarii pe linii; aici subexpresia se calculeaza mereu.
+				pc += 2;
+				break;
+			case ExpresieCompilata.MEMOREAZA:
+				pc++;
+				break;
+			}
+		}
+	}
+
+	private static void adunare(int[] a, int[] b, int n){
+		for(int i=0; i<n; i++) a[i] += b[i];
+	}
+
+	private static void scadere(int[] a, int[] b, int n){
+		for(int i=0; i<n; i++) a[i] -= b[i];
+	}
+
+	private static void inmultire(int[] a, int[] b, int n){
+		for(int i=0; i<n; i++) a[i] *= b[i];
+	}
+
+	private static void minus(int[] a, int n){
+		for(int i=0; i<n; i++) a[i] = -a[i];
+	}
+
+	/**a[i] = a[i]>b[i] ? c[i] : d[i]
+	 */
+	private static void ternar(int[] a, int[] b, int[] c, int[] d, int n){
+		for(int i=0; i<n; i++) a[i] = a[i]>b[i] ? c[i] : d[i];
+	}
+}
@@ -0,0 +1,174 @@
+package Interpretor;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**Clasa evalueaza instructiunile unui script pe mai multe fire de executie. Se construieste
+ * graful dependentelor dintre linii (def-use), cu trei tipuri de muchii:
+ * <ul>
+ * <li>citire dupa scriere: linia citeste o variabila scrisa de o linie anterioara;</li>
+ * <li>scriere dupa citire: linia redefineste o variabila citita de o linie anterioara;</li>
+ * <li>scriere dupa scriere: linia redefineste o variabila scrisa de o linie anterioara.</li>
+ * </ul>
+ * Liniile sunt grupate pe niveluri (nivelul unei linii este lungimea celui mai lung drum din
+ * graf ce se termina in ea), astfel incat liniile de pe acelasi nivel sunt independente si
+ * pot fi evaluate simultan intr-un ForkJoinPool, nivel dupa nivel.
+ */
+public class EvaluatorParalel {
+
+	//Numarul minim de linii evaluate de o singura sarcina.
+	private static final int PRAG_SARCINA = 256;
+
+	private final ForkJoinPool bazin;
+
+	//Pentru fiecare linie: slotul variabilei atribuite (-1 pentru liniile necalculabile) si codul expresiei.
+	private int numarLinii = 0;
+	private int[] sloturi = new int[1024];
+	private ExpresieCompilata[] coduri = new ExpresieCompilata[1024];
+
+	/**Constructorul creeaza bazinul de fire de executie.
+	 * @param numarFire
+	 * Numarul de fire de executie folosite la evaluare.
+	 */
+	public EvaluatorParalel(int numarFire){
+		bazin = new ForkJoinPool(numarFire);
+	}
+
+	/**Metoda retine o linie a scriptului, in ordinea din fisier.
+	 * @param slot
+	 * Slotul variabilei careia i se face atribuirea sau -1 daca linia nu se poate evalua.
+	 * @param cod
+	 * Forma compilata a expresiei (null daca linia nu se poate evalua).
+	 */
+	public void adauga(int slot, ExpresieCompilata cod){
+		if(numarLinii==sloturi.length){
+			sloturi = Arrays.copyOf(sloturi, 2*numarLinii);
+			coduri = Arrays.copyOf(coduri, 2*numarLinii);
+		}
+		sloturi[numarLinii] = slot;
+		coduri[numarLinii] = cod;
+		numarLinii++;
+	}
+
+	public int numarLinii(){
+		return numarLinii;
+	}
+
+	public int slot(int linie){
+		return sloturi[linie];
+	}
+
+	/**Metoda evalueaza toate liniile retinute, nivel cu nivel, si actualizeaza tabelul de valori.
+	 * @param valori
+	 * Tabelul de valori ale variabilelor, indexat dupa slot.
+	 * @return
+	 * Rezultatul fiecarei linii (nedefinit pentru liniile necalculabile).
+	 */
+	public int[] evalueaza(int[] valori){
+		int[] rezultate = new int[numarLinii];
+
+		/*Se calculeaza nivelul fiecarei linii intr-o singura trecere, retinand pentru fiecare
+		 * variabila nivelul ultimei linii care a scris-o si cel mai mare nivel al unei linii
+		 * care a citit-o de la ultima scriere.
+		 */
+		int[] nivelScriere = new int[valori.length];
+		int[] nivelCitire = new int[valori.length];
+		int[] nivel = new int[numarLinii];
+		int numarNiveluri = 0;
+		int adancimeStiva = 1;
+		for(int i=0; i<numarLinii; i++){
+			if(coduri[i]==null) continue;
+			int[] citite = coduri[i].variabileCitite();
+			int slot = sloturi[i];
+
+			//Muchiile scriere dupa scriere si scriere dupa citire.
+			int n = Math.max(nivelScriere[slot], nivelCitire[slot]);
+			//Muchiile citire dupa scriere.
+			for(int variabila : citite){
+				n = Math.max(n, nivelScriere[variabila]);
+			}
+			nivel[i] = n+1;
+
+			for(int variabila : citite){
+				nivelCitire[variabila] = Math.max(nivelCitire[variabila], nivel[i]);
+			}
+			nivelScriere[slot] = nivel[i];
+			nivelCitire[slot] = 0;
+
+			numarNiveluri = Math.max(numarNiveluri, nivel[i]);
+			adancimeStiva = Math.max(adancimeStiva, coduri[i].adancimeStiva);
+		}
+
+		//Liniile sunt sortate dupa nivel (sortare prin numarare), pastrand ordinea din fisier.
+		int[] inceputNivel = new int[numarNiveluri+2];
+		for(int i=0; i<numarLinii; i++){
+			if(coduri[i]!=null) inceputNivel[nivel[i]+1]++;
+		}
+		for(int k=1; k<inceputNivel.length; k++){
+			inceputNivel[k] += inceputNivel[k-1];
+		}
+		int[] ordine = new int[inceputNivel[numarNiveluri+1]];
+		int[] urmator = Arrays.copyOf(inceputNivel, inceputNivel.length);
+		for(int i=0; i<numarLinii; i++){
+			if(coduri[i]!=null) ordine[urmator[nivel[i]]++] = i;
+		}
+
+		//Nivelurile sunt evaluate in ordine, iar liniile de pe fiecare nivel in paralel.
+		for(int k=1; k<=numarNiveluri; k++){
+			bazin.invoke(new Sarcina(coduri, sloturi, ordine, inceputNivel[k], inceputNivel[k+1], valori, rezultate, adancimeStiva));
+		}
+		return rezultate;
+	}
+
+	/**Metoda opreste firele de executie ale bazinului.
+	 */
+	public void close(){
+		bazin.shutdown();
+	}
+
+	/**Sarcina ce evalueaza un interval de linii de pe acelasi nivel, impartindu-l
+	 * in doua atata timp cat este suficient de mare.
+	 */
+	private static class Sarcina extends RecursiveAction{
+		private static final long serialVersionUID = 1L;
+
+		private final ExpresieCompilata[] coduri;
+		private final int[] sloturi;
+		private final int[] ordine;
+		private final int inceput, sfarsit;
+		private final int[] valori;
+		private final int[] rezultate;
+		private final int adancimeStiva;
+
+		Sarcina(ExpresieCompilata[] coduri, int[] sloturi, int[] ordine, int inceput, int sfarsit, int[] valori, int[] rezultate, int adancimeStiva){
+			this.coduri=coduri;
+			this.sloturi=sloturi;
+			this.ordine=ordine;
+			this.inceput=inceput;
+			this.sfarsit=sfarsit;
+			this.valori=valori;
+			this.rezultate=rezultate;
+			this.adancimeStiva=adancimeStiva;
+		}
+
+		@Override
+		protected void compute(){
+			if(sfarsit-inceput>PRAG_SARCINA){
+				int mijloc = (inceput+sfarsit)>>>1;
+				invokeAll(new Sarcina(coduri, sloturi, ordine, inceput, mijloc, valori, rezultate, adancimeStiva),
+						new Sarcina(coduri, sloturi, ordine, mijloc, sfarsit, valori, rezultate, adancimeStiva));
+				return;
+			}
+
+			//Fiecare sarcina isi foloseste propria stiva de evaluare.
+			int[] stiva = new int[adancimeStiva];
+			for(int k=inceput; k<sfarsit; k++){
+				int linie = ordine[k];
+				int rezultat = Evaluator.executa(coduri[linie], valori, stiva);
+				rezultate[linie] = rezultat;
+				valori[sloturi[linie]] = rezultat;
+			}
+		}
+	}
+}
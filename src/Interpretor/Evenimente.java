@@ -0,0 +1,114 @@
+package Interpretor;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**Clasa grupeaza evenimentele JDK Flight Recorder emise de interpretor. Evenimentele sunt
+ * dezactivate implicit si se activeaza dintr-o configuratie de inregistrare, de exemplu:
+ * <pre>
+ * java -XX:StartFlightRecording:filename=rulare.jfr,+Interpretor.LinieInterpretata#enabled=true ...
+ * </pre>
+ * Evenimentele nu sunt activate nici de configuratiile default si profile ale JDK-ului, pentru
+ * ca o inregistrare obisnuita sa nu primeasca un eveniment pentru fiecare linie. Cat timp un
+ * eveniment este dezactivat, crearea lui este eliminata de compilatorul JIT, iar
+ * campurile sale nu se calculeaza (se verifica intai shouldCommit). Pragul threshold al
+ * configuratiei retine doar liniile lente, ceea ce permite gasirea liniilor patologice.
+ */
+public class Evenimente {
+
+	/**Evenimentul unei linii aplicate de interpretor; durata lui acopera toate etapele liniei
+	 * executate pe firul principal.
+	 */
+	@Name("Interpretor.LinieInterpretata")
+	@Label("Linie interpretata")
+	@Category("Interpretor")
+	@Description("O linie a fisierului, de la analiza sintactica la scrierea rezultatului")
+	@StackTrace(false)
+	@Enabled(false)
+	public static class LinieInterpretata extends Event{
+		@Label("Linie")
+		int linie;
+
+		@Label("Variabila")
+		String variabila;
+
+		@Label("Lungime expresie")
+		@Description("Numarul de noduri (operanzi si operatori) ale membrului drept")
+		int lungimeExpresie;
+
+		@Label("Inaltime arbore")
+		int inaltimeArbore;
+
+		@Label("Eronata")
+		@Description("Linia nu a trecut analiza semantica")
+		boolean eronata;
+
+		@Label("Analiza sintactica")
+		@Description("Zero daca linia a fost analizata pe un fir de lucru sau luata din fisierul precompilat")
+		@Timespan(Timespan.NANOSECONDS)
+		long durataSintactica;
+
+		@Label("Analiza semantica")
+		@Timespan(Timespan.NANOSECONDS)
+		long durataSemantica;
+
+		@Label("Compilare")
+		@Description("Zero daca forma compilata a fost gasita in cache")
+		@Timespan(Timespan.NANOSECONDS)
+		long durataCompilare;
+
+		@Label("Evaluare")
+		@Timespan(Timespan.NANOSECONDS)
+		long durataEvaluare;
+	}
+
+	/**Evenimentul evaluarii unei expresii compilate de catre interpretorul pe stiva.
+	 */
+	@Name("Interpretor.ExpresieEvaluata")
+	@Label("Expresie evaluata")
+	@Category("Interpretor")
+	@Description("Executia formei compilate a unei expresii si scrierea rezultatului")
+	@StackTrace(false)
+	@Enabled(false)
+	public static class ExpresieEvaluata extends Event{
+		@Label("Variabila")
+		String variabila;
+
+		@Label("Valoare")
+		@Description("Textul valorii, ce poate depasi int in aritmetica exacta")
+		String valoare;
+
+		@Label("Depasire")
+		@Description("Calculul a depasit int: linie eronata sau, in aritmetica exacta, rezultat mai mare decat int")
+		boolean depasire;
+
+		@Label("Lungime cod")
+		int lungimeCod;
+
+		@Label("Adancime stiva")
+		int adancimeStiva;
+	}
+
+	/**Evenimentul construirii afisarii arborelui de parsare al unei expresii.
+	 */
+	@Name("Interpretor.ArboreAfisat")
+	@Label("Arbore afisat")
+	@Category("Interpretor")
+	@Description("Construirea textului scris in fisierul pt pentru o expresie")
+	@StackTrace(false)
+	@Enabled(false)
+	public static class ArboreAfisat extends Event{
+		@Label("Inaltime arbore")
+		int inaltimeArbore;
+
+		@Label("Lungime afisare")
+		@Description("Numarul de caractere ale afisarii")
+		int lungimeAfisare;
+	}
+}
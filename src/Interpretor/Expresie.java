@@ -0,0 +1,199 @@
+package Interpretor;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+
+/**Clasa modeleaza un nod din arborele sintactic abstract al unei expresii, construit
+ * o singura data de analizatorul sintactic si parcurs apoi de analiza semantica,
+ * de arborele de parsare si de evaluator.
+ */
+public class Expresie {
+
+	//Tipurile de noduri.
+	public static final int NUMAR = 0;
+	public static final int VARIABILA = 1;
+	public static final int ADUNARE = 2;
+	public static final int SCADERE = 3;
+	public static final int INMULTIRE = 4;
+	public static final int PLUS_UNAR = 5;
+	public static final int MINUS_UNAR = 6;
+	public static final int TERNAR = 7;
+
+	final int tip;
+
+	//Textul numarului sau numele variabilei (doar pentru frunze).
+	final String text;
+
+	//Coloana (numerotata de la 1) la care incepe operandul in membrul drept (doar pentru frunze).
+	final int coloana;
+
+	//Slotul variabilei din tabela de simboluri (doar pentru variabile, altfel -1).
+	final int slot;
+
+	/*Operanzii nodului: a si b pentru operatorii binari, a pentru cei unari,
+	 * iar pentru operatorul ternar (A>B)?C:D toti patru.
+	 */
+	final Expresie a, b, c, d;
+
+	private Expresie(int tip, String text, int coloana, int slot, Expresie a, Expresie b, Expresie c, Expresie d){
+		this.tip=tip;
+		this.text=text;
+		this.coloana=coloana;
+		this.slot=slot;
+		this.a=a;
+		this.b=b;
+		this.c=c;
+		this.d=d;
+	}
+
+	/**Metoda creeaza o frunza pentru un numar.
+	 * @param text
+	 * Textul numarului.
+	 * @param coloana
+	 * Coloana la care apare numarul in membrul drept.
+	 * @return
+	 * Nodul creat.
+	 */
+	public static Expresie numar(String text, int coloana){
+		return new Expresie(NUMAR, text, coloana, -1, null, null, null, null);
+	}
+
+	/**Metoda creeaza o frunza pentru o variabila.
+	 * @param nume
+	 * Numele variabilei (internat in tabela de simboluri).
+	 * @param slot
+	 * Slotul variabilei din tabela de simboluri.
+	 * @param coloana
+	 * Coloana la care apare variabila in membrul drept.
+	 * @return
+	 * Nodul creat.
+	 */
+	public static Expresie variabila(String nume, int slot, int coloana){
+		return new Expresie(VARIABILA, nume, coloana, slot, null, null, null, null);
+	}
+
+	/**Metoda creeaza un nod pentru un operator unar.
+	 * @param tip
+	 * PLUS_UNAR sau MINUS_UNAR.
+	 * @param a
+	 * Operandul.
+	 * @return
+	 * Nodul creat.
+	 */
+	public static Expresie unar(int tip, Expresie a){
+		return new Expresie(tip, null, 0, -1, a, null, null, null);
+	}
+
+	/**Metoda creeaza un nod pentru un operator binar.
+	 * @param tip
+	 * ADUNARE, SCADERE sau INMULTIRE.
+	 * @param a
+	 * Operandul stang.
+	 * @param b
+	 * Operandul drept.
+	 * @return
+	 * Nodul creat.
+	 */
+	public static Expresie binar(int tip, Expresie a, Expresie b){
+		return new Expresie(tip, null, 0, -1, a, b, null, null);
+	}
+
+	/**Metoda creeaza un nod pentru operatorul ternar (A&gt;B)?C:D.
+	 * @return
+	 * Nodul creat.
+	 */
+	public static Expresie ternar(Expresie a, Expresie b, Expresie c, Expresie d){
+		return new Expresie(TERNAR, null, 0, -1, a, b, c, d);
+	}
+
+	/**Metoda intoarce valoarea unui numar pe int; un numar ce nu incape pe int este redus
+	 * modulo 2^32, ca in aritmetica modulara a evaluatorului.
+	 * @return
+	 * Valoarea numarului.
+	 */
+	public int valoare(){
+		//Numerele de cel mult 9 caractere incap intotdeauna pe int.
+		if(text.length()<10) return Integer.parseInt(text);
+		return valoareExacta().intValue();
+	}
+
+	/**Metoda intoarce valoarea exacta a unui numar, oricat de mare ar fi.
+	 * @return
+	 * Valoarea numarului.
+	 */
+	public BigInteger valoareExacta(){
+		return new BigInteger(text);
+	}
+
+	/**Metoda stabileste daca nodul este frunza (numar sau variabila).
+	 * @return
+	 * true pentru numere si variabile.
+	 */
+	public boolean esteOperand(){
+		return tip==NUMAR || tip==VARIABILA;
+	}
+
+	/**Metoda intoarce sloturile distincte ale variabilelor din subarbore.
+	 * @return
+	 * Sloturile variabilelor citite, in ordine crescatoare.
+	 */
+	public int[] variabile(){
+		BitSet sloturi = new BitSet();
+		ArrayDeque<Expresie> deVizitat = new ArrayDeque<Expresie>();
+		deVizitat.push(this);
+		while(!deVizitat.isEmpty()){
+			Expresie nod = deVizitat.pop();
+			if(nod.tip==VARIABILA) sloturi.set(nod.slot);
+			nod.adaugaFii(deVizitat);
+		}
+		return sloturi.stream().toArray();
+	}
+
+	/**Metoda intoarce numarul de noduri (operanzi si operatori) ale subarborelui.
+	 */
+	public int numarNoduri(){
+		int numar = 0;
+		ArrayDeque<Expresie> deVizitat = new ArrayDeque<Expresie>();
+		deVizitat.push(this);
+		while(!deVizitat.isEmpty()){
+			numar++;
+			deVizitat.pop().adaugaFii(deVizitat);
+		}
+		return numar;
+	}
+
+	/**Metoda intoarce inaltimea subarborelui (1 pentru o frunza), parcurgand arborele nivel cu nivel.
+	 */
+	public int inaltime(){
+		int inaltime = 0;
+		ArrayDeque<Expresie> nivel = new ArrayDeque<Expresie>();
+		ArrayDeque<Expresie> urmator = new ArrayDeque<Expresie>();
+		nivel.push(this);
+		while(!nivel.isEmpty()){
+			inaltime++;
+			for(Expresie nod : nivel){
+				nod.adaugaFii(urmator);
+			}
+			ArrayDeque<Expresie> parcurs = nivel;
+			nivel = urmator;
+			urmator = parcurs;
+			urmator.clear();
+		}
+		return inaltime;
+	}
+
+	/**Metoda pune operanzii nodului intr-o stiva de noduri de parcurs, in ordine inversa, astfel
+	 * incat sa fie scosi din stiva in ordinea in care apar in linie (a, b, c, d). Parcurgerile
+	 * arborelui folosesc o stiva explicita, nu recursivitatea, pentru ca o expresie foarte lunga
+	 * (un lant de mii de termeni) sa nu depaseasca stiva firului de executie.
+	 * @param stiva
+	 * Stiva nodurilor de parcurs.
+	 */
+	void adaugaFii(ArrayDeque<Expresie> stiva){
+		if(d!=null) stiva.push(d);
+		if(c!=null) stiva.push(c);
+		if(b!=null) stiva.push(b);
+		if(a!=null) stiva.push(a);
+	}
+}
@@ -0,0 +1,77 @@
+package Interpretor;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**Clasa modeleaza forma compilata a unei expresii, executabila de catre o masina cu stiva:
+ * un vector de coduri de operatie, un bazin de constante si referinte catre sloturile variabilelor.
+ */
+public class ExpresieCompilata {
+
+	/*Codurile de operatie ale masinii cu stiva. CONSTANTA este urmata in vectorul
+	 * de cod de indicele constantei din bazin, iar VARIABILA de slotul variabilei.
+	 * SUBEXPRESIE este urmata de indicele intrarii din numerotarea valorilor si de lungimea
+	 * codului subexpresiei (sarit daca valoarea retinuta este valabila), iar MEMOREAZA,
+	 * aflata la finalul codului subexpresiei, de indicele intrarii.
+	 */
+	public static final int CONSTANTA = 0;
+	public static final int VARIABILA = 1;
+	public static final int ADUNARE = 2;
+	public static final int SCADERE = 3;
+	public static final int INMULTIRE = 4;
+	public static final int MINUS_UNAR = 5;
+	public static final int TERNAR = 6;
+	public static final int SUBEXPRESIE = 7;
+	public static final int MEMOREAZA = 8;
+
+	final int[] cod;
+	final int[] constante;
+	/*Valorile exacte ale constantelor ce nu incap pe int (null daca toate incap); in bazinul
+	 * constante aceste constante apar reduse modulo 2^32.
+	 */
+	final BigInteger[] constanteMari;
+	final int adancimeStiva;
+
+	/**Constructorul retine forma compilata a expresiei.
+	 * @param cod
+	 * Vectorul de coduri de operatie (impreuna cu operanzii lor).
+	 * @param constante
+	 * Bazinul de constante la care fac referire instructiunile CONSTANTA.
+	 * @param adancimeStiva
+	 * Adancimea maxima a stivei necesara evaluarii expresiei.
+	 */
+	public ExpresieCompilata(int[] cod, int[] constante, int adancimeStiva){
+		this(cod, constante, null, adancimeStiva);
+	}
+
+	/**Constructorul retine forma compilata a unei expresii ce poate contine constante mai mari decat int.
+	 * @param constanteMari
+	 * Valorile exacte ale constantelor ce nu incap pe int, la indicii lor din bazin (null daca nu exista).
+	 */
+	public ExpresieCompilata(int[] cod, int[] constante, BigInteger[] constanteMari, int adancimeStiva){
+		this.cod=cod;
+		this.constante=constante;
+		this.constanteMari=constanteMari;
+		this.adancimeStiva=adancimeStiva;
+	}
+
+	/**Metoda intoarce sloturile variabilelor citite de expresie (o variabila poate aparea
+	 * de mai multe ori).
+	 * @return
+	 * Sloturile variabilelor, in ordinea in care sunt citite.
+	 */
+	public int[] variabileCitite(){
+		int numar = 0;
+		int[] sloturi = new int[cod.length/2];
+		for(int pc=0; pc<cod.length; pc++){
+			if(cod[pc]==VARIABILA){
+				sloturi[numar++] = cod[++pc];
+			}else if(cod[pc]==CONSTANTA || cod[pc]==MEMOREAZA){
+				pc++;
+			}else if(cod[pc]==SUBEXPRESIE){
+				pc+=2;
+			}
+		}
+		return Arrays.copyOf(sloturi, numar);
+	}
+}
@@ -0,0 +1,49 @@
+package Interpretor;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**Clasa numara octetii scrisi intr-un fisier de output. Daca are metrici asociate, masoara
+ * si durata fiecarei scrieri in fisier; acestea au loc doar la golirea zonelor tampon ale
+ * PrintWriter-ului de deasupra, deci masurarea nu se face pentru fiecare linie.
+ */
+public class FluxNumarat extends FilterOutputStream {
+
+	private long octeti = 0;
+	private Metrici metrici = null;
+
+	public FluxNumarat(OutputStream out){
+		super(out);
+	}
+
+	/**Metoda stabileste metricile in care se inregistreaza durata scrierilor.
+	 * @param metrici
+	 * Metricile interpretorului sau null daca scrierile nu se masoara.
+	 */
+	public void setMetrici(Metrici metrici){
+		this.metrici=metrici;
+	}
+
+	@Override
+	public void write(int b) throws IOException{
+		write(new byte[]{(byte)b}, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException{
+		//Scrierea se face direct, nu octet cu octet ca in FilterOutputStream.
+		long inceput = metrici==null ? 0 : System.nanoTime();
+		out.write(b, off, len);
+		octeti += len;
+		if(metrici!=null){
+			metrici.inregistreaza(Metrici.SCRIERE, System.nanoTime()-inceput);
+		}
+	}
+
+	/**Metoda intoarce numarul de octeti scrisi pana acum.
+	 */
+	public long getOcteti(){
+		return octeti;
+	}
+}
@@ -0,0 +1,293 @@
+package Interpretor;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**Clasa genereaza scripturi sintetice, corecte sintactic, pentru testarea interpretorului pe
+ * fisiere mari. Fiecare linie este o atribuire variabila=expresie ce foloseste +, -, *, semne unare,
+ * paranteze si operatorul ternar (A&gt;B)?C:D. Scriptul este determinat complet de samanta: aceeasi
+ * samanta si aceiasi parametri produc acelasi fisier.
+ * <p>
+ * Parametrii controleaza numarul de linii, numarul de variabile, numarul de variabile citite pe
+ * linie (dependentele de intrare), concentrarea citirilor pe cateva variabile centrale (dependentele
+ * de iesire ale acestora), adancimea parantezelor, frecventa operatorului ternar, fractiunea liniilor
+ * ce repeta un membru drept anterior si fractiunea liniilor incorecte semantic.
+ * <p>
+ * Utilizare: java Interpretor.GeneratorScripturi [-linii=N] [-variabile=N] [-citiri=N] [-concentrare=p]
+ * [-adancime=N] [-ternare=p] [-repetate=p] [-erori=p] [-samanta=N] [-iesire=fisier]
+ */
+public class GeneratorScripturi {
+
+	//Numarul de membri drepti corecti retinuti pentru a fi repetati.
+	private static final int MEMBRI_DREPTI_RETINUTI = 64;
+
+	private final Random aleator;
+	private int linii = 1000;
+	private int variabile = 100;
+	private int citiri = 3;
+	private double concentrare = 0;
+	private int adancime = 3;
+	private double ternare = 0.1;
+	private double repetate = 0;
+	private double erori = 0;
+
+	//Variabilele declarate (atribuite pe o linie corecta) pana la linia curenta.
+	private int[] declarate;
+	private boolean[] esteDeclarata;
+	private int numarDeclarate;
+	//Variabilele centrale, citite cu prioritate cand concentrarea este mai mare decat 0.
+	private int[] centrale;
+	private int numarCentrale;
+
+	/**Constructorul creeaza un generator cu parametrii impliciti.
+	 * @param samanta
+	 * Samanta generatorului de numere aleatoare.
+	 */
+	public GeneratorScripturi(long samanta){
+		aleator = new Random(samanta);
+	}
+
+	public void setLinii(int linii){
+		this.linii=linii;
+	}
+
+	/**@param variabile
+	 * Numarul de variabile distincte carora li se fac atribuiri.
+	 */
+	public void setVariabile(int variabile){
+		if(variabile<1){
+			throw new IllegalArgumentException("Scriptul trebuie sa aiba cel putin o variabila.");
+		}
+		this.variabile=variabile;
+	}
+
+	/**@param citiri
+	 * Numarul de variabile citite de membrul drept al fiecarei linii (fan-in); restul
+	 * operanzilor sunt numere.
+	 */
+	public void setCitiri(int citiri){
+		this.citiri=citiri;
+	}
+
+	/**@param concentrare
+	 * Fractiunea citirilor ce merg la variabilele centrale (radacina patrata a numarului de
+	 * variabile), a caror valoare este astfel folosita de multe linii (fan-out mare); 0 distribuie
+	 * citirile uniform.
+	 */
+	public void setConcentrare(double concentrare){
+		this.concentrare=concentrare;
+	}
+
+	/**@param adancime
+	 * Numarul maxim de paranteze (si operatori ternari) imbricate intr-o expresie.
+	 */
+	public void setAdancime(int adancime){
+		this.adancime=adancime;
+	}
+
+	/**@param ternare
+	 * Probabilitatea ca o subexpresie sa fie un operator ternar.
+	 */
+	public void setTernare(double ternare){
+		this.ternare=ternare;
+	}
+
+	/**@param repetate
+	 * Fractiunea liniilor ce repeta exact un membru drept corect dintre cele recente.
+	 */
+	public void setRepetate(double repetate){
+		this.repetate=repetate;
+	}
+
+	/**@param erori
+	 * Fractiunea liniilor incorecte semantic: citesc o variabila nedeclarata sau au un numar
+	 * ca membru stang.
+	 */
+	public void setErori(double erori){
+		this.erori=erori;
+	}
+
+	/**Metoda scrie scriptul generat.
+	 * @param iesire
+	 * Destinatia liniilor.
+	 * @throws IOException
+	 * Daca scrierea esueaza.
+	 */
+	public void genereaza(Writer iesire) throws IOException{
+		declarate = new int[variabile];
+		esteDeclarata = new boolean[variabile];
+		numarDeclarate = 0;
+		centrale = new int[Math.max(1, (int)Math.sqrt(variabile))];
+		numarCentrale = 0;
+		String[] recente = new String[MEMBRI_DREPTI_RETINUTI];
+		int numarRecente = 0;
+
+		StringBuilder linie = new StringBuilder();
+		for(int i=0; i<linii; i++){
+			linie.setLength(0);
+			int variabila = aleator.nextInt(variabile);
+			boolean eronata = aleator.nextDouble()<erori;
+			if(eronata && aleator.nextInt(4)==0){
+				//Membrul stang nu este o variabila.
+				linie.append(aleator.nextInt(10)).append('v').append(variabila).append('=');
+				expresie(linie, Math.max(1, citiri), adancime, false);
+				eronata = false;
+				variabila = -1;
+			}else{
+				linie.append('v').append(variabila).append('=');
+				int inceput = linie.length();
+				if(!eronata && numarRecente>0 && aleator.nextDouble()<repetate){
+					linie.append(recente[aleator.nextInt(Math.min(numarRecente, MEMBRI_DREPTI_RETINUTI))]);
+				}else{
+					expresie(linie, citiri, adancime, eronata);
+					if(!eronata){
+						recente[numarRecente++ % MEMBRI_DREPTI_RETINUTI] = linie.substring(inceput);
+					}
+				}
+			}
+			if(variabila>=0 && !eronata){
+				declara(variabila);
+			}
+			iesire.append(linie).append('\n');
+		}
+		iesire.flush();
+	}
+
+	private void declara(int variabila){
+		if(esteDeclarata[variabila]) return;
+		esteDeclarata[variabila] = true;
+		declarate[numarDeclarate++] = variabila;
+		if(numarCentrale<centrale.length){
+			centrale[numarCentrale++] = variabila;
+		}
+	}
+
+	/**Metoda scrie o expresie cu un numar dat de variabile citite.
+	 * @param eronata
+	 * true daca una dintre variabile trebuie sa fie nedeclarata.
+	 */
+	private void expresie(StringBuilder linie, int variabileCitite, int adancimeRamasa, boolean eronata){
+		//Operanzii numerici sunt cam jumatate din numarul variabilelor citite.
+		int numere = aleator.nextInt(variabileCitite/2+2);
+		int frunze = Math.max(1, variabileCitite+numere);
+		int nedeclarata = eronata ? aleator.nextInt(frunze) : -1;
+		boolean[] suntVariabile = new boolean[frunze];
+		for(int k=0; k<Math.min(variabileCitite, frunze); k++){
+			suntVariabile[k] = true;
+		}
+		//Variabilele sunt amestecate printre numere.
+		for(int k=frunze-1; k>0; k--){
+			int j = aleator.nextInt(k+1);
+			boolean t = suntVariabile[k]; suntVariabile[k] = suntVariabile[j]; suntVariabile[j] = t;
+		}
+		if(aleator.nextInt(8)==0){
+			linie.append(aleator.nextBoolean() ? '-' : '+');
+		}
+		subexpresie(linie, suntVariabile, 0, frunze, adancimeRamasa, nedeclarata);
+	}
+
+	/**Metoda scrie subexpresia ce contine frunzele [inceput, sfarsit).
+	 */
+	private void subexpresie(StringBuilder linie, boolean[] suntVariabile, int inceput, int sfarsit, int adancimeRamasa, int nedeclarata){
+		int frunze = sfarsit-inceput;
+		if(frunze==1){
+			frunza(linie, suntVariabile[inceput], inceput==nedeclarata);
+			return;
+		}
+		if(frunze>=4 && adancimeRamasa>0 && aleator.nextDouble()<ternare){
+			//((A>B)?C:D): fiecare parametru primeste o parte din frunze.
+			int a = inceput+1+aleator.nextInt(frunze-3);
+			int b = a+1+aleator.nextInt(sfarsit-a-2);
+			int c = b+1+aleator.nextInt(sfarsit-b-1);
+			linie.append("((");
+			subexpresie(linie, suntVariabile, inceput, a, adancimeRamasa-1, nedeclarata);
+			linie.append('>');
+			subexpresie(linie, suntVariabile, a, b, adancimeRamasa-1, nedeclarata);
+			linie.append(")?");
+			subexpresie(linie, suntVariabile, b, c, adancimeRamasa-1, nedeclarata);
+			linie.append(':');
+			subexpresie(linie, suntVariabile, c, sfarsit, adancimeRamasa-1, nedeclarata);
+			linie.append(')');
+			return;
+		}
+		int mijloc = inceput+1+aleator.nextInt(frunze-1);
+		subexpresie(linie, suntVariabile, inceput, mijloc, adancimeRamasa, nedeclarata);
+		linie.append("+-*".charAt(aleator.nextInt(3)));
+		if(adancimeRamasa>0 && aleator.nextBoolean()){
+			linie.append('(');
+			if(aleator.nextInt(8)==0){
+				linie.append(aleator.nextBoolean() ? '-' : '+');
+			}
+			subexpresie(linie, suntVariabile, mijloc, sfarsit, adancimeRamasa-1, nedeclarata);
+			linie.append(')');
+		}else{
+			subexpresie(linie, suntVariabile, mijloc, sfarsit, adancimeRamasa, nedeclarata);
+		}
+	}
+
+	private void frunza(StringBuilder linie, boolean variabila, boolean nedeclarata){
+		if(nedeclarata){
+			//Numele nedeclarate (n...) nu sunt niciodata atribuite.
+			linie.append('n').append(aleator.nextInt(variabile));
+		}else if(variabila && numarDeclarate>0){
+			boolean centrala = numarCentrale>0 && aleator.nextDouble()<concentrare;
+			linie.append('v').append(centrala ? centrale[aleator.nextInt(numarCentrale)] : declarate[aleator.nextInt(numarDeclarate)]);
+		}else{
+			//Numerele sunt in majoritate mici; cele mari produc depasiri la inmultire.
+			linie.append(aleator.nextInt(20)==0 ? aleator.nextInt(Integer.MAX_VALUE) : aleator.nextInt(100));
+		}
+	}
+
+	public static void main(String[] args) throws IOException{
+		long samanta = 1;
+		String fisier = null;
+		//Samanta se citeste inainte de a crea generatorul.
+		for(String arg : args){
+			if(arg.startsWith("-samanta=")){
+				samanta = Long.parseLong(arg.substring("-samanta=".length()));
+			}
+		}
+		GeneratorScripturi generator = new GeneratorScripturi(samanta);
+		for(String arg : args){
+			String valoare = arg.substring(arg.indexOf('=')+1);
+			if(arg.startsWith("-linii=")){
+				generator.setLinii(Integer.parseInt(valoare));
+			}else if(arg.startsWith("-variabile=")){
+				generator.setVariabile(Integer.parseInt(valoare));
+			}else if(arg.startsWith("-citiri=")){
+				generator.setCitiri(Integer.parseInt(valoare));
+			}else if(arg.startsWith("-concentrare=")){
+				generator.setConcentrare(Double.parseDouble(valoare));
+			}else if(arg.startsWith("-adancime=")){
+				generator.setAdancime(Integer.parseInt(valoare));
+			}else if(arg.startsWith("-ternare=")){
+				generator.setTernare(Double.parseDouble(valoare));
+			}else if(arg.startsWith("-repetate=")){
+				generator.setRepetate(Double.parseDouble(valoare));
+			}else if(arg.startsWith("-erori=")){
+				generator.setErori(Double.parseDouble(valoare));
+			}else if(arg.startsWith("-iesire=")){
+				fisier = valoare;
+			}else if(!arg.startsWith("-samanta=")){
+				System.out.println("Utilizare: java Interpretor.GeneratorScripturi [optiuni] (scriptul este scris la iesirea standard sau in fisier)");
+				System.out.println("Optiuni: -linii=N, -variabile=N (variabile atribuite), -citiri=N (variabile citite pe linie),");
+				System.out.println("         -concentrare=p (fractiunea citirilor ce merg la variabilele centrale), -adancime=N (paranteze imbricate),");
+				System.out.println("         -ternare=p (probabilitatea unui operator ternar), -repetate=p (membri drepti repetati),");
+				System.out.println("         -erori=p (linii incorecte semantic), -samanta=N, -iesire=fisier");
+				return;
+			}
+		}
+
+		try(Writer iesire = new BufferedWriter(fisier==null
+				? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+				: Files.newBufferedWriter(Paths.get(fisier), StandardCharsets.UTF_8), 1<<16)){
+			generator.genereaza(iesire);
+		}
+	}
+}
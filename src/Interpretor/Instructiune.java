@@ -0,0 +1,25 @@
+package Interpretor;
+
+/**Clasa modeleaza o instructiune (o linie de forma variabila=expresie) analizata sintactic:
+ * variabila careia i se face atribuirea si arborele sintactic al expresiei.
+ */
+public class Instructiune {
+
+	final String variabila;
+	final int slot;
+	final Expresie expresie;
+
+	/**Constructorul retine cele doua parti ale instructiunii.
+	 * @param variabila
+	 * Membrul stang al atribuirii.
+	 * @param slot
+	 * Slotul membrului stang din tabela de simboluri.
+	 * @param expresie
+	 * Arborele sintactic al membrului drept.
+	 */
+	public Instructiune(String variabila, int slot, Expresie expresie){
+		this.variabila=variabila;
+		this.slot=slot;
+		this.expresie=expresie;
+	}
+}
@@ -0,0 +1,98 @@
+package Interpretor;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**Clasa evalueaza doar liniile unui script ce contribuie la valorile finale ale unor variabile
+ * cerute. Instructiunile corecte semantic sunt retinute pe masura ce sunt primite; la final
+ * graful def-use este parcurs de la ultima linie spre prima, pornind de la variabilele cerute:
+ * o linie este necesara daca atribuie o variabila necesara, iar variabilele citite de ea devin
+ * necesare pentru liniile anterioare. Celelalte atribuiri nu sunt evaluate deloc.
+ */
+public class Interogare {
+
+	//Sloturile variabilelor cerute, in ordinea in care au fost cerute.
+	private final int[] tinte;
+
+	//Pentru fiecare linie corecta: slotul variabilei atribuite si codul expresiei.
+	private int numarLinii = 0;
+	private int[] sloturi = new int[1024];
+	private ExpresieCompilata[] coduri = new ExpresieCompilata[1024];
+
+	private int liniiEvaluate = 0;
+
+	/**Constructorul retine variabilele cerute.
+	 * @param tinte
+	 * Sloturile variabilelor ale caror valori finale se cer.
+	 */
+	public Interogare(int[] tinte){
+		this.tinte=tinte;
+	}
+
+	/**Metoda retine o linie corecta semantic, in ordinea din fisier.
+	 * @param slot
+	 * Slotul variabilei careia i se face atribuirea.
+	 * @param cod
+	 * Forma compilata a expresiei.
+	 */
+	public void adauga(int slot, ExpresieCompilata cod){
+		if(numarLinii==sloturi.length){
+			sloturi = Arrays.copyOf(sloturi, 2*numarLinii);
+			coduri = Arrays.copyOf(coduri, 2*numarLinii);
+		}
+		sloturi[numarLinii] = slot;
+		coduri[numarLinii] = cod;
+		numarLinii++;
+	}
+
+	/**Metoda evalueaza liniile necesare variabilelor cerute si actualizeaza tabelul de valori.
+	 * @param valori
+	 * Tabelul de valori ale variabilelor, indexat dupa slot.
+	 * @return
+	 * Pentru fiecare variabila ceruta, daca i s-a atribuit vreo valoare.
+	 */
+	public boolean[] evalueaza(int[] valori){
+		//Parcurgerea inapoi a grafului def-use marcheaza liniile necesare.
+		BitSet necesare = new BitSet();
+		for(int tinta : tinte){
+			necesare.set(tinta);
+		}
+		boolean[] necesara = new boolean[numarLinii];
+		int adancimeStiva = 1;
+		for(int i=numarLinii-1; i>=0; i--){
+			if(!necesare.get(sloturi[i])) continue;
+			necesara[i] = true;
+			//Atribuirile anterioare ale aceleiasi variabile sunt acoperite de aceasta.
+			necesare.clear(sloturi[i]);
+			for(int variabila : coduri[i].variabileCitite()){
+				necesare.set(variabila);
+			}
+			adancimeStiva = Math.max(adancimeStiva, coduri[i].adancimeStiva);
+		}
+
+		//Liniile necesare sunt evaluate in ordinea din fisier.
+		BitSet atribuite = new BitSet();
+		int[] stiva = new int[adancimeStiva];
+		for(int i=0; i<numarLinii; i++){
+			if(!necesara[i]) continue;
+			valori[sloturi[i]] = Evaluator.executa(coduri[i], valori, stiva);
+			atribuite.set(sloturi[i]);
+			liniiEvaluate++;
+		}
+
+		boolean[] definite = new boolean[tinte.length];
+		for(int k=0; k<tinte.length; k++){
+			definite[k] = atribuite.get(tinte[k]);
+		}
+		return definite;
+	}
+
+	public int[] getTinte(){
+		return tinte;
+	}
+
+	@Override
+	public String toString(){
+		return "interogare: linii corecte=" + numarLinii + " evaluate=" + liniiEvaluate + " sarite=" + (numarLinii-liniiEvaluate);
+	}
+}
@@ -1,19 +1,91 @@
 package Interpretor;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.Stack;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class Interpretor {
 	
 	private String numeFisierCitire = null;
-	private BufferedReader br = null;
+	private CititorMapat cititor = null;
 	
 	private AnalizatorSemantic as = null;
 	private ArboreDeParsare ap = null;
 	private Evaluator eval = null;
 	
+	private AnalizatorSintactic sintactic = null;
+	private TabelaSimboli tabela = null;
+	
+	//Dimensiunea implicita a cache-ului de expresii.
+	public static final int DIMENSIUNE_CACHE_IMPLICITA = 1024;
+	
+	private int dimensiuneCache = DIMENSIUNE_CACHE_IMPLICITA;
+	private CacheExpresii cache = null;
+	
+	//Numarul de fire de executie folosite la evaluare (0 pentru evaluarea secventiala).
+	private int numarFire = 0;
+	
+	//Numarul de fire de executie pe care se analizeaza sintactic fragmentele fisierului (0 pentru analiza secventiala).
+	private int numarFireCompilare = 0;
+	
+	//Numarul de linii dintr-un fragment analizat sintactic de un singur fir de executie.
+	public static final int LINII_FRAGMENT = 256;
+	
+	/*Etapele ale caror fisiere de output se produc: analiza semantica (_sa), arborele de
+	 * parsare (_pt) si evaluarea (_ee). Etapele dezactivate nu se executa deloc; analiza
+	 * semantica se executa totusi, fara fisier de output, daca evaluarea este activata.
+	 */
+	public static final int ETAPA_SEMANTICA = 1;
+	public static final int ETAPA_ARBORE = 2;
+	public static final int ETAPA_EVALUARE = 4;
+	public static final int TOATE_ETAPELE = ETAPA_SEMANTICA | ETAPA_ARBORE | ETAPA_EVALUARE;
+	
+	private int etape = TOATE_ETAPELE;
+	
+	//Simplificarea expresiilor inainte de compilare (null daca este dezactivata).
+	private boolean optimizare = false;
+	private Optimizator optimizator = null;
+	
+	//Refolosirea valorilor subexpresiilor comune mai multor linii.
+	private boolean subexpresiiComune = false;
+	private NumerotareValori numerotare = null;
+	
+	//Motorul de evaluare: interpretorul pe stiva sau bytecode JVM.
+	public static final int MOTOR_STIVA = 0;
+	public static final int MOTOR_JVM = 1;
+	private int motor = MOTOR_STIVA;
+	private MotorJVM motorJVM = null;
+	
+	//Aritmetica evaluarii (Evaluator.ARITMETICA_MODULARA, ARITMETICA_EXACTA sau ARITMETICA_EROARE).
+	private int aritmetica = Evaluator.ARITMETICA_MODULARA;
+	
+	//Variabilele cerute in modul interogare (null daca se evalueaza toate liniile).
+	private String[] variabileCerute = null;
+	private Interogare interogare = null;
+	
+	//Fisierele precompilate: activate, directorul cache-ului (null pentru fisierul de langa sursa).
+	private boolean precompilare = false;
+	private String directorPrecompilare = null;
+	private Precompilare precompilat = null;
+	//Liniile interpretate, inregistrate pentru scrierea fisierului precompilat (null daca nu se scrie).
+	private Precompilare inregistrare = null;
+	
+	//Masurarea etapelor interpretarii si metricile ultimei interpretari (null daca nu se masoara).
+	private boolean masurare = false;
+	private Metrici metrici = null;
+	
+	//Duratele etapelor liniei curente, masurate doar pentru evenimentul JFR al acesteia.
+	private long durataSemantica = 0;
+	private long durataCompilare = 0;
+	private long durataEvaluare = 0;
+	
+	//Numarul de linii interpretate pana acum.
+	private int numarLinii = 0;
+	
 	/**Constructor specifica interpretorului fisierul in care se afla secventa de instructiuni de analizat.
 	 * @param numeFisierCitire
 	 * Numele fisierului ce contine instructiunile de interpretat si va influenta numele fisierelor de output.
@@ -22,329 +94,638 @@ public class Interpretor {
 		this.numeFisierCitire=numeFisierCitire;
 	}
 	
+	/**Metoda stabileste cate expresii distincte pot fi retinute in cache-ul de expresii.
+	 * @param dimensiuneCache
+	 * Numarul maxim de membri drepti retinuti; 0 dezactiveaza cache-ul.
+	 */
+	public void setDimensiuneCache(int dimensiuneCache){
+		this.dimensiuneCache=dimensiuneCache;
+	}
+	
+	/**Metoda stabileste numarul de fire de executie pe care se evalueaza instructiunile.
+	 * Instructiunile independente (ce nu citesc si nu scriu variabile scrise sau citite
+	 * de alte instructiuni evaluate simultan) se evalueaza in paralel.
+	 * @param numarFire
+	 * Numarul de fire de executie; 0 pastreaza evaluarea secventiala.
+	 */
+	public void setParalel(int numarFire){
+		this.numarFire=numarFire;
+	}
+	
+	/**Metoda stabileste numarul de fire de executie pe care se analizeaza sintactic liniile.
+	 * Fisierul este impartit in fragmente de linii consecutive; fiecare fragment este analizat
+	 * sintactic (arborele sintactic si arborele de parsare) pe un fir separat, iar analiza
+	 * semantica si evaluarea se aplica apoi fragmentelor, secvential, in ordinea liniilor.
+	 * @param numarFireCompilare
+	 * Numarul de fire de executie; 0 pastreaza analiza secventiala.
+	 */
+	public void setCompilareParalela(int numarFireCompilare){
+		this.numarFireCompilare=numarFireCompilare;
+	}
+	
+	/**Metoda intoarce cache-ul de expresii folosit la ultima interpretare,
+	 * impreuna cu contoarele sale de gasiri, ratari si evacuari.
+	 * @return
+	 * Cache-ul de expresii.
+	 */
+	public CacheExpresii getCacheExpresii(){
+		return cache;
+	}
+	
+	/**Metoda stabileste ce fisiere de output se produc.
+	 * @param etape
+	 * Combinatie (prin |) de ETAPA_SEMANTICA, ETAPA_ARBORE si ETAPA_EVALUARE.
+	 */
+	public void setEtape(int etape){
+		this.etape=etape;
+	}
+	
+	/**Metoda stabileste daca expresiile sunt simplificate (calculul subexpresiilor constante,
+	 * identitati algebrice, ternari cu conditie constanta) inainte de compilare. Simplificarea
+	 * este o trecere suplimentara prin arbore, deci merita doar cand formele compilate sunt
+	 * refolosite de multe ori (membri drepti repetati).
+	 * @param optimizare
+	 * true pentru a simplifica expresiile (implicit false).
+	 */
+	public void setOptimizare(boolean optimizare){
+		this.optimizare=optimizare;
+	}
+	
+	/**Metoda intoarce optimizatorul folosit la ultima interpretare, impreuna cu
+	 * numarul de noduri eliminate, sau null daca optimizarea este dezactivata.
+	 * @return
+	 * Optimizatorul expresiilor.
+	 */
+	public Optimizator getOptimizator(){
+		return optimizator;
+	}
+	
+	/**Metoda stabileste daca valorile subexpresiilor ce se repeta (pe aceeasi linie sau pe linii
+	 * diferite) sunt refolosite cat timp variabilele pe care le citesc nu sunt reatribuite.
+	 * Se aplica doar evaluarii secventiale.
+	 * @param subexpresiiComune
+	 * true pentru a refolosi subexpresiile comune (implicit false).
+	 */
+	public void setSubexpresiiComune(boolean subexpresiiComune){
+		this.subexpresiiComune=subexpresiiComune;
+	}
+	
+	/**Metoda intoarce numerotarea valorilor folosita la ultima interpretare, impreuna cu
+	 * contoarele de refolosiri si recalculari, sau null daca nu a fost folosita.
+	 * @return
+	 * Numerotarea valorilor subexpresiilor comune.
+	 */
+	public NumerotareValori getNumerotareValori(){
+		return numerotare;
+	}
+	
+	/**Metoda alege motorul de evaluare. Motorul JVM traduce intregul script in bytecode si il
+	 * executa ca o clasa ascunsa; are prioritate fata de evaluarea paralela si refolosirea
+	 * subexpresiilor comune, dar nu si fata de modul interogare.
+	 * @param motor
+	 * MOTOR_STIVA (implicit) sau MOTOR_JVM.
+	 */
+	public void setMotor(int motor){
+		this.motor=motor;
+	}
+	
+	/**Metoda stabileste aritmetica evaluarii: modulara (implicit, rezultatele sunt reduse modulo
+	 * 2^32), exacta (rezultatele ce nu incap pe int sunt scrise exact, pe long sau BigInteger) sau
+	 * cu eroare (liniile al caror calcul nu incape pe int sunt eronate). Calculul ramane pe int
+	 * cat timp nu apare o depasire. Aritmetica exacta si cea cu eroare folosesc interpretorul pe
+	 * stiva secvential, deci au prioritate fata de modul interogare, motorul JVM, evaluarea
+	 * paralela si refolosirea subexpresiilor comune; MainClass refuza aceste combinatii.
+	 * @param aritmetica
+	 * Evaluator.ARITMETICA_MODULARA, ARITMETICA_EXACTA sau ARITMETICA_EROARE.
+	 */
+	public void setAritmetica(int aritmetica){
+		this.aritmetica=aritmetica;
+	}
+	
+	/**Metoda intoarce motorul JVM folosit la ultima interpretare, impreuna cu timpii de
+	 * generare si executie, sau null daca a fost folosit interpretorul pe stiva.
+	 * @return
+	 * Motorul JVM.
+	 */
+	public MotorJVM getMotorJVM(){
+		return motorJVM;
+	}
+	
+	/**Metoda activeaza modul interogare: se evalueaza doar liniile de care depind valorile finale
+	 * ale variabilelor cerute, iar fisierul _ee contine doar aceste variabile. Are prioritate
+	 * fata de evaluarea paralela si refolosirea subexpresiilor comune.
+	 * @param variabile
+	 * Numele variabilelor cerute; null evalueaza toate liniile (implicit).
+	 */
+	public void setInterogare(String... variabile){
+		this.variabileCerute=variabile;
+	}
+	
+	/**Metoda intoarce interogarea folosita la ultima interpretare, impreuna cu numarul
+	 * de linii evaluate si sarite, sau null daca modul interogare nu a fost folosit.
+	 * @return
+	 * Interogarea variabilelor cerute.
+	 */
+	public Interogare getInterogare(){
+		return interogare;
+	}
+	
+	/**Metoda activeaza fisierele precompilate: la prima interpretare a unei surse se scrie forma
+	 * ei analizata si compilata intr-un fisier binar, identificat prin amprenta sursei, iar
+	 * interpretarile urmatoare ale aceleiasi surse il citesc in locul analizei sintactice.
+	 * @param director
+	 * Directorul in care se pastreaza fisierele precompilate, numite dupa amprenta sursei;
+	 * null pentru fisierul nume.txt.ipc aflat langa sursa.
+	 */
+	public void setPrecompilare(String director){
+		this.precompilare=true;
+		this.directorPrecompilare=director;
+	}
+	
+	/**Metoda intoarce fisierul precompilat citit sau scris la ultima interpretare, sau null
+	 * daca fisierele precompilate nu sunt folosite.
+	 * @return
+	 * Fisierul precompilat.
+	 */
+	public Precompilare getPrecompilare(){
+		return precompilat;
+	}
+	
+	/**Metoda activeaza masurarea etapelor interpretarii. Cat timp fisierul este interpretat,
+	 * metricile sunt expuse prin JMX.
+	 * @param metrici
+	 * true pentru a masura etapele.
+	 */
+	public void setMetrici(boolean metrici){
+		this.masurare = metrici;
+	}
+	
+	/**Metoda intoarce metricile interpretarii.
+	 * @return
+	 * Metricile ultimei interpretari sau null daca etapele nu se masoara.
+	 */
+	public Metrici getMetrici(){
+		return metrici;
+	}
+	
+	/**Metoda intoarce numarul de linii interpretate la ultima interpretare.
+	 * @return
+	 * Numarul de linii.
+	 */
+	public int getNumarLinii(){
+		return numarLinii;
+	}
+	
 	/**Metoda realizeaza analiza efectiva din cele 3 puncte de vedere
 	 * asupra continutului fisierului.
 	 */
 	public void interpret(){
+		interpret(true);
+	}
+	
+	/**Metoda realizeaza interpretarea.
+	 * @param citestePrecompilat
+	 * false daca fisierul precompilat existent este ignorat (si scris din nou), de exemplu
+	 * dupa ce citirea lui a esuat.
+	 */
+	private void interpret(boolean citestePrecompilat){
 		//Se incearca deschiderea fisierului in care se afla comenzile de interprtat.
 		try{
-			br = new BufferedReader(new FileReader(numeFisierCitire));
+			cititor = new CititorMapat(numeFisierCitire);
 		}catch(IOException e){
 			System.out.println("Nu s-a putut deschide fisierul de citire.");
 			e.printStackTrace();
 		}
 		
+		byte[] amprenta = null;
+		Path fisierPrecompilat = null;
+		if(precompilare){
+			try{
+				amprenta = Precompilare.amprenta(numeFisierCitire);
+				fisierPrecompilat = Precompilare.cale(numeFisierCitire, directorPrecompilare, amprenta);
+			}catch(IOException e){
+				System.out.println("Nu s-a putut calcula amprenta fisierului de citire.");
+				e.printStackTrace();
+			}
+		}
+		
 		//Instantierea instrumentelor de prelucrare a instructiunilor.
-		as = new AnalizatorSemantic(numeFisierCitire);
-		ap = new ArboreDeParsare(numeFisierCitire);
-		eval = new Evaluator(numeFisierCitire);
+		tabela = new TabelaSimboli();
+		if((etape & ETAPA_SEMANTICA)!=0){
+			as = new AnalizatorSemantic(numeFisierCitire);
+		}else if((etape & ETAPA_EVALUARE)!=0){
+			as = new AnalizatorSemantic();
+		}
+		if((etape & ETAPA_ARBORE)!=0){
+			ap = new ArboreDeParsare(numeFisierCitire);
+		}
+		if((etape & ETAPA_EVALUARE)!=0){
+			eval = new Evaluator(numeFisierCitire, tabela);
+			if(aritmetica!=Evaluator.ARITMETICA_MODULARA){
+				eval.setAritmetica(aritmetica);
+			}else if(variabileCerute!=null){
+				eval.setInterogare(variabileCerute);
+			}else if(motor==MOTOR_JVM){
+				eval.setMotorJVM();
+			}else if(numarFire>0){
+				eval.setParalel(numarFire);
+			}else if(subexpresiiComune){
+				eval.setSubexpresiiComune();
+			}
+			numerotare = eval.getNumerotareValori();
+			interogare = eval.getInterogare();
+			motorJVM = eval.getMotorJVM();
+		}
+		sintactic = new AnalizatorSintactic(tabela);
+		cache = new CacheExpresii(dimensiuneCache);
+		optimizator = optimizare ? new Optimizator(aritmetica) : null;
 		
-		String linie = null;
-		int indiceLinie = 1;
-		boolean ok = false;
-		try{
-			//Se incepe interpretarea comenzilor din fisier linie cu linie.
-			while( (linie = br.readLine() )!=null ){
-				
-				/*Se realizeaza analiza semantica a liniei curente
-				 * si se determina corectitudinea ei pentru a se putea
-				 * stii daca se poate evalua expresia de pe aceasta linie.
-				 */
-				ok = as.analyzeRow(linie, indiceLinie++);
-				
-				//Se determina variabila careia i se face atribuirea
-				int pozitieEgal = linie.indexOf('=');
-				String variabila = linie.substring(0, pozitieEgal);
-				
-				/*Se inlocuieste structura operatorului ternar cu functia #
-				 * pentru a usura transformarea expresiei in forma poloneza,
-				 * si deasemenea usurarea evaluarii din aceasta forma.
-				 */
-				String linieTernar = parseTernar(linie);
-				String expresie = linieTernar.substring(pozitieEgal+1);
-				String poloneza=toPolish(expresie);
-				
-				ap.toTree(variabila, poloneza);
-				
-				if(ok){
-					/*Daca expresia de pe linia curenta se poate evalua
-					 * atunci rezultatul evaluarii se va scrie in fisierul ee.
-					 */
-					eval.evaluate(variabila, poloneza);
-				}else{
-					/*Daca expresia nu se poate evalua atunci in fisierul
-					 * ee se va scrie mesajul "error".
-					 */
-					eval.nonCalculable();
+		metrici = masurare ? new Metrici() : null;
+		if(metrici!=null){
+			metrici.setFlux(Metrici.FISIER_SA, as==null ? null : as.getFlux());
+			metrici.setFlux(Metrici.FISIER_PT, ap==null ? null : ap.getFlux());
+			metrici.setFlux(Metrici.FISIER_EE, eval==null ? null : eval.getFlux());
+			metrici.inregistreazaJMX(numeFisierCitire);
+			metrici.porneste();
+		}
+		
+		precompilat = null;
+		inregistrare = null;
+		if(fisierPrecompilat!=null){
+			try{
+				precompilat = !citestePrecompilat ? null : Precompilare.citeste(fisierPrecompilat, amprenta, tabela, optimizare, ap,
+						numerotare==null && aritmetica==Evaluator.ARITMETICA_MODULARA);
+			}catch(IOException e){
+				System.out.println("Nu s-a putut citi fisierul precompilat " + fisierPrecompilat + ".");
+			}
+			//Daca fisierul precompilat lipseste sau nu corespunde sursei, el este scris din nou.
+			if(precompilat==null){
+				try{
+					inregistrare = Precompilare.scrie(fisierPrecompilat, amprenta, tabela, optimizare);
+				}catch(IOException e){
+					System.out.println("Nu s-a putut scrie fisierul precompilat " + fisierPrecompilat + ".");
 				}
 			}
-			//Se inchide fisierul din care s-a citit.
-			br.close();
-		}catch(IOException e){
-			System.out.println("Probleme la citire sau inchiderea fisierului de citire.");
-			e.printStackTrace();
 		}
 		
-		//Inchiderea instrumentelor de prelucrare pentru salvarea rezultatelor din fisierele de output.
-		as.close();
-		ap.close();
-		eval.close();
-	}
-	
-	/**Metoda transforma o expresie primita ca parametru in forma poloneza.
-	 * @param expresie
-	 * Expresia ce se doreste convertita in forma poloneza.
-	 * @return
-	 * Un String ce reprezinta expresia primita ca parametru in forma poloneza.
-	 */
-	private String toPolish(String expresie){
-		String rezultat="";		
-		Stack<Character> op = new Stack<Character>();
-		String variabila = "";
-		char c='@';
-		/*Se presupune ca nu s-a intalnit inca un numar sau o
-		 * variabila in procesarea expresiei (la nivelul curent de paranteze).
-		 */
-		boolean checkNumberBefore = false;
-		for(int i=0; i<expresie.length(); i++){
-			c=expresie.charAt(i);
-			if(c=='*' || c=='+' || c=='-' || c=='#' || c=='(' || c==')'){
-				if(!op.isEmpty()){
-					/*Daca stiva nu este vida si s-a citit un operator sau paranteze se trateaza
-					 * cazul specific caracterului citit.
-					 */
-					if(c=='*'){
-						while(!op.isEmpty() && (op.peek()=='*'|| op.peek()=='#')){
-							rezultat+=op.pop()+" ";
-						}	
-						op.push(c);
-					}
-					if(c=='+' || c=='-'){
-						while(!op.isEmpty() && (op.peek()=='*' || op.peek()=='-' || op.peek()=='+'|| op.peek()=='#' || op.peek()=='$' || op.peek()=='@') ){
-							rezultat+=op.pop()+" "; 
-						}
-						/*Daca s-a citit + sau - dar am intalnit numar sau variabila
-						 * inainte de semn inseamna ca acest operator este binar,
-						 * altfel se interpreteaza ca unar.
-						 */
-						if(c=='+'){
-							if(checkNumberBefore){
-								op.push(c);
-							}else{
-								op.push('$');
-								checkNumberBefore=true;
-							}
-						}
-						if(c=='-'){
-							if(checkNumberBefore){
-								op.push(c);
-							}else{
-								op.push('@');
-								checkNumberBefore=true;
-							}
-						}
-					}
-					if(c=='#'){
-						while( !op.isEmpty() && (op.peek()=='*' || op.peek()=='-' || op.peek()=='+') ){
-							rezultat+=op.pop()+" ";
-						}
-						op.push(c);
-					}
-					if(c==')'){
-						while( !op.isEmpty() && op.peek()!='(' ){
-							rezultat+=op.pop()+" ";
-						}
-						op.pop();
-					}
-					if(c=='('){ 
-						op.push(c);
-						checkNumberBefore=false;
-					}
-				}else{
-					if(checkNumberBefore==false && (c=='(' || c=='-' || c=='+')){
-						checkNumberBefore=false;
-						/*Daca stiva este goala si s-a intalnit unul din operatorii de mai sus
-						 * si nici nu s-a citit numar sau variabila atunci se interpreteaza
-						 * operatorii unari.
-						 */
-						if(c=='('){
-							op.push(c);
-						}
-						if(c=='+'){
-							op.push('$');
-						}
-						if(c=='-'){
-							op.push('@');
-						}
-					}else{
-						//Altfel se introduce in stiva operatorul binar.
-						op.push(c);
-					}
+		boolean terminata = false;
+		boolean reia = false;
+		try{
+			if(precompilat!=null){
+				//Liniile sunt luate din fisierul precompilat, fara analiza sintactica.
+				int indiceLinie = 1;
+				if(metrici!=null) metrici.incepeLinie(indiceLinie);
+				while(precompilat.urmatoareaLinie()){
+					int slot = precompilat.slot();
+					CacheExpresii.Intrare intrare = precompilat.intrare();
+					if(metrici!=null) metrici.etapa(Metrici.CITIRE);
+					Evenimente.LinieInterpretata eveniment = new Evenimente.LinieInterpretata();
+					eveniment.begin();
+					aplica(new Instructiune(tabela.nume(slot), slot, intrare.expresie), intrare, indiceLinie++, eveniment);
+					if(metrici!=null) metrici.incepeLinie(indiceLinie);
 				}
+			}else if(numarFireCompilare>0){
+				interpretFragmente();
 			}else{
-				/*Daca nu s-a intalnit operator sau functia # atunci avem fie variabila,
-				 * numar sau virgula(virgula separa argumentele functiei #).
-				 */
-				while(c==','){
-					i++;
-					c=expresie.charAt(i);
-				}
-				
-				boolean ok=false;
-				//Se alcatuieste numele variabilei sau numarul intalnit.
-				while(Character.isLetter(c) || Character.isDigit(c)){
-					variabila+=c;
-					i++;
-					if(i==expresie.length()){
-						ok=true;
-						break;
+				int indiceLinie = 1;
+				if(metrici!=null) metrici.incepeLinie(indiceLinie);
+				//Se incepe interpretarea comenzilor din fisier linie cu linie.
+				while(cititor.urmatoareaLinie()){
+					/*Liniile ASCII sunt analizate direct din fisierul mapat in memorie,
+					 * fara a crea un String pentru fiecare linie.
+					 */
+					CititorMapat.Linie linieMapata = cititor.linie();
+					CharSequence linie = linieMapata.esteAscii() ? linieMapata : linieMapata.toString();
+					if(metrici!=null) metrici.etapa(Metrici.CITIRE);
+					Evenimente.LinieInterpretata eveniment = new Evenimente.LinieInterpretata();
+					eveniment.begin();
+					long inceputAnaliza = eveniment.isEnabled() ? System.nanoTime() : 0;
+					CacheExpresii.Intrare intrare = analizeaza(linie, sintactic, ap, metrici);
+					if(eveniment.isEnabled()){
+						eveniment.durataSintactica = System.nanoTime()-inceputAnaliza;
 					}
-					c=expresie.charAt(i);
+					aplica(as==null && inregistrare==null ? null : instructiune(linie, intrare), intrare, indiceLinie++, eveniment);
+					if(metrici!=null) metrici.incepeLinie(indiceLinie);
+				}
+			}
+			terminata = true;
+		}catch(IOException e){
+			System.out.println("Probleme la citire sau inchiderea fisierului de citire.");
+			e.printStackTrace();
+			terminata = true;
+		}catch(RuntimeException e){
+			//O sursa cu erori de sintaxa nu are fisier precompilat.
+			if(inregistrare!=null){
+				inregistrare.abandoneaza();
+			}
+			if(metrici!=null){
+				metrici.opreste();
+				metrici.retrageJMX();
+			}
+			if(precompilat==null || !precompilat.esteCorupt()){
+				throw e;
+			}
+			//Output-urile partiale sunt suprascrise de interpretarea sursei, cu analiza sintactica.
+			System.out.println(e.getMessage() + " Sursa este analizata din nou.");
+			reia = true;
+		}finally{
+			//Se inchide fisierul din care s-a citit.
+			if(cititor!=null){
+				try{
+					cititor.close();
+				}catch(IOException e){
+					System.out.println("Probleme la citire sau inchiderea fisierului de citire.");
+					e.printStackTrace();
 				}
-				i--;
-				
-				/*Se concateneaza numarul sau variabila obtinuta la coada de
-				 * rezultat obtinuta pana acum.
-				 */
-				rezultat+=variabila+" ";
-				checkNumberBefore=true;
-				variabila="";
-				if(ok) break;
 			}
+			//Daca interpretarea s-a oprit cu o eroare, fisierele de output sunt doar inchise.
+			if(!terminata){
+				if(as!=null) as.close();
+				if(ap!=null) ap.close();
+				if(eval!=null) eval.abandoneaza();
+			}
+		}
+		if(reia){
+			interpret(false);
+			return;
 		}
 		
-		/*Daca au mai ramas operatori in stiva atunci acestia sunt transferati
-		 * in coada rezultat ce va reprezenta expresia in forma poloneza.
-		 */
-		while(!op.isEmpty()){
-			rezultat+=op.pop()+" ";
+		//Inchiderea instrumentelor de prelucrare pentru salvarea rezultatelor din fisierele de output.
+		if(as!=null) as.close();
+		if(ap!=null) ap.close();
+		if(eval!=null) eval.close();
+		
+		if(metrici!=null){
+			metrici.opreste();
+			metrici.retrageJMX();
 		}
 		
-		return rezultat;
+		if(inregistrare!=null){
+			try{
+				inregistrare.inchide();
+				precompilat = inregistrare;
+			}catch(IOException e){
+				System.out.println("Nu s-a putut scrie fisierul precompilat " + fisierPrecompilat + ".");
+			}
+			inregistrare = null;
+		}
 	}
-
-	/**Metoda converteste operatorii ternari in functii # astfel:
-	 * ((A gt B)?C:D) in #((A),(B),(C),(D)) , pentru a usura transformarea expresiei
-	 * in forma poloneza. (A gt B inseamna greater than; probleme la generarea JavaDoc pentru semnul mai mare)
+	
+	/**Metoda intoarce forma analizata a membrului drept al unei linii. Aceasta este cautata
+	 * intai in cache-ul de expresii; doar daca nu este gasita se construiesc arborele sintactic
+	 * si afisarea arborelui de parsare. Membrul drept este analizat sintactic cel mult o data
+	 * (liniile ce repeta un membru drept il gasesc in cache), iar arborele obtinut este folosit
+	 * de toate cele trei analize.
 	 * @param linie
-	 * Expresia ai carei operatori ternari se doresc transformati in functii #.
+	 * Linia curenta.
+	 * @param sintactic
+	 * Analizatorul sintactic folosit de firul de executie curent.
+	 * @param arbore
+	 * Arborele de parsare folosit de firul de executie curent pentru construirea afisarii
+	 * (null daca fisierul pt nu este produs).
+	 * @param metrici
+	 * Metricile in care se masoara analiza (null pe firele de lucru sau daca nu se masoara).
 	 * @return
-	 * Noul tip de expresie in care operatorii ternari sunt inlocuiti cu functii #.
+	 * Intrarea din cache corespunzatoare expresiei.
 	 */
-	private String parseTernar(String linie){
-		/*Se numara cate semne ternare exista in expresie
-		 * pentru a se stii daca exista macar unu si daca
-		 * are rost prelucrarea. 
-		 */
-		int semne = 0;
+	private CacheExpresii.Intrare analizeaza(CharSequence linie, AnalizatorSintactic sintactic, ArboreDeParsare arbore, Metrici metrici){
+		int inceput = pozitieEgal(linie)+1;
+		CacheExpresii.Intrare intrare = cache.get(linie, inceput, linie.length());
+		if(intrare==null){
+			String membruDrept = linie.subSequence(inceput, linie.length()).toString();
+			Expresie expresie = sintactic.parseaza(membruDrept);
+			if(metrici!=null) metrici.etapa(Metrici.SINTACTICA);
+			//Afisarea arborelui de parsare se construieste doar daca fisierul pt este produs.
+			intrare = new CacheExpresii.Intrare(expresie, arbore==null ? null : arbore.toTree(expresie));
+			cache.put(membruDrept, intrare);
+			if(metrici!=null && arbore!=null) metrici.etapa(Metrici.ARBORE);
+		}else if(metrici!=null){
+			metrici.etapa(Metrici.SINTACTICA);
+		}
+		return intrare;
+	}
+	
+	/**Metoda construieste instructiunea unei linii din membrul stang al acesteia
+	 * si forma analizata a membrului drept.
+	 */
+	private Instructiune instructiune(CharSequence linie, CacheExpresii.Intrare intrare){
+		int slot = tabela.interneaza(linie, 0, pozitieEgal(linie));
+		return new Instructiune(tabela.nume(slot), slot, intrare.expresie);
+	}
+	
+	private static int pozitieEgal(CharSequence linie){
 		for(int i=0; i<linie.length(); i++){
-			if(linie.charAt(i)=='?') semne++;
+			if(linie.charAt(i)=='=') return i;
 		}
-		if (semne==0) return linie;
-		
-		/*Se alcatuiec cei patru parametrii ai functiei ternar astfel:
-		 *  ((A>B)?C:D) -> #((A),(B),(C),(D))
+		return -1;
+	}
+	
+	/**Metoda aplica unei linii deja analizate sintactic analiza semantica, scrierea
+	 * arborelui de parsare si evaluarea. Liniile trebuie aplicate in ordinea din fisier.
+	 * @param instructiune
+	 * Instructiunea de pe linia curenta (null daca analiza semantica nu se executa
+	 * si fisierul precompilat nu este scris).
+	 * @param intrare
+	 * Forma analizata a membrului drept.
+	 * @param indiceLinie
+	 * Numarul liniei curente.
+	 * @param eveniment
+	 * Evenimentul JFR al liniei, inceput de apelant.
+	 */
+	private void aplica(Instructiune instructiune, CacheExpresii.Intrare intrare, int indiceLinie, Evenimente.LinieInterpretata eveniment){
+		/*Evenimentul nu este transmis mai departe, astfel incat, cat timp este dezactivat,
+		 * compilatorul JIT poate elimina alocarea lui.
 		 */
-		String paramA = "";
-		String paramB = "";
-		String paramC = "";
-		String paramD = "";
+		boolean masurat = eveniment.isEnabled();
+		boolean ok = aplicaEtape(instructiune, intrare, indiceLinie, masurat);
+		//Campurile evenimentului se calculeaza doar daca acesta este inregistrat.
+		eveniment.end();
+		if(eveniment.shouldCommit()){
+			eveniment.linie = indiceLinie;
+			eveniment.variabila = instructiune==null ? null : instructiune.variabila;
+			eveniment.lungimeExpresie = intrare.expresie.numarNoduri();
+			eveniment.inaltimeArbore = intrare.expresie.inaltime();
+			eveniment.eronata = !ok;
+			eveniment.durataSemantica = durataSemantica;
+			eveniment.durataCompilare = durataCompilare;
+			eveniment.durataEvaluare = durataEvaluare;
+			eveniment.commit();
+		}
+	}
 	
-		int pozitieIntrebare = linie.indexOf('?');
-		
-		//Formarea parametrului B
-		int indexB = pozitieIntrebare-2;
-		char b = '_';
-		int inceputB = 0;
-		int parantezeB = 0;
-		while( indexB>-1){
-			b=linie.charAt(indexB);
-			if( parantezeB!=0 || b!='>' ){
-				paramB+=b;
-				inceputB = indexB;
-				indexB--;
-				if(b==')') parantezeB++;
-				if(b=='(') parantezeB--;
-			}else{
-				break;
-			}
+	/**Metoda executa etapele aplicate unei linii (vezi aplica).
+	 * @param masurat
+	 * true daca duratele etapelor se masoara pentru evenimentul JFR al liniei.
+	 * @return
+	 * false daca linia nu a trecut analiza semantica.
+	 */
+	private boolean aplicaEtape(Instructiune instructiune, CacheExpresii.Intrare intrare, int indiceLinie, boolean masurat){
+		numarLinii = indiceLinie;
+		if(metrici!=null) metrici.linie();
+		if(inregistrare!=null){
+			inregistrare.inregistreaza(instructiune.slot, intrare);
+		}
+		if(ap!=null){
+			ap.afiseaza(intrare.arbore);
+			if(metrici!=null) metrici.etapa(Metrici.AFISARE);
+		}
+		if(as==null){
+			return true;
 		}
-		paramB = linie.substring(inceputB, pozitieIntrebare-1);
 		
-		//Formarea parametrului A
-		int indexA = inceputB-2;
-		char a='_';
-		int inceputA=0;
-		int parantezeA = 0;
-		while( indexA>-1){
-			a=linie.charAt(indexA);
-			if( parantezeA!=0 || a!='(' ){
-				paramA+=a;
-				inceputA = indexA;
-				indexA--;
-				if(a==')') parantezeA++;
-				if(a=='(') parantezeA--;
-			}else{
-				break;
-			}
+		durataSemantica = durataCompilare = durataEvaluare = 0;
+		long moment = masurat ? System.nanoTime() : 0;
+		/*Se realizeaza analiza semantica a liniei curente
+		 * si se determina corectitudinea ei pentru a se putea
+		 * stii daca se poate evalua expresia de pe aceasta linie.
+		 */
+		boolean ok = as.analyzeRow(instructiune, indiceLinie);
+		if(metrici!=null){
+			metrici.etapa(Metrici.SEMANTICA);
+			if(!ok) metrici.eroare();
+		}
+		if(masurat){
+			long acum = System.nanoTime();
+			durataSemantica = acum-moment;
+			moment = acum;
 		}
-		paramA = linie.substring(inceputA, inceputB-1);
-		char inainteDeA=linie.charAt(inceputA-2);
 		
-		//Formarea parametrului C
-		int nrparantezeC = 0;
-		char c = '_';
-		int indexC = pozitieIntrebare+1;
-		while( indexC<linie.length() ){
-			c=linie.charAt(indexC);
-			if( (nrparantezeC!=0 || c!=':') ){
-				paramC+=c;
-				indexC++;
-				if(c=='(') nrparantezeC++;
-				if(c==')') nrparantezeC--;
-			}else{
-				break;
+		if(eval==null){
+			return ok;
+		}
+		if(ok){
+			/*Daca expresia de pe linia curenta se poate evalua
+			 * atunci rezultatul evaluarii se va scrie in fisierul ee.
+			 */
+			if(intrare.compilata==null){
+				//Se compileaza forma simplificata; arborele initial ramane neschimbat.
+				intrare.simplificata = optimizator==null ? intrare.expresie : optimizator.optimizeaza(intrare.expresie);
+				intrare.compilata = eval.compile(intrare.simplificata);
+				if(metrici!=null) metrici.etapa(Metrici.COMPILARE);
+				if(masurat){
+					long acum = System.nanoTime();
+					durataCompilare = acum-moment;
+					moment = acum;
+				}
+			}
+			if(motorJVM!=null && optimizator!=null){
+				/*Motorul JVM traduce arborele, nu forma compilata, deci primeste tot forma
+				 * simplificata (forma citita din fisierul precompilat nu are arborele simplificat).
+				 */
+				if(intrare.simplificata==null){
+					intrare.simplificata = optimizator.optimizeaza(intrare.expresie);
+				}
+				instructiune = new Instructiune(instructiune.variabila, instructiune.slot, intrare.simplificata);
 			}
+			eval.evaluate(instructiune, intrare.compilata);
+		}else{
+			/*Daca expresia nu se poate evalua atunci in fisierul
+			 * ee se va scrie mesajul "error".
+			 */
+			eval.nonCalculable();
 		}
+		if(metrici!=null) metrici.etapa(Metrici.EVALUARE);
+		if(masurat){
+			durataEvaluare = System.nanoTime()-moment;
+		}
+		return ok;
+	}
+	
+	/**Clasa interna ce modeleaza un fragment de linii consecutive din fisier,
+	 * impreuna cu rezultatul analizei sintactice a acestora.
+	 */
+	private static class Fragment{
+		final String[] linii;
+		final Instructiune[] instructiuni;
+		final CacheExpresii.Intrare[] intrari;
+		int numarLinii = 0;
 		
-		//Formarea parametrului D
-		int sfarsitD=0;
-		if(inainteDeA=='('){
-			//Inseamna ca avem paranteza si dupa d
-			int nrparantezeD = 0;
-			char d = '_';
-			int indexD = indexC+1;
-			while( indexD<linie.length() ){
-				d=linie.charAt(indexD);
-				if( (nrparantezeD!=0 || d!=')') ){
-					paramD+=d;
-					sfarsitD=indexD;
-					indexD++;
-					if(d=='(') nrparantezeD++;
-					if(d==')') nrparantezeD--;
-				}else{
-					break;
+		Fragment(){
+			linii = new String[LINII_FRAGMENT];
+			instructiuni = new Instructiune[LINII_FRAGMENT];
+			intrari = new CacheExpresii.Intrare[LINII_FRAGMENT];
+		}
+	}
+	
+	/**Metoda interpreteaza fisierul pe fragmente: firul principal citeste fragmentele si le
+	 * trimite spre analiza sintactica firelor de lucru, apoi aplica fragmentele analizate strict
+	 * in ordinea citirii, astfel incat fisierele de output sunt identice cu cele ale analizei
+	 * secventiale. Cel mult 2*numarFireCompilare fragmente se afla in lucru simultan.
+	 * @throws IOException
+	 * Daca citirea fisierului esueaza.
+	 */
+	private void interpretFragmente() throws IOException{
+		ExecutorService executor = Executors.newFixedThreadPool(numarFireCompilare);
+		ArrayDeque<Future<Fragment>> inLucru = new ArrayDeque<Future<Fragment>>();
+		int indiceLinie = 1;
+		try{
+			Fragment fragment = citesteFragment();
+			while(fragment!=null){
+				Fragment deAnalizat = fragment;
+				inLucru.add(executor.submit(() -> analizeazaFragment(deAnalizat)));
+				if(inLucru.size()>=2*numarFireCompilare){
+					indiceLinie = aplicaFragment(inLucru.poll().get(), indiceLinie);
 				}
+				fragment = citesteFragment();
 			}
-		}else{
-			//Inseamna ca nu avem paranteza dupa d
-			int indexD = indexC+1;
-			int nrparantezeD = 0;
-			char d = linie.charAt(indexD);
-			if(d=='(') nrparantezeD++;
-			while(indexD<linie.length() && (nrparantezeD!=0 ||(Character.isDigit(d)||Character.isLetter(d)) || (indexD==indexC+1 && (d=='+')||(d=='-')))){
-				paramD+=d;
-				sfarsitD=indexD;
-				indexD++;
-				if(indexD<linie.length()) d=linie.charAt(indexD);
-				if(d=='(') nrparantezeD++;
-				if(d==')') nrparantezeD--;
+			while(!inLucru.isEmpty()){
+				indiceLinie = aplicaFragment(inLucru.poll().get(), indiceLinie);
+			}
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Analiza sintactica a fost intrerupta.", e);
+		}catch(ExecutionException e){
+			//Erorile de sintaxa sunt propagate ca in cazul analizei secventiale.
+			if(e.getCause() instanceof RuntimeException){
+				throw (RuntimeException)e.getCause();
 			}
+			throw new IllegalStateException(e.getCause());
+		}finally{
+			executor.shutdownNow();
 		}
-		
-		//Inlocuire cu #((A),(B),(C),(D))
-		String linieNoua=linie.substring(0, inceputA-1) + "#(("+paramA+"),("+paramB+"),("+paramC+"),("+paramD+"))" +linie.substring(sfarsitD+1);
-		//Se continua inlocuirea recursiva a tuturor operatorilor ternari.
-		return parseTernar(linieNoua);
+	}
+	
+	/**Metoda citeste urmatorul fragment de linii din fisier.
+	 * @return
+	 * Fragmentul citit sau null la sfarsitul fisierului.
+	 */
+	private Fragment citesteFragment() throws IOException{
+		Fragment fragment = new Fragment();
+		while(fragment.numarLinii<LINII_FRAGMENT && cititor.urmatoareaLinie()){
+			fragment.linii[fragment.numarLinii++] = cititor.linie().toString();
+		}
+		return fragment.numarLinii==0 ? null : fragment;
+	}
+	
+	/**Metoda analizeaza sintactic liniile unui fragment pe firul de lucru curent.
+	 * Analizatorul sintactic si arborele de parsare sunt proprii fragmentului, iar
+	 * tabela de simboluri si cache-ul de expresii sunt partajate.
+	 */
+	private Fragment analizeazaFragment(Fragment fragment){
+		AnalizatorSintactic sintacticFragment = new AnalizatorSintactic(tabela);
+		ArboreDeParsare arboreFragment = ap==null ? null : new ArboreDeParsare();
+		for(int k=0; k<fragment.numarLinii; k++){
+			fragment.intrari[k] = analizeaza(fragment.linii[k], sintacticFragment, arboreFragment, null);
+			if(as!=null || inregistrare!=null){
+				fragment.instructiuni[k] = instructiune(fragment.linii[k], fragment.intrari[k]);
+			}
+			fragment.linii[k] = null;
+		}
+		return fragment;
+	}
+	
+	/**Metoda aplica secvential liniile unui fragment deja analizat sintactic.
+	 * @return
+	 * Numarul liniei ce urmeaza dupa fragment.
+	 */
+	private int aplicaFragment(Fragment fragment, int indiceLinie){
+		for(int k=0; k<fragment.numarLinii; k++){
+			//Citirea si analiza sintactica au loc pe firele de lucru, deci nu se masoara.
+			if(metrici!=null) metrici.incepeLinie(indiceLinie);
+			Evenimente.LinieInterpretata eveniment = new Evenimente.LinieInterpretata();
+			eveniment.begin();
+			aplica(fragment.instructiuni[k], fragment.intrari[k], indiceLinie++, eveniment);
+		}
+		return indiceLinie;
 	}
 }
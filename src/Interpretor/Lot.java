@@ -0,0 +1,218 @@
+package Interpretor;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**Clasa interpreteaza un lot de fisiere in aceeasi masina virtuala, cate un Interpretor
+ * pentru fiecare fisier, pe un numar limitat de fire de executie. Fiecare fisier isi produce
+ * propriile fisiere de output (_sa, _pt, _ee), iar la final se afiseaza un rezumat al lotului.
+ */
+public class Lot {
+
+	private final List<String> fisiere;
+	private final int concurenta;
+	private final Function<String,Interpretor> fabrica;
+
+	private boolean statistici = false;
+	private boolean masurare = false;
+
+	//Rezultatele ultimei rulari.
+	private int numarEsuate = 0;
+	private long numarLinii = 0;
+	private long durataNanosecunde = 0;
+	//Metricile tuturor fisierelor lotului (null daca interpretoarele nu masoara etapele).
+	private Metrici metrici = null;
+
+	/**Constructorul retine fisierele lotului.
+	 * @param fisiere
+	 * Numele fisierelor de interpretat.
+	 * @param concurenta
+	 * Numarul maxim de fisiere interpretate simultan.
+	 * @param fabrica
+	 * Creeaza si configureaza interpretorul unui fisier, primind numele acestuia.
+	 */
+	public Lot(List<String> fisiere, int concurenta, Function<String,Interpretor> fabrica){
+		this.fisiere=fisiere;
+		this.concurenta=concurenta;
+		this.fabrica=fabrica;
+	}
+
+	/**Metoda stabileste daca dupa fiecare fisier se afiseaza contoarele cache-ului de expresii.
+	 */
+	public void setStatistici(boolean statistici){
+		this.statistici=statistici;
+	}
+
+	/**Metoda stabileste daca la final se afiseaza metricile insumate ale fisierelor lotului;
+	 * interpretoarele create de fabrica trebuie sa masoare etapele.
+	 */
+	public void setMetrici(boolean metrici){
+		this.masurare=metrici;
+	}
+
+	/**Metoda interpreteaza toate fisierele lotului si afiseaza rezumatul. Un fisier ce nu
+	 * poate fi interpretat (de exemplu din cauza unei erori de sintaxa sau a unui Error precum
+	 * StackOverflowError) este raportat si numarat, fara a opri interpretarea celorlalte.
+	 */
+	public void interpret(){
+		ExecutorService executor = Executors.newFixedThreadPool(concurenta);
+		List<Future<Integer>> rezultate = new ArrayList<Future<Integer>>(fisiere.size());
+		metrici = masurare ? new Metrici() : null;
+		if(metrici!=null){
+			metrici.porneste();
+		}
+		long inceput = System.nanoTime();
+		for(String fisier : fisiere){
+			rezultate.add(executor.submit(() -> interpretFisier(fisier)));
+		}
+
+		numarEsuate = 0;
+		numarLinii = 0;
+		try{
+			for(int i=0; i<rezultate.size(); i++){
+				int linii;
+				try{
+					linii = rezultate.get(i).get();
+				}catch(ExecutionException e){
+					//Erorile ce nu sunt RuntimeException (de exemplu StackOverflowError) ajung aici.
+					Throwable cauza = e.getCause();
+					System.out.println("Eroare la interpretarea fisierului " + fisiere.get(i) + ": "
+							+ (cauza.getMessage()!=null ? cauza.getMessage() : cauza.toString()));
+					linii = -1;
+				}
+				if(linii<0){
+					numarEsuate++;
+				}else{
+					numarLinii += linii;
+				}
+			}
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}finally{
+			executor.shutdown();
+		}
+		durataNanosecunde = System.nanoTime()-inceput;
+
+		System.out.println(this);
+		if(metrici!=null){
+			metrici.opreste();
+			System.out.println(metrici);
+		}
+	}
+
+	/**Metoda interpreteaza un singur fisier al lotului.
+	 * @return
+	 * Numarul de linii interpretate sau -1 daca interpretarea a esuat.
+	 */
+	private int interpretFisier(String fisier){
+		try{
+			Interpretor inter = fabrica.apply(fisier);
+			inter.interpret();
+			if(metrici!=null && inter.getMetrici()!=null){
+				metrici.adauga(inter.getMetrici());
+			}
+			if(statistici){
+				System.out.println(fisier + ": " + inter.getCacheExpresii());
+				if(inter.getOptimizator()!=null){
+					System.out.println(fisier + ": " + inter.getOptimizator());
+				}
+				if(inter.getNumerotareValori()!=null){
+					System.out.println(fisier + ": " + inter.getNumerotareValori());
+				}
+				if(inter.getInterogare()!=null){
+					System.out.println(fisier + ": " + inter.getInterogare());
+				}
+				if(inter.getMotorJVM()!=null){
+					System.out.println(fisier + ": " + inter.getMotorJVM());
+				}
+				if(inter.getPrecompilare()!=null){
+					System.out.println(fisier + ": " + inter.getPrecompilare());
+				}
+			}
+			return inter.getNumarLinii();
+		}catch(RuntimeException e){
+			System.out.println("Eroare la interpretarea fisierului " + fisier + ": " + e.getMessage());
+			return -1;
+		}
+	}
+
+	public int getNumarEsuate(){
+		return numarEsuate;
+	}
+
+	public long getNumarLinii(){
+		return numarLinii;
+	}
+
+	@Override
+	public String toString(){
+		double secunde = durataNanosecunde/1e9;
+		return String.format("lot: fisiere=%d esuate=%d linii=%d timp=%.3fs debit=%.1f fisiere/s %.0f linii/s",
+				fisiere.size(), numarEsuate, numarLinii, secunde, fisiere.size()/secunde, numarLinii/secunde);
+	}
+
+	/**Metoda transforma un argument din linia de comanda in lista fisierelor desemnate de acesta:
+	 * un director este parcurs recursiv (fara fisierele de output _sa, _pt, _ee), un sablon ce
+	 * contine * sau ? este aplicat numelor din directorul sau, iar orice alt argument este
+	 * considerat numele unui fisier.
+	 * @param argument
+	 * Fisierul, directorul sau sablonul.
+	 * @return
+	 * Numele fisierelor, in ordine lexicografica pentru directoare si sabloane.
+	 * @throws IOException
+	 * Daca directorul nu poate fi parcurs.
+	 */
+	public static List<String> extinde(String argument) throws IOException{
+		List<String> rezultat = new ArrayList<String>();
+		Path cale = Paths.get(argument);
+		if(Files.isDirectory(cale)){
+			try(Stream<Path> fisiere = Files.walk(cale)){
+				rezultat = fisiere.filter(Files::isRegularFile)
+						.filter(f -> !esteFisierOutput(f))
+						.map(Path::toString)
+						.sorted()
+						.collect(Collectors.toList());
+			}
+		}else if(argument.indexOf('*')!=-1 || argument.indexOf('?')!=-1){
+			Path director = cale.getParent()==null ? Paths.get(".") : cale.getParent();
+			try(DirectoryStream<Path> fisiere = Files.newDirectoryStream(director, cale.getFileName().toString())){
+				for(Path fisier : fisiere){
+					if(Files.isRegularFile(fisier) && !esteFisierOutput(fisier)){
+						rezultat.add(cale.getParent()==null ? fisier.getFileName().toString() : fisier.toString());
+					}
+				}
+			}
+			rezultat.sort(null);
+		}else{
+			rezultat.add(argument);
+		}
+		return rezultat;
+	}
+
+	/**Metoda stabileste daca un fisier a fost produs de interpretor (numele, fara extensie,
+	 * se termina in _sa, _pt sau _ee, ori este un fisier precompilat .ipc).
+	 */
+	private static boolean esteFisierOutput(Path fisier){
+		String nume = fisier.getFileName().toString();
+		if(nume.endsWith(".ipc")){
+			return true;
+		}
+		int pozitiePunctExtensie = nume.indexOf('.');
+		if(pozitiePunctExtensie!=-1){
+			nume = nume.substring(0, pozitiePunctExtensie);
+		}
+		return nume.endsWith("_sa") || nume.endsWith("_pt") || nume.endsWith("_ee");
+	}
+}
@@ -1,12 +1,227 @@
 package Interpretor;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
 public class MainClass {
 	public static void main(String[] args){
-		if(args.length==0){
+		List<String> argumenteFisiere = new ArrayList<String>();
+		int dimensiuneCache = Interpretor.DIMENSIUNE_CACHE_IMPLICITA;
+		boolean statistici = false;
+		int numarFire = 0;
+		int numarFireCompilare = 0;
+		int concurenta = Runtime.getRuntime().availableProcessors();
+		int etape = Interpretor.TOATE_ETAPELE;
+		boolean optimizare = false;
+		boolean subexpresii = false;
+		String[] variabile = null;
+		boolean urmarire = false;
+		int motor = Interpretor.MOTOR_STIVA;
+		String adresaServer = null;
+		boolean precompilare = false;
+		String directorPrecompilare = null;
+		boolean metrici = false;
+		int aritmetica = Evaluator.ARITMETICA_MODULARA;
+		
+		//Se separa optiunile (ce incep cu -) de numele fisierelor.
+		for(String arg : args){
+			if(arg.startsWith("-cache=")){
+				dimensiuneCache = Integer.parseInt(arg.substring("-cache=".length()));
+			}else if(arg.equals("-statistici")){
+				statistici = true;
+			}else if(arg.equals("-paralel")){
+				numarFire = Runtime.getRuntime().availableProcessors();
+			}else if(arg.startsWith("-paralel=")){
+				numarFire = Integer.parseInt(arg.substring("-paralel=".length()));
+			}else if(arg.startsWith("-compilare=")){
+				numarFireCompilare = Integer.parseInt(arg.substring("-compilare=".length()));
+			}else if(arg.startsWith("-concurenta=")){
+				concurenta = Integer.parseInt(arg.substring("-concurenta=".length()));
+			}else if(arg.startsWith("-etape=")){
+				etape = 0;
+				for(String etapa : arg.substring("-etape=".length()).split(",")){
+					if(etapa.equals("sa")){
+						etape |= Interpretor.ETAPA_SEMANTICA;
+					}else if(etapa.equals("pt")){
+						etape |= Interpretor.ETAPA_ARBORE;
+					}else if(etapa.equals("ee")){
+						etape |= Interpretor.ETAPA_EVALUARE;
+					}else{
+						System.out.println("Etapa necunoscuta: " + etapa + " (se accepta sa, pt, ee)");
+						return;
+					}
+				}
+			}else if(arg.equals("-optimizare=da") || arg.equals("-optimizare=nu")){
+				optimizare = arg.endsWith("da");
+			}else if(arg.equals("-subexpresii")){
+				subexpresii = true;
+			}else if(arg.startsWith("-variabile=")){
+				variabile = arg.substring("-variabile=".length()).split(",");
+			}else if(arg.equals("-motor=stiva") || arg.equals("-motor=jvm")){
+				motor = arg.endsWith("jvm") ? Interpretor.MOTOR_JVM : Interpretor.MOTOR_STIVA;
+			}else if(arg.equals("-aritmetica=modulara")){
+				aritmetica = Evaluator.ARITMETICA_MODULARA;
+			}else if(arg.equals("-aritmetica=exacta")){
+				aritmetica = Evaluator.ARITMETICA_EXACTA;
+			}else if(arg.equals("-aritmetica=eroare")){
+				aritmetica = Evaluator.ARITMETICA_EROARE;
+			}else if(arg.equals("-urmarire")){
+				urmarire = true;
+			}else if(arg.equals("-precompilat")){
+				precompilare = true;
+			}else if(arg.startsWith("-precompilat=")){
+				precompilare = true;
+				directorPrecompilare = arg.substring("-precompilat=".length());
+			}else if(arg.equals("-metrici")){
+				metrici = true;
+			}else if(arg.startsWith("-server=")){
+				adresaServer = arg.substring("-server=".length());
+			}else if(arg.startsWith("-")){
+				System.out.println("Optiune necunoscuta: " + arg);
+				return;
+			}else{
+				argumenteFisiere.add(arg);
+			}
+		}
+		
+		//Aritmetica exacta si cea cu eroare se aplica doar evaluarii secventiale pe stiva.
+		if(aritmetica!=Evaluator.ARITMETICA_MODULARA){
+			String incompatibila = variabile!=null ? "-variabile" : motor==Interpretor.MOTOR_JVM ? "-motor=jvm"
+					: numarFire>0 ? "-paralel" : subexpresii ? "-subexpresii" : urmarire ? "-urmarire"
+					: adresaServer!=null ? "-server" : null;
+			if(incompatibila!=null){
+				System.out.println("Optiunea -aritmetica=" + (aritmetica==Evaluator.ARITMETICA_EXACTA ? "exacta" : "eroare")
+						+ " nu poate fi folosita impreuna cu " + incompatibila + ".");
+				return;
+			}
+		}
+		
+		//Modul urmarire analizeaza pe firul principal si evalueaza secvential pe stiva, fara optimizari.
+		if(urmarire){
+			String incompatibila = optimizare ? "-optimizare=da" : subexpresii ? "-subexpresii" : numarFire>0 ? "-paralel"
+					: motor==Interpretor.MOTOR_JVM ? "-motor=jvm" : precompilare ? "-precompilat" : variabile!=null ? "-variabile"
+					: numarFireCompilare>0 ? "-compilare" : metrici ? "-metrici" : adresaServer!=null ? "-server" : null;
+			if(incompatibila!=null){
+				System.out.println("Optiunea -urmarire nu poate fi folosita impreuna cu " + incompatibila + ".");
+				return;
+			}
+		}
+		
+		//In modul server nu se dau fisiere: instructiunile sunt primite prin conexiuni locale.
+		if(adresaServer!=null){
+			Server server = new Server(Server.adresa(adresaServer));
+			if(statistici){
+				Runtime.getRuntime().addShutdownHook(new Thread(() -> System.out.println(server)));
+			}
+			try{
+				server.porneste();
+			}catch(IOException e){
+				System.out.println("Serverul nu a putut porni: " + e.getMessage());
+			}
+			return;
+		}
+		
+		if(argumenteFisiere.isEmpty()){
 			System.out.println("Parametrul obligatoriu este numele fisierului ce contine secventa de comenzi de interpretat.");
+			System.out.println("Se pot da si mai multe fisiere, directoare sau sabloane (*.txt), interpretate ca lot.");
+			System.out.println("Optiuni: -cache=N (numarul de expresii retinute in cache, 0 il dezactiveaza), -paralel[=N] (evaluare pe N fire de executie),");
+			System.out.println("         -compilare=N (analiza sintactica pe N fire de executie), -concurenta=N (fisiere interpretate simultan),");
+			System.out.println("         -etape=sa,pt,ee (fisierele de output produse), -optimizare=da|nu,");
+			System.out.println("         -subexpresii (refolosirea subexpresiilor comune), -motor=stiva|jvm (motorul de evaluare),");
+			System.out.println("         -variabile=x,y (evalueaza doar liniile necesare variabilelor cerute),");
+			System.out.println("         -aritmetica=modulara|exacta|eroare (rezultatele ce nu incap pe int: reduse, exacte sau linii eronate;");
+			System.out.println("         exacta si eroare nu se combina cu -variabile, -motor=jvm, -paralel, -subexpresii, -urmarire, -server),");
+			System.out.println("         -urmarire (reinterpreteaza incremental fisierul la fiecare modificare; se combina doar cu -cache si -etape),");
+			System.out.println("         -statistici,");
+			System.out.println("         -precompilat[=director] (refoloseste forma compilata a unei surse nemodificate, langa sursa sau in director),");
+			System.out.println("         -metrici (durata etapelor, expusa prin JMX in timpul rularii si afisata la final),");
+			System.out.println("         -server=port|cale (mod server pe un port local sau un socket Unix, fara fisiere)");
+			return;
+		}
+		
+		List<String> fisiere = new ArrayList<String>();
+		try{
+			for(String argument : argumenteFisiere){
+				fisiere.addAll(Lot.extinde(argument));
+			}
+		}catch(IOException e){
+			System.out.println("Nu s-a putut parcurge directorul: " + e.getMessage());
+			return;
+		}
+		
+		//In modul urmarire fisierul este reinterpretat la fiecare modificare, pana la oprirea programului.
+		if(urmarire){
+			if(fisiere.size()!=1){
+				System.out.println("Modul urmarire primeste un singur fisier.");
+				return;
+			}
+			try{
+				new Urmarire(fisiere.get(0), etape, dimensiuneCache).urmareste();
+			}catch(IOException e){
+				System.out.println("Nu s-a putut urmari fisierul: " + e.getMessage());
+			}
 			return;
 		}
-		Interpretor inter = new Interpretor(args[0]);
-		inter.interpret();
+		
+		final int cache = dimensiuneCache, fire = numarFire, fireCompilare = numarFireCompilare, etapeAlese = etape;
+		final boolean optimizeaza = optimizare, refolosesteSubexpresii = subexpresii;
+		final String[] variabileCerute = variabile;
+		final int motorEvaluare = motor, aritmeticaEvaluare = aritmetica;
+		final String directorPrecompilat = precompilare ? (directorPrecompilare==null ? "" : directorPrecompilare) : null;
+		final boolean masurare = metrici;
+		
+		//Un singur fisier dat explicit se interpreteaza direct, fara rezumat.
+		if(argumenteFisiere.size()==1 && fisiere.size()==1 && fisiere.get(0).equals(argumenteFisiere.get(0))){
+			Interpretor inter = creeazaInterpretor(fisiere.get(0), cache, fire, fireCompilare, etapeAlese, optimizeaza, refolosesteSubexpresii, variabileCerute, motorEvaluare, aritmeticaEvaluare, directorPrecompilat, masurare);
+			inter.interpret();
+			
+			if(inter.getMetrici()!=null){
+				System.out.println(inter.getMetrici());
+			}
+			if(statistici){
+				System.out.println(inter.getCacheExpresii());
+				if(inter.getOptimizator()!=null){
+					System.out.println(inter.getOptimizator());
+				}
+				if(inter.getNumerotareValori()!=null){
+					System.out.println(inter.getNumerotareValori());
+				}
+				if(inter.getInterogare()!=null){
+					System.out.println(inter.getInterogare());
+				}
+				if(inter.getMotorJVM()!=null){
+					System.out.println(inter.getMotorJVM());
+				}
+				if(inter.getPrecompilare()!=null){
+					System.out.println(inter.getPrecompilare());
+				}
+			}
+			return;
+		}
+		
+		Lot lot = new Lot(fisiere, concurenta, fisier -> creeazaInterpretor(fisier, cache, fire, fireCompilare, etapeAlese, optimizeaza, refolosesteSubexpresii, variabileCerute, motorEvaluare, aritmeticaEvaluare, directorPrecompilat, masurare));
+		lot.setStatistici(statistici);
+		lot.setMetrici(metrici);
+		lot.interpret();
+	}
+	
+	private static Interpretor creeazaInterpretor(String numeFisier, int dimensiuneCache, int numarFire, int numarFireCompilare, int etape, boolean optimizare, boolean subexpresii, String[] variabile, int motor, int aritmetica, String precompilare, boolean metrici){
+		Interpretor inter = new Interpretor(numeFisier);
+		inter.setEtape(etape);
+		inter.setOptimizare(optimizare);
+		inter.setSubexpresiiComune(subexpresii);
+		inter.setInterogare(variabile);
+		inter.setMotor(motor);
+		inter.setAritmetica(aritmetica);
+		if(precompilare!=null){
+			//Sirul vid inseamna fisierul precompilat de langa sursa.
+			inter.setPrecompilare(precompilare.isEmpty() ? null : precompilare);
+		}
+		inter.setMetrici(metrici);
+		inter.setDimensiuneCache(dimensiuneCache);
+		inter.setParalel(numarFire);
+		inter.setCompilareParalela(numarFireCompilare);
+		return inter;
 	}
 }
@@ -0,0 +1,332 @@
+package Interpretor;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**Clasa masoara durata etapelor interpretarii unui fisier: citirea liniei, analiza sintactica,
+ * construirea afisarii arborelui de parsare, analiza semantica, scrierea arborelui de parsare,
+ * compilarea, evaluarea si scrierile efective in fisierele de output. Numara de asemenea
+ * liniile, liniile eronate si octetii scrisi in fiecare fisier de output.
+ * <p>
+ * Pentru ca masurarea sa nu incetineasca interpretarea, duratele etapelor se masoara doar pe
+ * una din ESANTIONARE linii; duratele totale sunt estimate din acest esantion. Distributia
+ * duratelor fiecarei etape este retinuta intr-o histograma cu 8 intervale pentru fiecare putere
+ * a lui 2 (eroare relativa de cel mult 12.5% la percentile).
+ * <p>
+ * Metricile sunt scrise doar de firul de executie ce interpreteaza fisierul; citirile prin JMX
+ * de pe alte fire pot vedea valori usor intarziate, ceea ce este suficient pentru monitorizare.
+ */
+public class Metrici implements MetriciMBean {
+
+	public static final int CITIRE = 0;
+	public static final int SINTACTICA = 1;
+	public static final int ARBORE = 2;
+	public static final int SEMANTICA = 3;
+	public static final int AFISARE = 4;
+	public static final int COMPILARE = 5;
+	public static final int EVALUARE = 6;
+	//Scrierile in fisierele de output; acestea sunt masurate toate, nu doar pe liniile esantionate.
+	public static final int SCRIERE = 7;
+
+	private static final String[] NUME_ETAPE = {"citire", "sintactica", "arbore", "semantica", "afisare", "compilare", "evaluare", "scriere"};
+
+	//Se masoara o linie din ESANTIONARE (putere a lui 2).
+	public static final int ESANTIONARE = 8;
+
+	//Fisierele de output.
+	public static final int FISIER_SA = 0;
+	public static final int FISIER_PT = 1;
+	public static final int FISIER_EE = 2;
+
+	private static final int NUMAR_INTERVALE = 61*8;
+
+	private final long[] numar = new long[NUME_ETAPE.length];
+	private final long[] durata = new long[NUME_ETAPE.length];
+	private final long[] maxim = new long[NUME_ETAPE.length];
+	private final long[][] histograma = new long[NUME_ETAPE.length][NUMAR_INTERVALE];
+
+	private long linii = 0;
+	private long liniiEronate = 0;
+
+	private final FluxNumarat[] fluxuri = new FluxNumarat[3];
+	//Octetii scrisi de fluxurile altor metrici adunate in acestea.
+	private final long[] octetiAdunati = new long[3];
+
+	private long inceput = 0;
+	private long sfarsit = 0;
+
+	//Linia curenta este masurata, iar momentul de la care se masoara etapa urmatoare.
+	private boolean esantion = false;
+	private long moment = 0;
+
+	private ObjectName numeJMX = null;
+
+	/**Metoda marcheaza inceputul interpretarii.
+	 */
+	public void porneste(){
+		inceput = System.nanoTime();
+		sfarsit = 0;
+	}
+
+	/**Metoda marcheaza sfarsitul interpretarii; debitul se calculeaza pana in acest moment.
+	 */
+	public void opreste(){
+		sfarsit = System.nanoTime();
+	}
+
+	/**Metoda asociaza metricilor fluxul unui fisier de output, pentru numararea octetilor
+	 * si masurarea scrierilor.
+	 * @param fisier
+	 * FISIER_SA, FISIER_PT sau FISIER_EE.
+	 * @param flux
+	 * Fluxul fisierului (null daca fisierul nu este produs).
+	 */
+	public void setFlux(int fisier, FluxNumarat flux){
+		fluxuri[fisier] = flux;
+		if(flux!=null){
+			flux.setMetrici(this);
+		}
+	}
+
+	/**Metoda marcheaza inceputul unei linii (inaintea citirii ei) si stabileste daca
+	 * etapele acesteia se masoara.
+	 * @param indiceLinie
+	 * Numarul liniei ce urmeaza.
+	 */
+	public void incepeLinie(int indiceLinie){
+		esantion = (indiceLinie & (ESANTIONARE-1))==0;
+		if(esantion){
+			moment = System.nanoTime();
+		}
+	}
+
+	/**Metoda marcheaza sfarsitul unei etape a liniei curente; durata ei este cea scursa de la
+	 * sfarsitul etapei precedente (sau de la inceputul liniei).
+	 * @param etapa
+	 * Etapa incheiata.
+	 */
+	public void etapa(int etapa){
+		if(esantion){
+			long acum = System.nanoTime();
+			inregistreaza(etapa, acum-moment);
+			moment = acum;
+		}
+	}
+
+	/**Metoda numara o linie aplicata.
+	 */
+	public void linie(){
+		linii++;
+	}
+
+	/**Metoda numara o linie incorecta semantic.
+	 */
+	public void eroare(){
+		liniiEronate++;
+	}
+
+	/**Metoda inregistreaza o durata masurata a unei etape.
+	 * @param etapa
+	 * Etapa masurata.
+	 * @param nanosecunde
+	 * Durata masurata.
+	 */
+	public void inregistreaza(int etapa, long nanosecunde){
+		numar[etapa]++;
+		durata[etapa] += nanosecunde;
+		if(nanosecunde>maxim[etapa]){
+			maxim[etapa] = nanosecunde;
+		}
+		histograma[etapa][interval(nanosecunde)]++;
+	}
+
+	/**Metoda intoarce intervalul histogramei in care cade o durata: duratele sub 8ns au cate
+	 * un interval, iar fiecare putere a lui 2 de la 8 in sus este impartita in 8 intervale egale.
+	 */
+	private static int interval(long nanosecunde){
+		if(nanosecunde<8){
+			return nanosecunde<0 ? 0 : (int)nanosecunde;
+		}
+		int exponent = 63-Long.numberOfLeadingZeros(nanosecunde);
+		int mantisa = (int)(nanosecunde>>>(exponent-3)) & 7;
+		return ((exponent-2)<<3) | mantisa;
+	}
+
+	/**Metoda intoarce mijlocul unui interval al histogramei.
+	 */
+	private static long valoare(int interval){
+		if(interval<8){
+			return interval;
+		}
+		int exponent = (interval>>>3)+2;
+		long latime = 1L<<(exponent-3);
+		long inceputInterval = (8L+(interval & 7))*latime;
+		return inceputInterval + latime/2;
+	}
+
+	/**Metoda aduna in aceste metrici metricile unui alt interpretor (de exemplu pentru
+	 * rezumatul unui lot). Durata interpretarii nu se aduna; ea se marcheaza separat.
+	 */
+	public synchronized void adauga(Metrici alte){
+		for(int e=0; e<NUME_ETAPE.length; e++){
+			numar[e] += alte.numar[e];
+			durata[e] += alte.durata[e];
+			maxim[e] = Math.max(maxim[e], alte.maxim[e]);
+			for(int i=0; i<NUMAR_INTERVALE; i++){
+				histograma[e][i] += alte.histograma[e][i];
+			}
+		}
+		linii += alte.linii;
+		liniiEronate += alte.liniiEronate;
+		for(int f=0; f<octetiAdunati.length; f++){
+			octetiAdunati[f] += alte.getOcteti(f);
+		}
+	}
+
+	/**Metoda inregistreaza metricile ca MBean pe serverul platformei. O eroare la inregistrare
+	 * este doar semnalata, interpretarea continuand fara expunere prin JMX.
+	 * @param fisier
+	 * Numele fisierului interpretat, ce apare in numele MBean-ului.
+	 */
+	public void inregistreazaJMX(String fisier){
+		try{
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			numeJMX = new ObjectName("Interpretor:type=Metrici,fisier=" + ObjectName.quote(fisier));
+			server.registerMBean(this, numeJMX);
+		}catch(JMException e){
+			System.out.println("Metricile nu au putut fi expuse prin JMX: " + e.getMessage());
+			numeJMX = null;
+		}
+	}
+
+	/**Metoda retrage MBean-ul inregistrat de inregistreazaJMX.
+	 */
+	public void retrageJMX(){
+		if(numeJMX==null){
+			return;
+		}
+		try{
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(numeJMX);
+		}catch(JMException e){
+			System.out.println("Metricile nu au putut fi retrase din JMX: " + e.getMessage());
+		}
+		numeJMX = null;
+	}
+
+	private long getOcteti(int fisier){
+		return octetiAdunati[fisier] + (fluxuri[fisier]==null ? 0 : fluxuri[fisier].getOcteti());
+	}
+
+	/**Metoda estimeaza durata totala a unei etape pe toate liniile.
+	 */
+	private long durataEstimata(int etapa){
+		return etapa==SCRIERE ? durata[etapa] : durata[etapa]*ESANTIONARE;
+	}
+
+	private double secunde(){
+		return ((sfarsit==0 ? System.nanoTime() : sfarsit)-inceput)/1e9;
+	}
+
+	@Override
+	public long getLinii(){
+		return linii;
+	}
+
+	@Override
+	public long getLiniiEronate(){
+		return liniiEronate;
+	}
+
+	@Override
+	public double getLiniiPeSecunda(){
+		double secunde = secunde();
+		return secunde>0 ? linii/secunde : 0;
+	}
+
+	@Override
+	public long getOctetiSA(){
+		return getOcteti(FISIER_SA);
+	}
+
+	@Override
+	public long getOctetiPT(){
+		return getOcteti(FISIER_PT);
+	}
+
+	@Override
+	public long getOctetiEE(){
+		return getOcteti(FISIER_EE);
+	}
+
+	@Override
+	public String[] getEtape(){
+		return NUME_ETAPE.clone();
+	}
+
+	@Override
+	public double[] getDurateMedii(){
+		double[] medii = new double[NUME_ETAPE.length];
+		for(int e=0; e<medii.length; e++){
+			medii[e] = numar[e]==0 ? 0 : (double)durata[e]/numar[e];
+		}
+		return medii;
+	}
+
+	@Override
+	public long percentila(String etapa, double p){
+		for(int e=0; e<NUME_ETAPE.length; e++){
+			if(NUME_ETAPE[e].equals(etapa)){
+				return percentila(e, p);
+			}
+		}
+		throw new IllegalArgumentException("Etapa necunoscuta: " + etapa);
+	}
+
+	private long percentila(int etapa, double p){
+		if(numar[etapa]==0){
+			return 0;
+		}
+		long rang = Math.max(1, (long)Math.ceil(p*numar[etapa]));
+		long cumulat = 0;
+		for(int i=0; i<NUMAR_INTERVALE; i++){
+			cumulat += histograma[etapa][i];
+			if(cumulat>=rang){
+				return Math.min(valoare(i), maxim[etapa]);
+			}
+		}
+		return maxim[etapa];
+	}
+
+	@Override
+	public String getRaport(){
+		return toString();
+	}
+
+	@Override
+	public String toString(){
+		StringBuilder raport = new StringBuilder();
+		double secunde = secunde();
+		raport.append(String.format(Locale.ROOT, "metrici: linii=%d eronate=%d timp=%.3fs debit=%.0f linii/s%n",
+				linii, liniiEronate, secunde, getLiniiPeSecunda()));
+		long total = 0;
+		for(int e=0; e<SCRIERE; e++){
+			total += durataEstimata(e);
+		}
+		raport.append(String.format(Locale.ROOT, "  %-10s %10s %10s %8s %8s %8s %10s %10s %6s%n",
+				"etapa", "masurari", "medie(ns)", "p50", "p90", "p99", "max", "total(ms)", "%"));
+		for(int e=0; e<NUME_ETAPE.length; e++){
+			double medie = numar[e]==0 ? 0 : (double)durata[e]/numar[e];
+			//Scrierile au loc in timpul altor etape, deci nu intra in total.
+			String pondere = e==SCRIERE || total==0 ? "-" : String.format(Locale.ROOT, "%.1f", 100.0*durataEstimata(e)/total);
+			raport.append(String.format(Locale.ROOT, "  %-10s %10d %10.0f %8d %8d %8d %10d %10.1f %6s%n",
+					NUME_ETAPE[e], numar[e], medie, percentila(e, 0.50), percentila(e, 0.90), percentila(e, 0.99),
+					maxim[e], durataEstimata(e)/1e6, pondere));
+		}
+		raport.append("  octeti scrisi: sa=" + getOctetiSA() + " pt=" + getOctetiPT() + " ee=" + getOctetiEE());
+		return raport.toString();
+	}
+}
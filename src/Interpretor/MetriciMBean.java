@@ -0,0 +1,33 @@
+package Interpretor;
+
+/**Interfata prin care metricile unui interpretor sunt expuse prin JMX, sub numele
+ * Interpretor:type=Metrici,fisier="..." cat timp fisierul este interpretat.
+ */
+public interface MetriciMBean {
+
+	long getLinii();
+
+	long getLiniiEronate();
+
+	double getLiniiPeSecunda();
+
+	long getOctetiSA();
+
+	long getOctetiPT();
+
+	long getOctetiEE();
+
+	String[] getEtape();
+
+	/**Durata medie a fiecarei etape, in nanosecunde, in ordinea din getEtape.
+	 */
+	double[] getDurateMedii();
+
+	/**Raportul complet, acelasi cu cel afisat la sfarsitul interpretarii.
+	 */
+	String getRaport();
+
+	/**Percentila p (intre 0 si 1) a duratei unei etape, in nanosecunde.
+	 */
+	long percentila(String etapa, double p);
+}
@@ -0,0 +1,725 @@
+package Interpretor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+/**Clasa traduce intregul script in bytecode JVM si il executa ca o clasa ascunsa (hidden class),
+ * astfel incat aritmetica este executata direct de masina virtuala, fara interpretorul pe stiva.
+ * <p>
+ * Liniile sunt impartite in bucati consecutive; fiecare bucata devine o metoda statica
+ * void bN(int[] v, int[] r). Variabilele folosite in bucata devin variabile locale, incarcate din
+ * tabelul de valori v la inceputul metodei si scrise inapoi la sfarsit, rezultatul fiecarei linii
+ * este scris in r, iar operatorul ternar devine un salt conditionat. Metodele sunt grupate in clase
+ * pana la umplerea bazinului de constante. Fiecare metoda are o tabela StackMapTable (un cadru la
+ * fiecare destinatie de salt), astfel incat verificarea claselor este liniara. O linie al carei cod nu incape intr-o metoda,
+ * precum si liniile unei clase respinse la incarcare, sunt executate de interpretorul pe stiva.
+ */
+public class MotorJVM {
+
+	//Limitele impuse de formatul clasei: cod sub 64KB pe metoda, salturi pe 16 biti, bazin sub 65535 intrari.
+	private static final int LUNGIME_MAXIMA_LINIE = 30000;
+	private static final int LUNGIME_MAXIMA_METODA = 65535;
+	private static final int LINII_MAXIME_METODA = 64;
+	private static final int CONSTANTE_MAXIME_CLASA = 50000;
+
+	private static final MethodType TIP_BUCATA = MethodType.methodType(void.class, int[].class, int[].class);
+
+	//Codurile de operatie JVM folosite.
+	private static final int ICONST_0 = 0x03;
+	private static final int BIPUSH = 0x10;
+	private static final int SIPUSH = 0x11;
+	private static final int LDC = 0x12;
+	private static final int LDC_W = 0x13;
+	private static final int ILOAD = 0x15;
+	private static final int ALOAD_0 = 0x2a;
+	private static final int ALOAD_1 = 0x2b;
+	private static final int IALOAD = 0x2e;
+	private static final int ISTORE = 0x36;
+	private static final int IASTORE = 0x4f;
+	private static final int IADD = 0x60;
+	private static final int ISUB = 0x64;
+	private static final int IMUL = 0x68;
+	private static final int INEG = 0x74;
+	private static final int IF_ICMPLE = 0xa4;
+	private static final int GOTO = 0xa7;
+	private static final int RETURN = 0xb1;
+	private static final int WIDE = 0xc4;
+
+	//Starile nodurilor de pe stiva emiterii: intrarea in nod si punctele de dupa operanzi.
+	private static final int INTRARE = -1;
+	private static final int IESIRE = 0;
+	private static final int DUPA_CONDITIE = 1;
+	private static final int DUPA_C = 2;
+	private static final int DUPA_D = 3;
+
+	/**Clasa interna ce modeleaza o bucata de linii consecutive executata de o metoda generata
+	 * (sau o singura linie executata de interpretorul pe stiva, daca metoda este null).
+	 */
+	private static class Bucata{
+		final int inceput, sfarsit;
+		final Clasa clasa;
+		final String metoda;
+		MethodHandle handle;
+
+		Bucata(int inceput, int sfarsit, Clasa clasa, String metoda){
+			this.inceput=inceput;
+			this.sfarsit=sfarsit;
+			this.clasa=clasa;
+			this.metoda=metoda;
+		}
+	}
+
+	/**Clasa interna ce construieste fisierul unei clase: bazinul de constante si metodele.
+	 */
+	private static class Clasa{
+		private final ByteArrayOutputStream constante = new ByteArrayOutputStream();
+		private final ByteArrayOutputStream metode = new ByteArrayOutputStream();
+		private final HashMap<Object,Integer> indici = new HashMap<Object,Integer>();
+		private int numarConstante = 1;
+		private int numarMetode = 0;
+		private final int indiceClasa, indiceSuper, indiceDescriptor, indiceCode, indiceCadre, indiceTablou;
+		MethodHandles.Lookup lookup;
+
+		Clasa(){
+			indiceClasa = clasa("Interpretor/ScriptJVM");
+			indiceSuper = clasa("java/lang/Object");
+			indiceDescriptor = utf8("([I[I)V");
+			indiceCode = utf8("Code");
+			indiceCadre = utf8("StackMapTable");
+			indiceTablou = clasa("[I");
+		}
+
+		int utf8(String text){
+			Integer indice = indici.get(text);
+			if(indice==null){
+				DataOutputStream iesire = new DataOutputStream(constante);
+				try{
+					iesire.writeByte(1);
+					iesire.writeUTF(text);
+				}catch(IOException e){
+					throw new IllegalStateException(e);
+				}
+				indice = numarConstante++;
+				indici.put(text, indice);
+			}
+			return indice;
+		}
+
+		int clasa(String nume){
+			int indiceNume = utf8(nume);
+			constante.write(7);
+			scrieU2(constante, indiceNume);
+			return numarConstante++;
+		}
+
+		int intreg(int valoare){
+			Integer indice = indici.get(valoare);
+			if(indice==null){
+				constante.write(3);
+				scrieU4(constante, valoare);
+				indice = numarConstante++;
+				indici.put(valoare, indice);
+			}
+			return indice;
+		}
+
+		int numarConstante(){
+			return numarConstante;
+		}
+
+		/**Metoda adauga o metoda publica si statica cu descriptorul ([I[I)V.
+		 * @param cadre
+		 * Cadrele tabelei StackMapTable, deja codificate.
+		 * @param numarCadre
+		 * Numarul de cadre (0 daca metoda nu contine salturi).
+		 */
+		void adaugaMetoda(String nume, byte[] cod, int lungimeCod, int stivaMaxima, int localeMaxime, byte[] cadre, int numarCadre){
+			int lungimeCadre = numarCadre==0 ? 0 : 8 + cadre.length;
+			scrieU2(metode, 0x0009);
+			scrieU2(metode, utf8(nume));
+			scrieU2(metode, indiceDescriptor);
+			scrieU2(metode, 1);
+			scrieU2(metode, indiceCode);
+			scrieU4(metode, 12 + lungimeCod + lungimeCadre);
+			scrieU2(metode, stivaMaxima);
+			scrieU2(metode, localeMaxime);
+			scrieU4(metode, lungimeCod);
+			metode.write(cod, 0, lungimeCod);
+			scrieU2(metode, 0);
+			if(numarCadre==0){
+				scrieU2(metode, 0);
+			}else{
+				scrieU2(metode, 1);
+				scrieU2(metode, indiceCadre);
+				scrieU4(metode, 2 + cadre.length);
+				scrieU2(metode, numarCadre);
+				metode.write(cadre, 0, cadre.length);
+			}
+			numarMetode++;
+		}
+
+		int indiceTablou(){
+			return indiceTablou;
+		}
+
+		byte[] octeti(){
+			ByteArrayOutputStream clasa = new ByteArrayOutputStream(constante.size() + metode.size() + 32);
+			scrieU4(clasa, 0xCAFEBABE);
+			scrieU2(clasa, 0);
+			scrieU2(clasa, 52);
+			scrieU2(clasa, numarConstante);
+			clasa.write(constante.toByteArray(), 0, constante.size());
+			scrieU2(clasa, 0x0031);
+			scrieU2(clasa, indiceClasa);
+			scrieU2(clasa, indiceSuper);
+			scrieU2(clasa, 0);
+			scrieU2(clasa, 0);
+			scrieU2(clasa, numarMetode);
+			clasa.write(metode.toByteArray(), 0, metode.size());
+			scrieU2(clasa, 0);
+			return clasa.toByteArray();
+		}
+
+		private static void scrieU2(ByteArrayOutputStream iesire, int valoare){
+			iesire.write(valoare>>>8);
+			iesire.write(valoare);
+		}
+
+		private static void scrieU4(ByteArrayOutputStream iesire, int valoare){
+			scrieU2(iesire, valoare>>>16);
+			scrieU2(iesire, valoare);
+		}
+	}
+
+	//Liniile scriptului: slotul variabilei atribuite (-1 pentru liniile incorecte), arborele si forma compilata.
+	private int numarLinii = 0;
+	private int[] sloturi = new int[1024];
+	private Expresie[] expresii = new Expresie[1024];
+	private ExpresieCompilata[] coduri = new ExpresieCompilata[1024];
+
+	//Starea metodei in curs de generare.
+	private Clasa clasa = null;
+	private byte[] corp = new byte[1024];
+	private int lungimeCorp = 0;
+	//Lungimea codului de incarcare a variabilelor locale si de scriere inapoi, plus instructiunea return.
+	private int lungimeCapete = 0;
+	private int adancime = 0;
+	private int adancimeMaxima = 0;
+	private int[] locale = new int[16];
+	private int[] sloturiFolosite = new int[16];
+	private int numarLocale = 0;
+	private final BitSet atribuite = new BitSet();
+	//Starea metodei inaintea liniei in curs de generare.
+	private int inceputLinie = 0;
+	private int tinteLinie = 0;
+	private int localeLinie = 0;
+	private int capeteLinie = 0;
+	private boolean atribuitaLinie = false;
+	//Destinatiile salturilor din corpul metodei si adancimea stivei in fiecare.
+	private int[] tinte = new int[16];
+	private int[] adancimiTinte = new int[16];
+	private int numarTinte = 0;
+	//Stiva nodurilor expresiei in curs de emitere, cu starea fiecaruia si pozitia saltului de completat.
+	private Expresie[] deEmis = new Expresie[64];
+	private int[] stariEmitere = new int[64];
+	private int[] salturiEmitere = new int[64];
+
+	private int numarClase = 0;
+	private int numarMetode = 0;
+	private long octetiCod = 0;
+	private int liniiInterpretate = 0;
+	private long nanosecundeGenerare = 0;
+	private long nanosecundeExecutie = 0;
+
+	/**Metoda retine o linie, in ordinea din fisier.
+	 * @param slot
+	 * Slotul variabilei careia i se face atribuirea sau -1 daca linia nu este corecta semantic.
+	 * @param expresie
+	 * Arborele expresiei (null pentru liniile incorecte).
+	 * @param cod
+	 * Forma compilata a expresiei, folosita daca linia nu incape intr-o metoda (null pentru liniile incorecte).
+	 */
+	public void adauga(int slot, Expresie expresie, ExpresieCompilata cod){
+		if(numarLinii==sloturi.length){
+			sloturi = Arrays.copyOf(sloturi, 2*numarLinii);
+			expresii = Arrays.copyOf(expresii, 2*numarLinii);
+			coduri = Arrays.copyOf(coduri, 2*numarLinii);
+		}
+		sloturi[numarLinii] = slot;
+		expresii[numarLinii] = expresie;
+		coduri[numarLinii] = cod;
+		numarLinii++;
+	}
+
+	public int numarLinii(){
+		return numarLinii;
+	}
+
+	public int slot(int linie){
+		return sloturi[linie];
+	}
+
+	/**Metoda genereaza si incarca clasele scriptului, apoi le executa in ordinea liniilor.
+	 * @param valori
+	 * Tabelul de valori ale variabilelor, indexat dupa slot; este actualizat.
+	 * @return
+	 * Rezultatul fiecarei linii (nedefinit pentru liniile incorecte).
+	 */
+	public int[] executa(int[] valori){
+		long inceput = System.nanoTime();
+		List<Bucata> bucati = genereaza();
+		nanosecundeGenerare = System.nanoTime()-inceput;
+
+		inceput = System.nanoTime();
+		int[] rezultate = new int[numarLinii];
+		int[] stiva = new int[16];
+		for(Bucata bucata : bucati){
+			if(bucata.handle==null){
+				//Linii executate de interpretorul pe stiva.
+				for(int i=bucata.inceput; i<bucata.sfarsit; i++){
+					if(sloturi[i]<0) continue;
+					ExpresieCompilata cod = coduri[i];
+					if(stiva.length<cod.adancimeStiva) stiva = new int[cod.adancimeStiva];
+					rezultate[i] = Evaluator.executa(cod, valori, stiva);
+					valori[sloturi[i]] = rezultate[i];
+				}
+				continue;
+			}
+			int[] r = new int[bucata.sfarsit-bucata.inceput];
+			try{
+				bucata.handle.invokeExact(valori, r);
+			}catch(RuntimeException | Error e){
+				throw e;
+			}catch(Throwable e){
+				throw new IllegalStateException(e);
+			}
+			System.arraycopy(r, 0, rezultate, bucata.inceput, r.length);
+		}
+		nanosecundeExecutie = System.nanoTime()-inceput;
+		return rezultate;
+	}
+
+	/**Metoda imparte liniile in bucati, genereaza metodele si incarca clasele ascunse.
+	 */
+	private List<Bucata> genereaza(){
+		List<Bucata> bucati = new ArrayList<Bucata>();
+		List<Clasa> clase = new ArrayList<Clasa>();
+		clasa = null;
+		int inceputBucata = 0;
+		incepeMetoda();
+		for(int i=0; i<numarLinii; i++){
+			if(sloturi[i]<0) continue;
+			if(clasa==null || clasa.numarConstante()>CONSTANTE_MAXIME_CLASA){
+				inchideMetoda(bucati, inceputBucata, i);
+				inceputBucata = i;
+				clasa = new Clasa();
+				clase.add(clasa);
+			}
+
+			retineInceputLinie(i);
+			emiteLinie(i-inceputBucata, i);
+			if(lungimeCorp-inceputLinie<=LUNGIME_MAXIMA_LINIE
+					&& (lungimeCorp+lungimeCapete>LUNGIME_MAXIMA_METODA || i-inceputBucata>=LINII_MAXIME_METODA)){
+				//Linia nu mai incape in metoda curenta si este mutata in urmatoarea.
+				anuleazaLinie(i);
+				inchideMetoda(bucati, inceputBucata, i);
+				inceputBucata = i;
+				retineInceputLinie(i);
+				emiteLinie(0, i);
+			}
+			if(lungimeCorp-inceputLinie>LUNGIME_MAXIMA_LINIE || lungimeCorp+lungimeCapete>LUNGIME_MAXIMA_METODA){
+				//Linia este executata de interpretorul pe stiva, intre doua metode generate.
+				anuleazaLinie(i);
+				inchideMetoda(bucati, inceputBucata, i);
+				bucati.add(new Bucata(i, i+1, null, null));
+				liniiInterpretate++;
+				inceputBucata = i+1;
+			}
+		}
+		inchideMetoda(bucati, inceputBucata, numarLinii);
+
+		/*Fiecare clasa este incarcata ca o clasa ascunsa, in acelasi pachet cu evaluatorul. Daca
+		 * masina virtuala respinge o clasa (VerifyError, ClassFormatError), liniile metodelor ei
+		 * sunt executate de interpretorul pe stiva.
+		 */
+		for(Clasa generata : clase){
+			try{
+				generata.lookup = MethodHandles.lookup().defineHiddenClass(generata.octeti(), true);
+				numarClase++;
+			}catch(IllegalAccessException e){
+				throw new IllegalStateException(e);
+			}catch(LinkageError e){
+				generata.lookup = null;
+			}
+		}
+		for(Bucata bucata : bucati){
+			if(bucata.clasa==null) continue;
+			if(bucata.clasa.lookup==null){
+				for(int i=bucata.inceput; i<bucata.sfarsit; i++){
+					if(sloturi[i]>=0) liniiInterpretate++;
+				}
+				continue;
+			}
+			try{
+				bucata.handle = bucata.clasa.lookup.findStatic(bucata.clasa.lookup.lookupClass(), bucata.metoda, TIP_BUCATA);
+			}catch(NoSuchMethodException | IllegalAccessException e){
+				throw new IllegalStateException(e);
+			}
+		}
+		clasa = null;
+		return bucati;
+	}
+
+	/**Metoda retine starea metodei in curs de generare inaintea unei linii, pentru ca linia
+	 * sa poata fi anulata daca nu incape in metoda.
+	 */
+	private void retineInceputLinie(int linie){
+		inceputLinie = lungimeCorp;
+		tinteLinie = numarTinte;
+		localeLinie = numarLocale;
+		capeteLinie = lungimeCapete;
+		atribuitaLinie = atribuite.get(sloturi[linie]);
+	}
+
+	/**Metoda elimina din metoda in curs de generare codul unei linii, impreuna cu variabilele
+	 * locale alocate de aceasta, astfel incat prologul si epilogul metodei nu le mai contin.
+	 */
+	private void anuleazaLinie(int linie){
+		lungimeCorp = inceputLinie;
+		numarTinte = tinteLinie;
+		for(int k=localeLinie; k<numarLocale; k++){
+			locale[sloturiFolosite[k]] = 0;
+		}
+		numarLocale = localeLinie;
+		if(!atribuitaLinie) atribuite.clear(sloturi[linie]);
+		lungimeCapete = capeteLinie;
+	}
+
+	private void incepeMetoda(){
+		lungimeCorp = 0;
+		lungimeCapete = 1;
+		adancimeMaxima = 3;
+		for(int k=0; k<numarLocale; k++){
+			locale[sloturiFolosite[k]] = 0;
+		}
+		numarLocale = 0;
+		atribuite.clear();
+		numarTinte = 0;
+	}
+
+	/**Metoda termina metoda in curs de generare (daca are linii), adaugand incarcarea
+	 * variabilelor locale la inceput si scrierea celor atribuite la sfarsit.
+	 */
+	private void inchideMetoda(List<Bucata> bucati, int inceput, int sfarsit){
+		if(lungimeCorp==0){
+			incepeMetoda();
+			return;
+		}
+		byte[] corpLinii = Arrays.copyOf(corp, lungimeCorp);
+		lungimeCorp = 0;
+		for(int k=0; k<numarLocale; k++){
+			emite(ALOAD_0);
+			emiteConstanta(sloturiFolosite[k]);
+			emite(IALOAD);
+			emiteLocala(ISTORE, 2+k);
+		}
+		int lungimeIncarcare = lungimeCorp;
+		adaugaOcteti(corpLinii, corpLinii.length);
+		for(int k=0; k<numarLocale; k++){
+			if(!atribuite.get(sloturiFolosite[k])) continue;
+			emite(ALOAD_0);
+			emiteConstanta(sloturiFolosite[k]);
+			emiteLocala(ILOAD, 2+k);
+			emite(IASTORE);
+		}
+		emite(RETURN);
+
+		String nume = "b" + numarMetode++;
+		ByteArrayOutputStream cadre = new ByteArrayOutputStream();
+		int numarCadre = scrieCadre(cadre, lungimeIncarcare);
+		clasa.adaugaMetoda(nume, corp, lungimeCorp, adancimeMaxima, 2+numarLocale, cadre.toByteArray(), numarCadre);
+		octetiCod += lungimeCorp;
+		bucati.add(new Bucata(inceput, sfarsit, clasa, nume));
+		incepeMetoda();
+	}
+
+	/**Metoda codifica cadrele StackMapTable ale metodei curente. In fiecare destinatie de salt
+	 * toate variabilele locale sunt intregi (incarcate la inceputul metodei) si stiva contine doar
+	 * intregi, deci primul cadru este complet, iar urmatoarele repeta variabilele locale.
+	 * @param deplasare
+	 * Lungimea codului de incarcare a variabilelor, aflat inaintea corpului liniilor.
+	 * @return
+	 * Numarul de cadre scrise.
+	 */
+	private int scrieCadre(ByteArrayOutputStream cadre, int deplasare){
+		int numarCadre = 0;
+		int precedenta = -1;
+		for(int k=0; k<numarTinte; k++){
+			int pozitie = deplasare + tinte[k];
+			//Salturile imbricate se pot termina in acelasi punct, cu aceeasi stiva.
+			if(pozitie==precedenta) continue;
+			int delta = precedenta<0 ? pozitie : pozitie-precedenta-1;
+			int stiva = adancimiTinte[k];
+			if(precedenta<0 || stiva>1){
+				cadre.write(255);
+				Clasa.scrieU2(cadre, delta);
+				Clasa.scrieU2(cadre, 2+numarLocale);
+				for(int t=0; t<2; t++){
+					cadre.write(7);
+					Clasa.scrieU2(cadre, clasa.indiceTablou());
+				}
+				for(int t=0; t<numarLocale; t++){
+					cadre.write(1);
+				}
+				Clasa.scrieU2(cadre, stiva);
+				for(int t=0; t<stiva; t++){
+					cadre.write(1);
+				}
+			}else if(stiva==0){
+				if(delta<64){
+					cadre.write(delta);
+				}else{
+					cadre.write(251);
+					Clasa.scrieU2(cadre, delta);
+				}
+			}else{
+				if(delta<64){
+					cadre.write(64+delta);
+				}else{
+					cadre.write(247);
+					Clasa.scrieU2(cadre, delta);
+				}
+				cadre.write(1);
+			}
+			precedenta = pozitie;
+			numarCadre++;
+		}
+		return numarCadre;
+	}
+
+	/**Metoda genereaza codul unei linii: calculul expresiei, atribuirea variabilei locale
+	 * si scrierea rezultatului in r.
+	 */
+	private void emiteLinie(int indiceInMetoda, int linie){
+		adancime = 0;
+		emiteExpresie(expresii[linie]);
+		int locala = locala(sloturi[linie]);
+		if(!atribuite.get(sloturi[linie])){
+			atribuite.set(sloturi[linie]);
+			//aload_0, slotul, iload, iastore
+			lungimeCapete += 2 + lungimeConstanta(sloturi[linie]) + lungimeLocala(locala);
+		}
+		emiteLocala(ISTORE, locala);
+		emite(ALOAD_1);
+		emiteConstanta(indiceInMetoda);
+		emiteLocala(ILOAD, locala);
+		emite(IASTORE);
+	}
+
+	/**Metoda emite codul unei expresii, parcurgand arborele cu o stiva explicita (in postordine,
+	 * cu saltul operatorului ternar emis intre operanzi), astfel incat adancimea arborelui nu
+	 * este limitata de stiva firului de executie.
+	 */
+	private void emiteExpresie(Expresie radacina){
+		int varf = puneNod(0, radacina, INTRARE, 0);
+		while(varf>0){
+			varf--;
+			Expresie expresie = deEmis[varf];
+			int stare = stariEmitere[varf];
+			int salt = salturiEmitere[varf];
+			deEmis[varf] = null;
+			switch(expresie.tip){
+			case Expresie.NUMAR:
+				emiteConstanta(expresie.valoare());
+				creste();
+				break;
+			case Expresie.VARIABILA:
+				emiteLocala(ILOAD, locala(expresie.slot));
+				creste();
+				break;
+			case Expresie.PLUS_UNAR:
+				varf = puneNod(varf, expresie.a, INTRARE, 0);
+				break;
+			case Expresie.MINUS_UNAR:
+				if(stare==INTRARE){
+					varf = puneNod(varf, expresie, IESIRE, 0);
+					varf = puneNod(varf, expresie.a, INTRARE, 0);
+				}else{
+					emite(INEG);
+				}
+				break;
+			case Expresie.TERNAR:
+				//(A>B)?C:D devine un salt: daca A<=B se calculeaza doar D, altfel doar C.
+				if(stare==INTRARE){
+					varf = puneNod(varf, expresie, DUPA_CONDITIE, 0);
+					varf = puneNod(varf, expresie.b, INTRARE, 0);
+					varf = puneNod(varf, expresie.a, INTRARE, 0);
+				}else if(stare==DUPA_CONDITIE){
+					int saltConditie = lungimeCorp;
+					emite(IF_ICMPLE);
+					emite(0);
+					emite(0);
+					adancime -= 2;
+					varf = puneNod(varf, expresie, DUPA_C, saltConditie);
+					varf = puneNod(varf, expresie.c, INTRARE, 0);
+				}else if(stare==DUPA_C){
+					int saltSfarsit = lungimeCorp;
+					emite(GOTO);
+					emite(0);
+					emite(0);
+					adancime--;
+					scrieSalt(salt, lungimeCorp);
+					adaugaTinta();
+					varf = puneNod(varf, expresie, DUPA_D, saltSfarsit);
+					varf = puneNod(varf, expresie.d, INTRARE, 0);
+				}else{
+					scrieSalt(salt, lungimeCorp);
+					adaugaTinta();
+				}
+				break;
+			default:
+				if(stare==INTRARE){
+					varf = puneNod(varf, expresie, IESIRE, 0);
+					varf = puneNod(varf, expresie.b, INTRARE, 0);
+					varf = puneNod(varf, expresie.a, INTRARE, 0);
+				}else{
+					if(expresie.tip==Expresie.ADUNARE) emite(IADD);
+					if(expresie.tip==Expresie.SCADERE) emite(ISUB);
+					if(expresie.tip==Expresie.INMULTIRE) emite(IMUL);
+					adancime--;
+				}
+				break;
+			}
+		}
+	}
+
+	private int puneNod(int varf, Expresie expresie, int stare, int salt){
+		if(varf==deEmis.length){
+			deEmis = Arrays.copyOf(deEmis, 2*varf);
+			stariEmitere = Arrays.copyOf(stariEmitere, 2*varf);
+			salturiEmitere = Arrays.copyOf(salturiEmitere, 2*varf);
+		}
+		deEmis[varf] = expresie;
+		stariEmitere[varf] = stare;
+		salturiEmitere[varf] = salt;
+		return varf+1;
+	}
+
+	/**Metoda retine pozitia curenta ca destinatie de salt, cu adancimea curenta a stivei.
+	 */
+	private void adaugaTinta(){
+		if(numarTinte==tinte.length){
+			tinte = Arrays.copyOf(tinte, 2*numarTinte);
+			adancimiTinte = Arrays.copyOf(adancimiTinte, 2*numarTinte);
+		}
+		tinte[numarTinte] = lungimeCorp;
+		adancimiTinte[numarTinte] = adancime;
+		numarTinte++;
+	}
+
+	private void creste(){
+		adancime++;
+		if(adancime>adancimeMaxima) adancimeMaxima = adancime;
+	}
+
+	/**Metoda intoarce variabila locala a unui slot in metoda curenta, alocand-o daca este nevoie.
+	 */
+	private int locala(int slot){
+		if(slot>=locale.length) locale = Arrays.copyOf(locale, Math.max(slot+1, 2*locale.length));
+		if(locale[slot]==0){
+			if(numarLocale==sloturiFolosite.length) sloturiFolosite = Arrays.copyOf(sloturiFolosite, 2*numarLocale);
+			sloturiFolosite[numarLocale++] = slot;
+			locale[slot] = 1+numarLocale;
+			//aload_0, slotul, iaload, istore
+			lungimeCapete += 2 + lungimeConstanta(slot) + lungimeLocala(locale[slot]);
+		}
+		return locale[slot];
+	}
+
+	private void emiteConstanta(int valoare){
+		if(valoare>=-1 && valoare<=5){
+			emite(ICONST_0+valoare);
+		}else if(valoare>=Byte.MIN_VALUE && valoare<=Byte.MAX_VALUE){
+			emite(BIPUSH);
+			emite(valoare);
+		}else if(valoare>=Short.MIN_VALUE && valoare<=Short.MAX_VALUE){
+			emite(SIPUSH);
+			emite(valoare>>8);
+			emite(valoare);
+		}else{
+			int indice = clasa.intreg(valoare);
+			if(indice<256){
+				emite(LDC);
+				emite(indice);
+			}else{
+				emite(LDC_W);
+				emite(indice>>8);
+				emite(indice);
+			}
+		}
+	}
+
+	/**Metoda intoarce lungimea instructiunii emise de emiteConstanta pentru o valoare
+	 * (pentru constantele din bazin se considera ldc_w, cea mai lunga forma).
+	 */
+	private static int lungimeConstanta(int valoare){
+		if(valoare>=-1 && valoare<=5) return 1;
+		if(valoare>=Byte.MIN_VALUE && valoare<=Byte.MAX_VALUE) return 2;
+		return 3;
+	}
+
+	/**Metoda intoarce lungimea instructiunii emise de emiteLocala pentru o variabila locala.
+	 */
+	private static int lungimeLocala(int locala){
+		if(locala<=3) return 1;
+		if(locala<256) return 2;
+		return 4;
+	}
+
+	private void emiteLocala(int operatie, int locala){
+		if(locala<=3){
+			//iload_n si istore_n au codurile ILOAD+5+n, respectiv ISTORE+5+n.
+			emite(operatie+5+locala);
+		}else if(locala<256){
+			emite(operatie);
+			emite(locala);
+		}else{
+			emite(WIDE);
+			emite(operatie);
+			emite(locala>>8);
+			emite(locala);
+		}
+	}
+
+	private void scrieSalt(int pozitie, int destinatie){
+		int deplasament = destinatie-pozitie;
+		corp[pozitie+1] = (byte)(deplasament>>8);
+		corp[pozitie+2] = (byte)deplasament;
+	}
+
+	private void emite(int octet){
+		if(lungimeCorp==corp.length) corp = Arrays.copyOf(corp, 2*lungimeCorp);
+		corp[lungimeCorp++] = (byte)octet;
+	}
+
+	private void adaugaOcteti(byte[] octeti, int lungime){
+		if(lungimeCorp+lungime>corp.length) corp = Arrays.copyOf(corp, Math.max(lungimeCorp+lungime, 2*corp.length));
+		System.arraycopy(octeti, 0, corp, lungimeCorp, lungime);
+		lungimeCorp += lungime;
+	}
+
+	@Override
+	public String toString(){
+		return String.format("motor jvm: linii=%d clase=%d metode=%d octeti cod=%d linii interpretate=%d generare=%.1fms executie=%.1fms",
+				numarLinii, numarClase, numarMetode, octetiCod, liniiInterpretate, nanosecundeGenerare/1e6, nanosecundeExecutie/1e6);
+	}
+}
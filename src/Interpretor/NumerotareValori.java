@@ -0,0 +1,258 @@
+package Interpretor;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**Clasa realizeaza numerotarea valorilor (value numbering) pentru subexpresiile comune mai multor
+ * linii. Subarborii identici structural (acelasi operator, aceleasi numere si variabile) primesc
+ * acelasi numar, indiferent de linia pe care apar. Subexpresiile ce se repeta primesc o intrare in
+ * care se retine ultima valoare calculata, impreuna cu momentul calculului; valoarea este refolosita
+ * cat timp niciuna dintre variabilele din subexpresie nu a fost reatribuita (versiunea fiecarei
+ * variabile este momentul ultimei atribuiri).
+ */
+public class NumerotareValori {
+
+	//Numarul maxim de subarbori numerotati; peste acesta subarborii noi nu mai sunt numerotati.
+	private static final int CAPACITATE_MAXIMA = 1<<20;
+
+	//Numarul minim de noduri al unei subexpresii pentru care merita retinuta valoarea.
+	private static final int MARIME_MINIMA = 3;
+
+	//Starea unui nod in stiva parcurgerii inainte de numerotarea operanzilor sai.
+	private static final int INTRARE = -1;
+
+	/**Clasa interna ce modeleaza cheia unui subarbore: tipul nodului, valoarea numarului
+	 * sau slotul variabilei si numerele operanzilor.
+	 */
+	private static class Cheie{
+		final int tip, valoare, a, b, c, d;
+
+		Cheie(int tip, int valoare, int a, int b, int c, int d){
+			this.tip=tip;
+			this.valoare=valoare;
+			this.a=a;
+			this.b=b;
+			this.c=c;
+			this.d=d;
+		}
+
+		@Override
+		public int hashCode(){
+			return ((((tip*31 + valoare)*31 + a)*31 + b)*31 + c)*31 + d;
+		}
+
+		@Override
+		public boolean equals(Object o){
+			Cheie k = (Cheie)o;
+			return tip==k.tip && valoare==k.valoare && a==k.a && b==k.b && c==k.c && d==k.d;
+		}
+	}
+
+	private final HashMap<Cheie,Integer> numere = new HashMap<Cheie,Integer>();
+
+	//Pentru fiecare numar: de cate ori a aparut subarborele si cate noduri are.
+	private int numarValori = 0;
+	private int[] aparitii = new int[1024];
+	private int[] marime = new int[1024];
+
+	//Pentru fiecare numar: indicele intrarii in care se retine valoarea (-1 daca nu are).
+	private int[] intrare = new int[1024];
+
+	//Intrarile: ultima valoare calculata, momentul calculului (-1 daca nu a fost calculata) si variabilele citite.
+	private int numarIntrari = 0;
+	private int[] valoare = new int[64];
+	private long[] calculatLa = new long[64];
+	private int[][] variabile = new int[64][];
+
+	//Momentul curent (numarul de atribuiri facute) si versiunea fiecarei variabile.
+	private long ceas = 0;
+	private long[] ultimaAtribuire = new long[16];
+
+	//Numerele nodurilor ultimei expresii numerotate, in preordine.
+	private int[] numereNoduri = new int[64];
+	private int numarNoduri = 0;
+
+	/*Stiva parcurgerii: nodurile si indicele fiecaruia in preordine (INTRARE inainte de operanzi),
+	 * respectiv numerele subarborilor deja numerotati.
+	 */
+	private Expresie[] deNumerotat = new Expresie[64];
+	private int[] indiciNumerotare = new int[64];
+	private int[] rezultate = new int[64];
+
+	private long refolosiri = 0;
+	private long recalculari = 0;
+
+	/**Metoda numeroteaza toti subarborii unei expresii. Arborele este parcurs cu o stiva explicita,
+	 * nu recursiv, pentru ca o expresie foarte lunga sa nu depaseasca stiva firului de executie: fiecare
+	 * nod primeste indicele la intrare (in preordine) si numarul la iesire, dupa operanzii sai, ale
+	 * caror numere sunt luate dintr-o a doua stiva.
+	 * @param expresie
+	 * Arborele expresiei.
+	 * @return
+	 * Numerele nodurilor, in preordine (-1 pentru subarborii ce nu au putut fi numerotati);
+	 * vectorul este refolosit la urmatorul apel.
+	 */
+	public int[] numeroteaza(Expresie expresie){
+		numarNoduri = 0;
+		int varf = 0, numarRezultate = 0;
+		deNumerotat[varf] = expresie;
+		indiciNumerotare[varf++] = INTRARE;
+		while(varf>0){
+			Expresie nod = deNumerotat[--varf];
+			int indice = indiciNumerotare[varf];
+			deNumerotat[varf] = null;
+			if(indice==INTRARE){
+				indice = numarNoduri++;
+				if(indice==numereNoduri.length) numereNoduri = Arrays.copyOf(numereNoduri, 2*indice);
+				if(varf+5>deNumerotat.length){
+					deNumerotat = Arrays.copyOf(deNumerotat, 2*deNumerotat.length);
+					indiciNumerotare = Arrays.copyOf(indiciNumerotare, 2*indiciNumerotare.length);
+				}
+				deNumerotat[varf] = nod;
+				indiciNumerotare[varf++] = indice;
+				//Operanzii sunt pusi invers, pentru a fi numerotati in ordinea a, b, c, d.
+				if(nod.d!=null) varf = puneOperand(varf, nod.d);
+				if(nod.c!=null) varf = puneOperand(varf, nod.c);
+				if(nod.b!=null) varf = puneOperand(varf, nod.b);
+				if(nod.a!=null) varf = puneOperand(varf, nod.a);
+				continue;
+			}
+			
+			//Numerele operanzilor se afla in varful stivei de rezultate, in ordinea a, b, c, d.
+			int fii = (nod.a!=null ? 1 : 0) + (nod.b!=null ? 1 : 0) + (nod.c!=null ? 1 : 0) + (nod.d!=null ? 1 : 0);
+			numarRezultate -= fii;
+			int k = numarRezultate;
+			int a = nod.a!=null ? rezultate[k++] : -1;
+			int b = nod.b!=null ? rezultate[k++] : -1;
+			int c = nod.c!=null ? rezultate[k++] : -1;
+			int d = nod.d!=null ? rezultate[k++] : -1;
+			int numar = numar(nod, a, b, c, d);
+			numereNoduri[indice] = numar;
+			if(numarRezultate==rezultate.length) rezultate = Arrays.copyOf(rezultate, 2*numarRezultate);
+			rezultate[numarRezultate++] = numar;
+		}
+		return numereNoduri;
+	}
+
+	private int puneOperand(int varf, Expresie operand){
+		deNumerotat[varf] = operand;
+		indiciNumerotare[varf] = INTRARE;
+		return varf+1;
+	}
+
+	/**Metoda da numarul unui nod, stiind numerele operanzilor sai.
+	 * @return
+	 * Numarul nodului sau -1 daca nu a putut fi numerotat.
+	 */
+	private int numar(Expresie expresie, int a, int b, int c, int d){
+		boolean numerotabil = (expresie.a==null || a>=0) && (expresie.b==null || b>=0)
+				&& (expresie.c==null || c>=0) && (expresie.d==null || d>=0);
+		int noduri = 1;
+		int numar = -1;
+		if(numerotabil){
+			int v = expresie.tip==Expresie.NUMAR ? expresie.valoare() : expresie.slot;
+			Cheie cheie = new Cheie(expresie.tip, v, a, b, c, d);
+			Integer existent = numere.get(cheie);
+			if(existent!=null){
+				numar = existent;
+			}else if(numarValori<CAPACITATE_MAXIMA){
+				numar = numarValori++;
+				if(numar==aparitii.length){
+					aparitii = Arrays.copyOf(aparitii, 2*numar);
+					marime = Arrays.copyOf(marime, 2*numar);
+					intrare = Arrays.copyOf(intrare, 2*numar);
+				}
+				if(a>=0) noduri += marime[a];
+				if(b>=0) noduri += marime[b];
+				if(c>=0) noduri += marime[c];
+				if(d>=0) noduri += marime[d];
+				marime[numar] = noduri;
+				intrare[numar] = -1;
+				numere.put(cheie, numar);
+			}
+			if(numar>=0) aparitii[numar]++;
+		}
+		return numar;
+	}
+
+	/**Metoda stabileste daca merita retinuta valoarea unui subarbore: acesta a mai aparut
+	 * (pe aceeasi linie sau pe alta) si nu este o simpla frunza sau un operator unar pe o frunza.
+	 * @param numar
+	 * Numarul subarborelui.
+	 */
+	public boolean merita(int numar){
+		return numar>=0 && aparitii[numar]>=2 && marime[numar]>=MARIME_MINIMA;
+	}
+
+	/**Metoda intoarce intrarea in care se retine valoarea unui subarbore, creand-o daca este nevoie.
+	 * @param numar
+	 * Numarul subarborelui.
+	 * @param expresie
+	 * Subarborele (folosit doar la crearea intrarii, pentru a afla variabilele citite).
+	 * @return
+	 * Indicele intrarii.
+	 */
+	public int intrare(int numar, Expresie expresie){
+		if(intrare[numar]<0){
+			int indice = numarIntrari++;
+			if(indice==valoare.length){
+				valoare = Arrays.copyOf(valoare, 2*indice);
+				calculatLa = Arrays.copyOf(calculatLa, 2*indice);
+				variabile = Arrays.copyOf(variabile, 2*indice);
+			}
+			calculatLa[indice] = -1;
+			variabile[indice] = expresie.variabile();
+			intrare[numar] = indice;
+		}
+		return intrare[numar];
+	}
+
+	/**Metoda stabileste daca valoarea retinuta intr-o intrare mai este valabila: a fost
+	 * calculata si nicio variabila citita nu a fost reatribuita de atunci.
+	 * @param indice
+	 * Indicele intrarii.
+	 */
+	public boolean valabila(int indice){
+		long moment = calculatLa[indice];
+		if(moment<0){
+			recalculari++;
+			return false;
+		}
+		for(int slot : variabile[indice]){
+			if(ultimaAtribuire[slot]>moment){
+				recalculari++;
+				return false;
+			}
+		}
+		refolosiri++;
+		return true;
+	}
+
+	public int valoare(int indice){
+		return valoare[indice];
+	}
+
+	/**Metoda retine valoarea calculata a unei subexpresii la momentul curent.
+	 */
+	public void memoreaza(int indice, int rezultat){
+		valoare[indice] = rezultat;
+		calculatLa[indice] = ceas;
+	}
+
+	/**Metoda inregistreaza atribuirea unei variabile, invalidand valorile retinute
+	 * ale subexpresiilor ce o citesc.
+	 * @param slot
+	 * Slotul variabilei atribuite.
+	 */
+	public void atribuire(int slot){
+		if(slot>=ultimaAtribuire.length){
+			ultimaAtribuire = Arrays.copyOf(ultimaAtribuire, Math.max(slot+1, 2*ultimaAtribuire.length));
+		}
+		ultimaAtribuire[slot] = ++ceas;
+	}
+
+	@Override
+	public String toString(){
+		return "subexpresii comune: numerotate=" + numarValori + " retinute=" + numarIntrari + " refolosiri=" + refolosiri + " recalculari=" + recalculari;
+	}
+}
@@ -0,0 +1,228 @@
+package Interpretor;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**Clasa simplifica arborele sintactic al unei expresii inainte de compilarea acestuia:
+ * <ul>
+ * <li>subarborii ce contin doar numere sunt inlocuiti de valoarea lor;</li>
+ * <li>se aplica identitatile x*0=0, x*1=x, x*(-1)=-x, x+0=x, x-0=x, 0-x=-x, +x=x si -(-x)=x;</li>
+ * <li>operatorul ternar a carui conditie este constanta este inlocuit de ramura aleasa.</li>
+ * </ul>
+ * Calculele se fac in aritmetica evaluarii (pe int, cu aceeasi depasire, in aritmetica modulara),
+ * iar variabilele nu au efecte laterale, deci rezultatul evaluarii nu se schimba. In aritmetica
+ * cu eroare nu se elimina subarbori ce nu sunt numere (x*0, -(-x) si ramura neselectata a unui
+ * ternar), iar calculele ce nu incap pe int sunt lasate evaluarii, pentru ca depasirile sa fie
+ * semnalate la fel. Arborele initial nu este modificat: analiza semantica si arborele de parsare
+ * il folosesc in continuare pe acesta.
+ */
+public class Optimizator {
+
+	private final int aritmetica;
+
+	private long expresii = 0;
+	private long noduriEliminate = 0;
+
+	//Numarul de noduri ale arborelui initial, numarate in timpul simplificarii.
+	private int noduriVizitate = 0;
+
+	//Stiva parcurgerii (nodurile si daca operanzii lor au fost deja simplificati) si formele simplificate.
+	private Expresie[] deVizitat = new Expresie[64];
+	private boolean[] operanziVizitati = new boolean[64];
+	private final ArrayDeque<Expresie> simplificate = new ArrayDeque<Expresie>();
+
+	/**Constructorul creeaza un optimizator pentru aritmetica modulara.
+	 */
+	public Optimizator(){
+		this(Evaluator.ARITMETICA_MODULARA);
+	}
+
+	/**Constructorul creeaza un optimizator pentru aritmetica data.
+	 * @param aritmetica
+	 * Aritmetica evaluarii (Evaluator.ARITMETICA_MODULARA, ARITMETICA_EXACTA sau ARITMETICA_EROARE).
+	 */
+	public Optimizator(int aritmetica){
+		this.aritmetica = aritmetica;
+	}
+
+	/**Metoda intoarce forma simplificata a unei expresii.
+	 * @param expresie
+	 * Arborele sintactic al expresiei.
+	 * @return
+	 * Arborele simplificat (poate imparti subarbori cu cel initial).
+	 */
+	public Expresie optimizeaza(Expresie expresie){
+		noduriVizitate = 0;
+		Expresie rezultat = simplifica(expresie);
+		expresii++;
+		//Daca expresia nu a putut fi simplificata este intors chiar arborele initial.
+		if(rezultat!=expresie){
+			noduriEliminate += noduriVizitate - rezultat.numarNoduri();
+		}
+		return rezultat;
+	}
+
+	/**Metoda simplifica un arbore in postordine: fiecare nod este simplificat dupa operanzii sai.
+	 * Arborele este parcurs cu o stiva explicita, nu recursiv, pentru ca o expresie foarte lunga
+	 * (un lant de mii de termeni) sa nu depaseasca stiva firului de executie; operanzii simplificati
+	 * sunt luati dintr-o a doua stiva.
+	 */
+	private Expresie simplifica(Expresie radacina){
+		int varf = 0;
+		deVizitat[varf] = radacina;
+		operanziVizitati[varf++] = false;
+		while(varf>0){
+			Expresie expresie = deVizitat[--varf];
+			boolean operanziSimplificati = operanziVizitati[varf];
+			deVizitat[varf] = null;
+			if(!operanziSimplificati){
+				noduriVizitate++;
+				if(expresie.esteOperand()){
+					simplificate.push(expresie);
+					continue;
+				}
+				if(varf+5>deVizitat.length){
+					deVizitat = Arrays.copyOf(deVizitat, 2*deVizitat.length);
+					operanziVizitati = Arrays.copyOf(operanziVizitati, 2*operanziVizitati.length);
+				}
+				deVizitat[varf] = expresie;
+				operanziVizitati[varf++] = true;
+				//Operanzii sunt pusi invers, pentru a fi simplificati in ordinea a, b, c, d.
+				if(expresie.d!=null) varf = puneOperand(varf, expresie.d);
+				if(expresie.c!=null) varf = puneOperand(varf, expresie.c);
+				if(expresie.b!=null) varf = puneOperand(varf, expresie.b);
+				varf = puneOperand(varf, expresie.a);
+				continue;
+			}
+			Expresie d = expresie.d==null ? null : simplificate.pop();
+			Expresie c = expresie.c==null ? null : simplificate.pop();
+			Expresie b = expresie.b==null ? null : simplificate.pop();
+			Expresie a = simplificate.pop();
+			simplificate.push(simplifica(expresie, a, b, c, d));
+		}
+		return simplificate.pop();
+	}
+
+	private int puneOperand(int varf, Expresie operand){
+		deVizitat[varf] = operand;
+		operanziVizitati[varf] = false;
+		return varf+1;
+	}
+
+	/**Metoda simplifica un nod, ai carui operanzi au fost deja simplificati.
+	 * @param expresie
+	 * Nodul din arborele initial.
+	 * @param a
+	 * Forma simplificata a operandului a (respectiv b, c, d; null daca operandul lipseste).
+	 * @return
+	 * Forma simplificata a nodului.
+	 */
+	private Expresie simplifica(Expresie expresie, Expresie a, Expresie b, Expresie c, Expresie d){
+		switch(expresie.tip){
+		case Expresie.PLUS_UNAR:
+			return a;
+		case Expresie.MINUS_UNAR:
+			if(a==expresie.a && !esteNumar(a) && (a.tip!=Expresie.MINUS_UNAR || aritmetica==Evaluator.ARITMETICA_EROARE)) return expresie;
+			return minus(a);
+		case Expresie.ADUNARE:
+			if(esteNumar(a) && esteNumar(b)){
+				Expresie rezultat = calculeaza(Expresie.ADUNARE, a, b);
+				if(rezultat!=null) return rezultat;
+			}
+			if(esteNumar(a, 0)) return b;
+			if(esteNumar(b, 0)) return a;
+			break;
+		case Expresie.SCADERE:
+			if(esteNumar(a) && esteNumar(b)){
+				Expresie rezultat = calculeaza(Expresie.SCADERE, a, b);
+				if(rezultat!=null) return rezultat;
+			}
+			if(esteNumar(b, 0)) return a;
+			if(esteNumar(a, 0)) return minus(b);
+			break;
+		case Expresie.INMULTIRE:
+			if(esteNumar(a) && esteNumar(b)){
+				Expresie rezultat = calculeaza(Expresie.INMULTIRE, a, b);
+				if(rezultat!=null) return rezultat;
+			}
+			if(aritmetica!=Evaluator.ARITMETICA_EROARE && (esteNumar(a, 0) || esteNumar(b, 0))) return numar(0);
+			if(esteNumar(a, 1)) return b;
+			if(esteNumar(b, 1)) return a;
+			if(esteNumar(a, -1)) return minus(b);
+			if(esteNumar(b, -1)) return minus(a);
+			break;
+		case Expresie.TERNAR:
+			if(aritmetica!=Evaluator.ARITMETICA_EROARE && esteNumar(a) && esteNumar(b)){
+				boolean conditie = aritmetica==Evaluator.ARITMETICA_MODULARA ? a.valoare()>b.valoare()
+						: a.valoareExacta().compareTo(b.valoareExacta())>0;
+				return conditie ? c : d;
+			}
+			if(a==expresie.a && b==expresie.b && c==expresie.c && d==expresie.d) return expresie;
+			return Expresie.ternar(a, b, c, d);
+		}
+		return a==expresie.a && b==expresie.b ? expresie : Expresie.binar(expresie.tip, a, b);
+	}
+
+	/**Metoda intoarce forma simplificata a opusului unei expresii deja simplificate.
+	 */
+	private Expresie minus(Expresie a){
+		if(esteNumar(a)){
+			Expresie rezultat = calculeaza(Expresie.MINUS_UNAR, a, null);
+			if(rezultat!=null) return rezultat;
+		}
+		if(a.tip==Expresie.MINUS_UNAR && aritmetica!=Evaluator.ARITMETICA_EROARE) return a.a;
+		return Expresie.unar(Expresie.MINUS_UNAR, a);
+	}
+
+	/**Metoda calculeaza o operatie intre numere (MINUS_UNAR foloseste doar primul operand).
+	 * @return
+	 * Numarul rezultat sau null daca, in aritmetica cu eroare, acesta nu incape pe int.
+	 */
+	private Expresie calculeaza(int tip, Expresie a, Expresie b){
+		if(aritmetica==Evaluator.ARITMETICA_MODULARA){
+			int x = a.valoare();
+			switch(tip){
+			case Expresie.ADUNARE: return numar(x+b.valoare());
+			case Expresie.SCADERE: return numar(x-b.valoare());
+			case Expresie.INMULTIRE: return numar(x*b.valoare());
+			default: return numar(-x);
+			}
+		}
+		BigInteger x = a.valoareExacta();
+		BigInteger rezultat;
+		switch(tip){
+		case Expresie.ADUNARE: rezultat = x.add(b.valoareExacta()); break;
+		case Expresie.SCADERE: rezultat = x.subtract(b.valoareExacta()); break;
+		case Expresie.INMULTIRE: rezultat = x.multiply(b.valoareExacta()); break;
+		default: rezultat = x.negate(); break;
+		}
+		if(aritmetica==Evaluator.ARITMETICA_EROARE && rezultat.bitLength()>=32) return null;
+		return Expresie.numar(rezultat.toString(), 0);
+	}
+
+	/**Metoda verifica daca o expresie este un numar; in aritmetica cu eroare numerele ce nu
+	 * incap pe int nu sunt considerate numere, ele ramanand de semnalat la evaluare.
+	 */
+	private boolean esteNumar(Expresie expresie){
+		if(expresie.tip!=Expresie.NUMAR) return false;
+		return aritmetica!=Evaluator.ARITMETICA_EROARE || expresie.text.length()<10 || expresie.valoareExacta().bitLength()<32;
+	}
+
+	private static boolean esteNumar(Expresie expresie, int valoare){
+		return expresie.tip==Expresie.NUMAR && expresie.text.length()<10 && expresie.valoare()==valoare;
+	}
+
+	private static Expresie numar(int valoare){
+		return Expresie.numar(String.valueOf(valoare), 0);
+	}
+
+	public long getNoduriEliminate(){
+		return noduriEliminate;
+	}
+
+	@Override
+	public String toString(){
+		return "optimizare: expresii=" + expresii + " noduri eliminate=" + noduriEliminate;
+	}
+}
@@ -0,0 +1,541 @@
+package Interpretor;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**Clasa implementeaza formatul binar al unui fisier precompilat: tabela de simboluri, expresiile
+ * distincte ale sursei (arborele sintactic in forma prefixata, vectorul de coduri de operatie si
+ * bazinul de constante) si, pentru fiecare linie, slotul variabilei atribuite si expresia.
+ * Fisierul este identificat prin amprenta SHA-256 a sursei, astfel incat o rulare repetata pe
+ * aceeasi sursa il citeste (mapat in memorie) in locul analizei sintactice.
+ * <p>
+ * Fisierul este scris si citit secvential, linie cu linie, in paralel cu interpretarea: o expresie
+ * este definita la prima linie ce o foloseste, iar liniile urmatoare fac referire la ea prin indice.
+ * Tabela de la sfarsitul fisierului da, pentru fiecare expresie, ultima linie ce o foloseste, astfel
+ * incat la citire expresiile nu mai sunt retinute dupa aceasta (memoria folosita este comparabila
+ * cu a cache-ului de expresii, nu cu dimensiunea sursei).
+ * <p>
+ * Numerele sunt scrise pe un numar variabil de octeti (7 biti pe octet); constantele, ce pot fi
+ * negative dupa optimizare, sunt codificate zig-zag. Structura fisierului:
+ * <pre>
+ * antet:   MAGIC VERSIUNE amprenta[32] optimizare(1 octet)
+ * linie:   numarSimboliNoi { nume } slot indiceExpresie [ definitie, daca expresia este noua ]
+ * definitie: arbore lungimeCod cod[] numarConstante constante[] adancimeStiva
+ * sfarsit: numarLinii numarExpresii { ultimaLinie } pozitieSfarsit(8 octeti) CRC32(4 octeti) MAGIC
+ * </pre>
+ * Suma de control CRC32 acopera tot ce o precede; un fisier ce nu o respecta este ignorat.
+ * Un nod al arborelui este scris ca tipul sau (1 octet), urmat pentru numere de coloana si text,
+ * pentru variabile de slot si coloana, iar pentru operatori de operanzii lor, in ordine.
+ */
+public class Precompilare {
+
+	private static final int MAGIC = 0x49504331;
+	private static final int VERSIUNE = 2;
+	private static final int DIMENSIUNE_AMPRENTA = 32;
+	private static final int DIMENSIUNE_ANTET = 4+4+DIMENSIUNE_AMPRENTA+1;
+	private static final int FEREASTRA_AMPRENTA = 1<<26;
+
+	private final TabelaSimboli tabela;
+	private final Path fisier;
+	private int numarLinii = 0;
+	private int numarExpresii = 0;
+	private int numarSimboli = 0;
+	//Pentru fiecare expresie, indicele ultimei linii ce o foloseste.
+	private int[] ultimaLinie = new int[1024];
+	private String descriere;
+
+	//Starea scrierii.
+	private Path temporar;
+	private DataOutputStream out;
+	private CRC32 suma;
+	private Evaluator compilator;
+	private Optimizator optimizator;
+	private IOException eroareScriere = null;
+
+	//Starea citirii.
+	private ByteBuffer in;
+	private int liniiDeCitit;
+	private CacheExpresii.Intrare[] expresii;
+	private ArboreDeParsare arbore;
+	private boolean codValid;
+	/*Slotul din tabela interpretarii al fiecarui simbol din fisier: tabela poate contine deja
+	 * simboluri internate inaintea citirii (de exemplu variabilele cerute prin -variabile), caz
+	 * in care numerotarea difera de cea de la scriere.
+	 */
+	private int[] sloturi = new int[64];
+	private boolean sloturiIdentice = true;
+	private boolean corupt = false;
+	private int slotCurent;
+	private CacheExpresii.Intrare intrareCurenta;
+	//Stivele citirii unui arbore: operatorii incompleti, cati operanzi le lipsesc si operanzii cititi.
+	private int[] tipuriDeschise = new int[16];
+	private int[] operanziLipsa = new int[16];
+	private final ArrayDeque<Expresie> operanziCititi = new ArrayDeque<Expresie>();
+
+	private Precompilare(TabelaSimboli tabela, Path fisier){
+		this.tabela=tabela;
+		this.fisier=fisier;
+	}
+
+	/**Metoda calculeaza amprenta SHA-256 a continutului unui fisier.
+	 * @param numeFisier
+	 * Fisierul sursa.
+	 * @return
+	 * Amprenta (32 de octeti).
+	 * @throws IOException
+	 * Daca fisierul nu poate fi citit.
+	 */
+	public static byte[] amprenta(String numeFisier) throws IOException{
+		MessageDigest sha;
+		try{
+			sha = MessageDigest.getInstance("SHA-256");
+		}catch(NoSuchAlgorithmException e){
+			throw new IllegalStateException(e);
+		}
+		try(FileChannel canal = FileChannel.open(Paths.get(numeFisier), StandardOpenOption.READ)){
+			long dimensiune = canal.size();
+			for(long pozitie=0; pozitie<dimensiune; pozitie+=FEREASTRA_AMPRENTA){
+				sha.update(canal.map(FileChannel.MapMode.READ_ONLY, pozitie, Math.min(FEREASTRA_AMPRENTA, dimensiune-pozitie)));
+			}
+		}
+		return sha.digest();
+	}
+
+	/**Metoda stabileste calea fisierului precompilat al unei surse.
+	 * @param numeFisier
+	 * Fisierul sursa.
+	 * @param director
+	 * Directorul cache-ului de fisiere precompilate, in care numele fisierului este amprenta
+	 * sursei (surse identice impart acelasi fisier); null pentru fisierul aflat langa sursa.
+	 * @param amprenta
+	 * Amprenta sursei.
+	 * @return
+	 * Calea fisierului precompilat.
+	 */
+	public static Path cale(String numeFisier, String director, byte[] amprenta){
+		if(director==null){
+			return Paths.get(numeFisier + ".ipc");
+		}
+		StringBuilder nume = new StringBuilder();
+		for(byte octet : amprenta){
+			nume.append(Character.forDigit((octet>>4)&0xF, 16)).append(Character.forDigit(octet&0xF, 16));
+		}
+		return Paths.get(director, nume.append(".ipc").toString());
+	}
+
+	/**Metoda incepe scrierea fisierului precompilat al unei surse. Fisierul este scris sub un nume
+	 * temporar si redenumit doar de metoda inchide, astfel incat o alta interpretare nu poate citi
+	 * un fisier scris partial.
+	 * @param fisier
+	 * Calea fisierului precompilat.
+	 * @param amprenta
+	 * Amprenta sursei.
+	 * @param tabela
+	 * Tabela de simboluri a interpretarii.
+	 * @param optimizare
+	 * true daca expresiile sunt simplificate inainte de compilare.
+	 * @return
+	 * Fisierul precompilat in curs de scriere.
+	 * @throws IOException
+	 * Daca fisierul temporar nu poate fi creat.
+	 */
+	public static Precompilare scrie(Path fisier, byte[] amprenta, TabelaSimboli tabela, boolean optimizare) throws IOException{
+		Precompilare precompilare = new Precompilare(tabela, fisier);
+		//Numele temporar este unic si intre firele de executie ce scriu aceeasi sursa (in modul lot).
+		precompilare.temporar = fisier.resolveSibling(fisier.getFileName() + "." + ProcessHandle.current().pid() + "-" + Thread.currentThread().getId() + ".tmp");
+		precompilare.suma = new CRC32();
+		precompilare.out = new DataOutputStream(new BufferedOutputStream(
+				new CheckedOutputStream(Files.newOutputStream(precompilare.temporar), precompilare.suma), 1<<16));
+		precompilare.compilator = new Evaluator(tabela);
+		precompilare.optimizator = optimizare ? new Optimizator() : null;
+		precompilare.out.writeInt(MAGIC);
+		precompilare.out.writeInt(VERSIUNE);
+		precompilare.out.write(amprenta);
+		precompilare.out.writeByte(optimizare ? 1 : 0);
+		return precompilare;
+	}
+
+	/**Metoda scrie urmatoarea linie interpretata. Liniile trebuie inregistrate in ordinea din fisier.
+	 * O eroare de scriere opreste scrierea si este semnalata de metoda inchide.
+	 * @param slot
+	 * Slotul variabilei atribuite.
+	 * @param intrare
+	 * Forma analizata a membrului drept; intrarile refolosite din cache sunt definite o singura data.
+	 */
+	public void inregistreaza(int slot, CacheExpresii.Intrare intrare){
+		if(eroareScriere!=null){
+			return;
+		}
+		try{
+			int simboli = tabela.numarSimboli();
+			scrieNumar(out, simboli-numarSimboli);
+			for(; numarSimboli<simboli; numarSimboli++){
+				scrieText(out, tabela.nume(numarSimboli));
+			}
+			scrieNumar(out, slot);
+
+			boolean noua = intrare.indicePrecompilare<0;
+			if(noua){
+				intrare.indicePrecompilare = numarExpresii++;
+				if(intrare.indicePrecompilare==ultimaLinie.length){
+					ultimaLinie = Arrays.copyOf(ultimaLinie, 2*ultimaLinie.length);
+				}
+			}
+			scrieNumar(out, intrare.indicePrecompilare);
+			ultimaLinie[intrare.indicePrecompilare] = numarLinii++;
+			if(noua){
+				scrieArbore(out, intrare.expresie);
+				ExpresieCompilata cod = compilator.compile(optimizator==null ? intrare.expresie : optimizator.optimizeaza(intrare.expresie));
+				scrieNumar(out, cod.cod.length);
+				for(int valoare : cod.cod){
+					scrieNumar(out, valoare);
+				}
+				scrieNumar(out, cod.constante.length);
+				for(int valoare : cod.constante){
+					scrieNumar(out, (valoare<<1)^(valoare>>31));
+				}
+				scrieNumar(out, cod.adancimeStiva);
+			}
+		}catch(IOException e){
+			eroareScriere = e;
+		}
+	}
+
+	/**Metoda termina scrierea: adauga tabela ultimelor utilizari si da fisierului numele final.
+	 * @throws IOException
+	 * Daca fisierul nu a putut fi scris.
+	 */
+	public void inchide() throws IOException{
+		try{
+			if(eroareScriere!=null){
+				throw eroareScriere;
+			}
+			long pozitieSfarsit = out.size();
+			scrieNumar(out, numarLinii);
+			scrieNumar(out, numarExpresii);
+			for(int k=0; k<numarExpresii; k++){
+				scrieNumar(out, ultimaLinie[k]);
+			}
+			//DataOutputStream numara octetii doar pana la 2GB; pozitia este scrisa doar daca este exacta.
+			out.writeLong(pozitieSfarsit<Integer.MAX_VALUE ? pozitieSfarsit : -1);
+			out.flush();
+			out.writeInt((int)suma.getValue());
+			out.writeInt(MAGIC);
+			out.close();
+			Files.move(temporar, fisier, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			descriere = "scris " + fisier + " (" + Files.size(fisier) + " octeti)";
+		}finally{
+			abandoneaza();
+		}
+	}
+
+	/**Metoda opreste scrierea fara a produce fisierul precompilat (de exemplu la o eroare de sintaxa).
+	 */
+	public void abandoneaza(){
+		try{
+			out.close();
+		}catch(IOException e){
+			//Fisierul temporar este sters oricum.
+		}
+		try{
+			Files.deleteIfExists(temporar);
+		}catch(IOException e){
+			//Un fisier temporar ramas nu este niciodata citit.
+		}
+	}
+
+	/**Metoda deschide fisierul precompilat al unei surse, daca exista si corespunde amprentei.
+	 * Liniile sunt parcurse apoi cu urmatoareaLinie.
+	 * @param fisier
+	 * Calea fisierului precompilat.
+	 * @param amprenta
+	 * Amprenta sursei curente.
+	 * @param tabela
+	 * Tabela de simboluri a interpretarii, in care sunt internate simbolurile; poate contine
+	 * deja alte simboluri, caz in care sloturile din fisier sunt renumerotate.
+	 * @param optimizare
+	 * true daca optimizarea este activata; formele compilate sunt folosite doar daca
+	 * au fost scrise cu aceeasi setare.
+	 * @param arbore
+	 * Arborele de parsare cu care se construiesc afisarile arborilor (null daca fisierul pt nu este produs).
+	 * @param folosesteCod
+	 * false daca formele compilate nu pot fi folosite (evaluatorul compileaza diferit, de exemplu
+	 * cu refolosirea subexpresiilor comune).
+	 * @return
+	 * Fisierul deschis sau null daca lipseste ori nu corespunde sursei.
+	 * @throws IOException
+	 * Daca fisierul exista dar nu poate fi citit.
+	 */
+	public static Precompilare citeste(Path fisier, byte[] amprenta, TabelaSimboli tabela, boolean optimizare,
+			ArboreDeParsare arbore, boolean folosesteCod) throws IOException{
+		if(!Files.isRegularFile(fisier)){
+			return null;
+		}
+		ByteBuffer in;
+		try(FileChannel canal = FileChannel.open(fisier, StandardOpenOption.READ)){
+			if(canal.size()<DIMENSIUNE_ANTET+16 || canal.size()>Integer.MAX_VALUE){
+				return null;
+			}
+			in = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+		}
+
+		//Un fisier trunchiat sau corupt este tratat ca absent si va fi scris din nou.
+		if(in.getInt()!=MAGIC || in.getInt()!=VERSIUNE || in.getInt(in.limit()-4)!=MAGIC){
+			return null;
+		}
+		byte[] amprentaFisier = new byte[DIMENSIUNE_AMPRENTA];
+		in.get(amprentaFisier);
+		if(!Arrays.equals(amprentaFisier, amprenta)){
+			return null;
+		}
+		CRC32 suma = new CRC32();
+		suma.update(in.duplicate().position(0).limit(in.limit()-8));
+		if((int)suma.getValue()!=in.getInt(in.limit()-8)){
+			return null;
+		}
+		boolean optimizat = in.get()==1;
+		long pozitieSfarsit = in.getLong(in.limit()-16);
+		if(pozitieSfarsit<DIMENSIUNE_ANTET || pozitieSfarsit>in.limit()-16){
+			return null;
+		}
+
+		Precompilare precompilare = new Precompilare(tabela, fisier);
+		precompilare.in = in;
+		precompilare.arbore = arbore;
+		precompilare.codValid = folosesteCod && optimizat==optimizare;
+		in.position((int)pozitieSfarsit);
+		precompilare.liniiDeCitit = citesteNumar(in);
+		precompilare.numarExpresii = citesteNumar(in);
+		precompilare.ultimaLinie = new int[precompilare.numarExpresii];
+		for(int k=0; k<precompilare.numarExpresii; k++){
+			precompilare.ultimaLinie[k] = citesteNumar(in);
+		}
+		precompilare.expresii = new CacheExpresii.Intrare[precompilare.numarExpresii];
+		in.position(DIMENSIUNE_ANTET);
+		precompilare.descriere = "citit " + fisier;
+		return precompilare;
+	}
+
+	/**Metoda citeste urmatoarea linie din fisierul precompilat.
+	 * @return
+	 * false daca toate liniile au fost citite.
+	 * @throws IllegalStateException
+	 * Daca fisierul este corupt (vezi esteCorupt).
+	 */
+	public boolean urmatoareaLinie(){
+		if(numarLinii==liniiDeCitit){
+			return false;
+		}
+		try{
+			citesteLinie();
+		}catch(RuntimeException e){
+			corupt = true;
+			throw new IllegalStateException("Fisierul precompilat " + fisier + " este corupt.", e);
+		}
+		return true;
+	}
+
+	/**Metoda stabileste daca citirea a fost oprita de un fisier corupt; sursa trebuie atunci
+	 * analizata din nou.
+	 */
+	public boolean esteCorupt(){
+		return corupt;
+	}
+
+	private void citesteLinie(){
+		int simboliNoi = citesteNumar(in);
+		for(int k=0; k<simboliNoi; k++){
+			if(numarSimboli==sloturi.length){
+				sloturi = Arrays.copyOf(sloturi, 2*sloturi.length);
+			}
+			sloturi[numarSimboli] = tabela.interneaza(citesteText(in));
+			sloturiIdentice &= sloturi[numarSimboli]==numarSimboli;
+			numarSimboli++;
+		}
+		slotCurent = slot(citesteNumar(in));
+		int indice = citesteNumar(in);
+		if(expresii[indice]==null){
+			Expresie expresie = citesteArbore();
+			CacheExpresii.Intrare intrare = new CacheExpresii.Intrare(expresie, arbore==null ? null : arbore.toTree(expresie));
+			int[] cod = new int[citesteLungime(in)];
+			for(int i=0; i<cod.length; i++){
+				cod[i] = citesteNumar(in);
+			}
+			int[] constante = new int[citesteLungime(in)];
+			for(int i=0; i<constante.length; i++){
+				int valoare = citesteNumar(in);
+				constante[i] = (valoare>>>1)^-(valoare&1);
+			}
+			int adancimeStiva = citesteNumar(in);
+			//Codul unei expresii foloseste sloturile de la scriere; daca acestea difera, expresia este compilata din nou.
+			if(codValid && sloturiIdentice){
+				intrare.compilata = new ExpresieCompilata(cod, constante, adancimeStiva);
+			}
+			expresii[indice] = intrare;
+		}
+		intrareCurenta = expresii[indice];
+		//Dupa ultima linie ce o foloseste, expresia nu mai este retinuta.
+		if(ultimaLinie[indice]==numarLinii){
+			expresii[indice] = null;
+		}
+		numarLinii++;
+	}
+
+	/**Metoda transforma un slot din fisier in slotul simbolului din tabela interpretarii.
+	 */
+	private int slot(int slotFisier){
+		if(slotFisier>=numarSimboli){
+			throw new IllegalStateException("Slot necunoscut in fisierul precompilat: " + slotFisier);
+		}
+		return sloturi[slotFisier];
+	}
+
+	/**Metoda intoarce slotul variabilei atribuite pe linia curenta.
+	 */
+	public int slot(){
+		return slotCurent;
+	}
+
+	/**Metoda intoarce forma analizata a membrului drept al liniei curente.
+	 */
+	public CacheExpresii.Intrare intrare(){
+		return intrareCurenta;
+	}
+
+	private static void scrieNumar(DataOutputStream out, int numar) throws IOException{
+		while((numar & ~0x7F)!=0){
+			out.writeByte((numar & 0x7F) | 0x80);
+			numar >>>= 7;
+		}
+		out.writeByte(numar);
+	}
+
+	private static int citesteNumar(ByteBuffer in){
+		int numar = 0;
+		for(int deplasare=0; ; deplasare+=7){
+			byte octet = in.get();
+			numar |= (octet & 0x7F)<<deplasare;
+			if(octet>=0) return numar;
+		}
+	}
+
+	/**Metoda citeste lungimea unui vector; fiecare element ocupa cel putin un octet, deci o lungime
+	 * mai mare decat restul fisierului arata un fisier corupt.
+	 */
+	private static int citesteLungime(ByteBuffer in){
+		int lungime = citesteNumar(in);
+		if(lungime<0 || lungime>in.remaining()){
+			throw new IllegalStateException("Lungime invalida in fisierul precompilat: " + lungime);
+		}
+		return lungime;
+	}
+
+	private static void scrieText(DataOutputStream out, String text) throws IOException{
+		byte[] octeti = text.getBytes(StandardCharsets.UTF_8);
+		scrieNumar(out, octeti.length);
+		out.write(octeti);
+	}
+
+	private static String citesteText(ByteBuffer in){
+		byte[] octeti = new byte[citesteLungime(in)];
+		in.get(octeti);
+		return new String(octeti, StandardCharsets.UTF_8);
+	}
+
+	/**Metoda scrie arborele unei expresii in preordine. Arborele este parcurs cu o stiva explicita,
+	 * pentru ca o expresie foarte lunga sa nu depaseasca stiva firului de executie.
+	 */
+	private static void scrieArbore(DataOutputStream out, Expresie expresie) throws IOException{
+		ArrayDeque<Expresie> deScris = new ArrayDeque<Expresie>();
+		deScris.push(expresie);
+		while(!deScris.isEmpty()){
+			Expresie nod = deScris.pop();
+			out.writeByte(nod.tip);
+			if(nod.tip==Expresie.NUMAR){
+				scrieNumar(out, nod.coloana);
+				scrieText(out, nod.text);
+			}else if(nod.tip==Expresie.VARIABILA){
+				scrieNumar(out, nod.slot);
+				scrieNumar(out, nod.coloana);
+			}else{
+				nod.adaugaFii(deScris);
+			}
+		}
+	}
+
+	/**Metoda citeste arborele unei expresii scris in preordine. Operatorii ai caror operanzi nu au
+	 * fost inca cititi sunt retinuti intr-o stiva, impreuna cu numarul operanzilor ce le lipsesc;
+	 * un operator este construit cand ultimul sau operand este complet.
+	 */
+	private Expresie citesteArbore(){
+		int deschise = 0;
+		operanziCititi.clear();
+		while(true){
+			int tip = in.get();
+			Expresie nod;
+			switch(tip){
+			case Expresie.NUMAR:
+				int coloana = citesteNumar(in);
+				nod = Expresie.numar(citesteText(in), coloana);
+				break;
+			case Expresie.VARIABILA:
+				int slot = slot(citesteNumar(in));
+				nod = Expresie.variabila(tabela.nume(slot), slot, citesteNumar(in));
+				break;
+			case Expresie.TERNAR:
+			case Expresie.PLUS_UNAR:
+			case Expresie.MINUS_UNAR:
+			case Expresie.ADUNARE:
+			case Expresie.SCADERE:
+			case Expresie.INMULTIRE:
+				if(deschise==tipuriDeschise.length){
+					tipuriDeschise = Arrays.copyOf(tipuriDeschise, 2*deschise);
+					operanziLipsa = Arrays.copyOf(operanziLipsa, 2*deschise);
+				}
+				tipuriDeschise[deschise] = tip;
+				operanziLipsa[deschise++] = tip==Expresie.TERNAR ? 4 : tip==Expresie.PLUS_UNAR || tip==Expresie.MINUS_UNAR ? 1 : 2;
+				continue;
+			default:
+				throw new IllegalStateException("Tip de nod necunoscut in fisierul precompilat: " + tip);
+			}
+
+			//Nodul complet este operandul ultimului operator deschis, care poate fi astfel completat la randul lui.
+			operanziCititi.push(nod);
+			while(deschise>0 && --operanziLipsa[deschise-1]==0){
+				int operator = tipuriDeschise[--deschise];
+				if(operator==Expresie.TERNAR){
+					Expresie d = operanziCititi.pop(), c = operanziCititi.pop(), b = operanziCititi.pop();
+					operanziCititi.push(Expresie.ternar(operanziCititi.pop(), b, c, d));
+				}else if(operator==Expresie.PLUS_UNAR || operator==Expresie.MINUS_UNAR){
+					operanziCititi.push(Expresie.unar(operator, operanziCititi.pop()));
+				}else{
+					Expresie drept = operanziCititi.pop();
+					operanziCititi.push(Expresie.binar(operator, operanziCititi.pop(), drept));
+				}
+			}
+			if(deschise==0){
+				return operanziCititi.pop();
+			}
+		}
+	}
+
+	@Override
+	public String toString(){
+		return "precompilare: " + descriere + ", linii=" + numarLinii + " expresii=" + numarExpresii;
+	}
+}
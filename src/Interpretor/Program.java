@@ -0,0 +1,231 @@
+package Interpretor;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**Clasa reprezinta un script compilat in memorie, fara fisiere de intrare sau de output, pentru
+ * folosirea interpretorului din alte aplicatii. Scriptul este analizat sintactic, analizat semantic
+ * si compilat o singura data, la crearea programului; obiectul este apoi imutabil si poate fi
+ * evaluat simultan de oricate fire de executie. Fiecare fir foloseste propriul cadru de evaluare
+ * (tabelul de valori si stiva), refolosit de la o evaluare la alta, deci evaluarea nu foloseste
+ * blocari si nu aloca memorie.
+ * <p>
+ * Variabilele de intrare sunt declarate la compilare si primesc valori la fiecare evaluare;
+ * celelalte variabile trebuie atribuite in script inainte de a fi folosite.
+ */
+public final class Program {
+
+	/**Destinatia rezultatelor unei evaluari, apelata pentru fiecare linie, in ordinea liniilor.
+	 */
+	public interface Destinatie{
+		/**Metoda primeste rezultatul unei linii corecte.
+		 * @param linie
+		 * Numarul liniei (de la 1).
+		 * @param variabila
+		 * Variabila careia i s-a facut atribuirea.
+		 * @param valoare
+		 * Valoarea atribuita.
+		 */
+		void atribuire(int linie, String variabila, int valoare);
+
+		/**Metoda este apelata pentru o linie incorecta semantic, ce nu poate fi evaluata.
+		 * @param linie
+		 * Numarul liniei (de la 1).
+		 */
+		void eroare(int linie);
+	}
+
+	/**Clasa interna ce modeleaza cadrul de evaluare al unui fir de executie.
+	 */
+	private static class Cadru{
+		final int[] valori;
+		final int[] stiva;
+		boolean folosit = false;
+
+		Cadru(int numarVariabile, int adancimeStiva){
+			valori = new int[numarVariabile];
+			stiva = new int[adancimeStiva];
+		}
+	}
+
+	private final String[] intrari;
+	private final int[] sloturiIntrari;
+	//Numele variabilelor, indexate dupa slot.
+	private final String[] variabile;
+
+	//Pentru fiecare linie: slotul variabilei atribuite, arborele, forma compilata (null daca linia
+	//este incorecta semantic) si rezultatul analizei semantice.
+	private final int[] sloturi;
+	private final Expresie[] expresii;
+	private final ExpresieCompilata[] coduri;
+	private final String[] analize;
+
+	private final int adancimeStiva;
+	private final ThreadLocal<Cadru> cadre;
+
+	private Program(String[] intrari, int[] sloturiIntrari, String[] variabile, int[] sloturi,
+			Expresie[] expresii, ExpresieCompilata[] coduri, String[] analize, int adancimeStiva){
+		this.intrari=intrari;
+		this.sloturiIntrari=sloturiIntrari;
+		this.variabile=variabile;
+		this.sloturi=sloturi;
+		this.expresii=expresii;
+		this.coduri=coduri;
+		this.analize=analize;
+		this.adancimeStiva=adancimeStiva;
+		cadre = ThreadLocal.withInitial(() -> new Cadru(variabile.length, adancimeStiva));
+	}
+
+	/**Metoda compileaza un script.
+	 * @param sursa
+	 * Textul scriptului: cate o instructiune variabila=expresie pe linie (liniile sunt separate
+	 * prin \n, \r sau \r\n).
+	 * @param intrari
+	 * Numele variabilelor de intrare, ale caror valori se dau la evaluare.
+	 * @return
+	 * Programul compilat.
+	 * @throws IllegalArgumentException
+	 * Daca o linie nu este o atribuire sau contine o eroare de sintaxa.
+	 */
+	public static Program compileaza(String sursa, String... intrari){
+		TabelaSimboli tabela = new TabelaSimboli();
+		AnalizatorSintactic sintactic = new AnalizatorSintactic(tabela);
+		Evaluator compilator = new Evaluator(tabela);
+		StringWriter textAnaliza = new StringWriter();
+		AnalizatorSemantic semantic = new AnalizatorSemantic(new PrintWriter(textAnaliza));
+
+		int[] sloturiIntrari = new int[intrari.length];
+		for(int k=0; k<intrari.length; k++){
+			sloturiIntrari[k] = tabela.interneaza(intrari[k]);
+			semantic.declara(sloturiIntrari[k]);
+		}
+
+		List<String> linii = imparteLinii(sursa);
+		int numarLinii = linii.size();
+		int[] sloturi = new int[numarLinii];
+		Expresie[] expresii = new Expresie[numarLinii];
+		ExpresieCompilata[] coduri = new ExpresieCompilata[numarLinii];
+		String[] analize = new String[numarLinii];
+		int adancimeStiva = 1;
+		for(int i=0; i<numarLinii; i++){
+			String linie = linii.get(i);
+			int pozitieEgal = linie.indexOf('=');
+			if(pozitieEgal<=0){
+				throw new IllegalArgumentException("Linia " + (i+1) + " nu este o atribuire: " + linie);
+			}
+			try{
+				expresii[i] = sintactic.parseaza(linie.substring(pozitieEgal+1));
+			}catch(IllegalArgumentException e){
+				throw new IllegalArgumentException("Linia " + (i+1) + ": " + e.getMessage(), e);
+			}
+			sloturi[i] = tabela.interneaza(linie, 0, pozitieEgal);
+
+			textAnaliza.getBuffer().setLength(0);
+			boolean ok = semantic.analyzeRow(new Instructiune(tabela.nume(sloturi[i]), sloturi[i], expresii[i]), i+1);
+			analize[i] = textAnaliza.toString().trim();
+			if(ok){
+				coduri[i] = compilator.compile(expresii[i]);
+				adancimeStiva = Math.max(adancimeStiva, coduri[i].adancimeStiva);
+			}
+		}
+
+		String[] variabile = new String[tabela.numarSimboli()];
+		for(int slot=0; slot<variabile.length; slot++){
+			variabile[slot] = tabela.nume(slot);
+		}
+		return new Program(intrari.clone(), sloturiIntrari, variabile, sloturi, expresii, coduri, analize, adancimeStiva);
+	}
+
+	private static List<String> imparteLinii(String sursa){
+		List<String> linii = new ArrayList<String>();
+		int inceput = 0;
+		for(int i=0; i<sursa.length(); i++){
+			char c = sursa.charAt(i);
+			if(c=='\n' || c=='\r'){
+				linii.add(sursa.substring(inceput, i));
+				if(c=='\r' && i+1<sursa.length() && sursa.charAt(i+1)=='\n') i++;
+				inceput = i+1;
+			}
+		}
+		if(inceput<sursa.length()){
+			linii.add(sursa.substring(inceput));
+		}
+		return linii;
+	}
+
+	/**Metoda evalueaza programul si trimite rezultatul fiecarei linii destinatiei. Poate fi apelata
+	 * simultan de mai multe fire de executie; fiecare fir isi foloseste propriul cadru.
+	 * @param valoriIntrari
+	 * Valorile variabilelor de intrare, in ordinea data la compilare.
+	 * @param destinatie
+	 * Destinatia rezultatelor.
+	 */
+	public void evalueaza(int[] valoriIntrari, Destinatie destinatie){
+		if(valoriIntrari.length!=intrari.length){
+			throw new IllegalArgumentException("Programul are " + intrari.length + " intrari, s-au dat " + valoriIntrari.length + " valori.");
+		}
+		Cadru cadru = cadre.get();
+		//O evaluare pornita din destinatia altei evaluari pe acelasi fir primeste un cadru nou.
+		if(cadru.folosit){
+			cadru = new Cadru(variabile.length, adancimeStiva);
+		}
+		cadru.folosit = true;
+		try{
+			int[] valori = cadru.valori;
+			for(int k=0; k<intrari.length; k++){
+				valori[sloturiIntrari[k]] = valoriIntrari[k];
+			}
+			for(int i=0; i<coduri.length; i++){
+				if(coduri[i]==null){
+					destinatie.eroare(i+1);
+					continue;
+				}
+				int rezultat = Evaluator.executa(coduri[i], valori, cadru.stiva);
+				valori[sloturi[i]] = rezultat;
+				destinatie.atribuire(i+1, variabile[sloturi[i]], rezultat);
+			}
+		}finally{
+			cadru.folosit = false;
+		}
+	}
+
+	public String[] getIntrari(){
+		return intrari.clone();
+	}
+
+	public int getNumarLinii(){
+		return coduri.length;
+	}
+
+	/**Metoda stabileste daca o linie este corecta semantic, deci poate fi evaluata.
+	 * @param linie
+	 * Numarul liniei (de la 1).
+	 */
+	public boolean esteCorecta(int linie){
+		return coduri[linie-1]!=null;
+	}
+
+	/**Metoda intoarce rezultatul analizei semantice a unei linii, asa cum ar fi scris in fisierul sa.
+	 * @param linie
+	 * Numarul liniei (de la 1).
+	 */
+	public String getAnalizaSemantica(int linie){
+		return analize[linie-1];
+	}
+
+	/**Metoda intoarce afisarea arborelui de parsare al unei linii, asa cum ar fi scrisa in fisierul pt.
+	 * @param linie
+	 * Numarul liniei (de la 1).
+	 */
+	public String getArboreDeParsare(int linie){
+		return new ArboreDeParsare().toTree(expresii[linie-1]);
+	}
+
+	@Override
+	public String toString(){
+		return "program: linii=" + coduri.length + " intrari=" + Arrays.toString(intrari) + " variabile=" + variabile.length;
+	}
+}
@@ -0,0 +1,275 @@
+package Interpretor;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**Clasa implementeaza modul server: interpretorul ramane pornit si primeste instructiuni prin
+ * conexiuni locale (TCP pe adresa de loopback sau socket Unix), evitand pornirea masinii virtuale
+ * la fiecare rulare. Fiecare conexiune este o sesiune cu propria tabela de variabile: clientul
+ * trimite linii de forma variabila=expresie (una sau un script intreg), iar serverul raspunde
+ * pentru fiecare linie, in ordine, cu o linie in formatul fisierului _ee (variabila=valoare sau
+ * error), respectiv "eroare: ..." pentru o linie ce nu poate fi analizata sau compilata.
+ * <p>
+ * Toate conexiunile sunt servite de un singur fir de executie, printr-un Selector, fara blocari;
+ * o linie se analizeaza si se evalueaza in cateva microsecunde, deci un fir este suficient
+ * pentru mii de sesiuni.
+ */
+public class Server {
+
+	private static final int DIMENSIUNE_TAMPON = 4096;
+	private static final int CONEXIUNI_IN_ASTEPTARE = 4096;
+	//Tamponul de intrare nu creste peste aceasta dimensiune; o linie mai lunga este respinsa.
+	private static final int LUNGIME_MAXIMA_LINIE = 1 << 22;
+
+	/**Clasa interna ce modeleaza starea unei sesiuni: variabilele si liniile primite partial.
+	 */
+	private static class Sesiune{
+		final TabelaSimboli tabela = new TabelaSimboli();
+		final AnalizatorSintactic sintactic = new AnalizatorSintactic(tabela);
+		final AnalizatorSemantic semantic = new AnalizatorSemantic();
+		final Evaluator compilator = new Evaluator(tabela);
+		int[] valori = new int[16];
+		int[] stiva = new int[16];
+		int indiceLinie = 0;
+		//Restul unei linii prea lungi este ignorat pana la urmatorul sfarsit de linie.
+		boolean ignoraLinia = false;
+		//Octetii primiti (in modul de scriere) si raspunsurile netrimise inca (in modul de scriere).
+		ByteBuffer intrare = ByteBuffer.allocate(DIMENSIUNE_TAMPON);
+		ByteBuffer iesire = ByteBuffer.allocate(DIMENSIUNE_TAMPON);
+	}
+
+	private final SocketAddress adresa;
+	private volatile boolean oprit = false;
+	private Selector selector = null;
+
+	private long sesiuniTotale = 0;
+	private long sesiuniDeschise = 0;
+	private long liniiProcesate = 0;
+
+	/**Constructorul retine adresa pe care se asculta.
+	 * @param adresa
+	 * Adresa obtinuta prin adresa(String).
+	 */
+	public Server(SocketAddress adresa){
+		this.adresa=adresa;
+	}
+
+	/**Metoda transforma un argument din linia de comanda intr-o adresa: un numar este portul
+	 * TCP pe adresa de loopback, orice altceva este calea unui socket Unix.
+	 * @param text
+	 * Portul sau calea.
+	 * @return
+	 * Adresa corespunzatoare.
+	 */
+	public static SocketAddress adresa(String text){
+		if(!text.isEmpty() && text.chars().allMatch(Character::isDigit)){
+			return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(text));
+		}
+		return UnixDomainSocketAddress.of(text);
+	}
+
+	/**Metoda asculta pe adresa serverului si serveste conexiunile pana la apelul metodei opreste.
+	 * @throws IOException
+	 * Daca adresa nu poate fi folosita.
+	 */
+	public void porneste() throws IOException{
+		boolean unix = adresa instanceof UnixDomainSocketAddress;
+		if(unix){
+			//Un fisier ramas de la o rulare anterioara ar impiedica legarea.
+			Files.deleteIfExists(((UnixDomainSocketAddress)adresa).getPath());
+		}
+		try(ServerSocketChannel server = unix ? ServerSocketChannel.open(StandardProtocolFamily.UNIX) : ServerSocketChannel.open();
+				Selector selector = Selector.open()){
+			this.selector = selector;
+			server.bind(adresa, CONEXIUNI_IN_ASTEPTARE);
+			server.configureBlocking(false);
+			server.register(selector, SelectionKey.OP_ACCEPT);
+			System.out.println("server: se asculta pe " + adresa);
+
+			while(!oprit){
+				selector.select();
+				Iterator<SelectionKey> chei = selector.selectedKeys().iterator();
+				while(chei.hasNext()){
+					SelectionKey cheie = chei.next();
+					chei.remove();
+					if(!cheie.isValid()) continue;
+					if(cheie.isAcceptable()){
+						accepta(server, unix);
+						continue;
+					}
+					try{
+						if(cheie.isReadable()) citeste(cheie);
+						if(cheie.isValid() && cheie.isWritable()) scrie(cheie);
+					}catch(IOException e){
+						inchide(cheie);
+					}
+				}
+			}
+			for(SelectionKey cheie : selector.keys()){
+				if(cheie.attachment() instanceof Sesiune) inchide(cheie);
+			}
+		}finally{
+			if(unix){
+				Files.deleteIfExists(((UnixDomainSocketAddress)adresa).getPath());
+			}
+		}
+	}
+
+	/**Metoda opreste serverul; poate fi apelata de pe orice fir de executie.
+	 */
+	public void opreste(){
+		oprit = true;
+		if(selector!=null) selector.wakeup();
+	}
+
+	private void accepta(ServerSocketChannel server, boolean unix) throws IOException{
+		SocketChannel conexiune;
+		while((conexiune = server.accept())!=null){
+			conexiune.configureBlocking(false);
+			if(!unix){
+				//Raspunsurile sunt mici si trebuie trimise imediat.
+				conexiune.setOption(StandardSocketOptions.TCP_NODELAY, true);
+			}
+			conexiune.register(selector, SelectionKey.OP_READ, new Sesiune());
+			sesiuniTotale++;
+			sesiuniDeschise++;
+		}
+	}
+
+	private void inchide(SelectionKey cheie){
+		cheie.cancel();
+		try{
+			cheie.channel().close();
+		}catch(IOException e){
+			//Conexiunea este oricum abandonata.
+		}
+		sesiuniDeschise--;
+	}
+
+	/**Metoda citeste ce a trimis clientul, proceseaza liniile complete si trimite raspunsurile.
+	 */
+	private void citeste(SelectionKey cheie) throws IOException{
+		Sesiune sesiune = (Sesiune)cheie.attachment();
+		SocketChannel conexiune = (SocketChannel)cheie.channel();
+		if(!sesiune.intrare.hasRemaining()){
+			if(sesiune.intrare.capacity()>=LUNGIME_MAXIMA_LINIE){
+				//Linia nu se mai retine: se raspunde cu eroare, iar restul ei este ignorat.
+				raspunde(sesiune, "eroare: linia depaseste " + LUNGIME_MAXIMA_LINIE + " octeti");
+				sesiune.ignoraLinia = true;
+				sesiune.intrare = ByteBuffer.allocate(DIMENSIUNE_TAMPON);
+			}else{
+				//O linie mai lunga decat tamponul: tamponul se dubleaza.
+				ByteBuffer marit = ByteBuffer.allocate(2*sesiune.intrare.capacity());
+				sesiune.intrare.flip();
+				marit.put(sesiune.intrare);
+				sesiune.intrare = marit;
+			}
+		}
+		if(conexiune.read(sesiune.intrare)<0){
+			inchide(cheie);
+			return;
+		}
+
+		ByteBuffer intrare = sesiune.intrare;
+		intrare.flip();
+		byte[] octeti = intrare.array();
+		int inceput = 0;
+		for(int i=0; i<intrare.limit(); i++){
+			if(octeti[i]=='\n'){
+				int sfarsit = i>inceput && octeti[i-1]=='\r' ? i-1 : i;
+				if(sesiune.ignoraLinia){
+					sesiune.ignoraLinia = false;
+				}else if(sfarsit>inceput){
+					raspunde(sesiune, proceseaza(sesiune, new String(octeti, inceput, sfarsit-inceput, StandardCharsets.UTF_8)));
+				}
+				inceput = i+1;
+			}
+		}
+		if(sesiune.ignoraLinia){
+			inceput = intrare.limit();
+		}
+		intrare.position(inceput);
+		intrare.compact();
+		scrie(cheie);
+	}
+
+	private void scrie(SelectionKey cheie) throws IOException{
+		Sesiune sesiune = (Sesiune)cheie.attachment();
+		sesiune.iesire.flip();
+		((SocketChannel)cheie.channel()).write(sesiune.iesire);
+		sesiune.iesire.compact();
+		/*Ce nu a putut fi trimis acum se trimite cand conexiunea permite; pana atunci nu se mai
+		 * citeste de la client, astfel incat un client ce nu citeste raspunsurile nu poate face
+		 * tamponul de iesire sa creasca nelimitat.
+		 */
+		cheie.interestOps(sesiune.iesire.position()>0 ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+	}
+
+	private static void raspunde(Sesiune sesiune, String raspuns){
+		byte[] octeti = raspuns.getBytes(StandardCharsets.UTF_8);
+		if(sesiune.iesire.remaining()<octeti.length+1){
+			ByteBuffer marit = ByteBuffer.allocate(Math.max(2*sesiune.iesire.capacity(), sesiune.iesire.position()+octeti.length+1));
+			sesiune.iesire.flip();
+			marit.put(sesiune.iesire);
+			sesiune.iesire = marit;
+		}
+		sesiune.iesire.put(octeti);
+		sesiune.iesire.put((byte)'\n');
+	}
+
+	/**Metoda analizeaza si evalueaza o linie in contextul sesiunii. Orice eroare aparuta la
+	 * analiza, compilarea sau evaluarea liniei (de exemplu un numar invalid precum 2a sau o
+	 * expresie ce depaseste stiva) este raportata doar pentru linia respectiva, fara a afecta
+	 * sesiunea sau celelalte conexiuni.
+	 * @return
+	 * Raspunsul pentru linie, fara caracterul de sfarsit de linie.
+	 */
+	private String proceseaza(Sesiune sesiune, String linie){
+		liniiProcesate++;
+		int pozitieEgal = linie.indexOf('=');
+		if(pozitieEgal<=0){
+			return "eroare: linia nu este o atribuire";
+		}
+		try{
+			Expresie expresie = sesiune.sintactic.parseaza(linie.substring(pozitieEgal+1));
+			//Expresia se compileaza inainte ca variabila sa fie declarata de analiza semantica.
+			ExpresieCompilata compilata = sesiune.compilator.compile(expresie);
+			int slot = sesiune.tabela.interneaza(linie, 0, pozitieEgal);
+			String variabila = sesiune.tabela.nume(slot);
+			if(!sesiune.semantic.analyzeRow(new Instructiune(variabila, slot, expresie), ++sesiune.indiceLinie)){
+				return "error";
+			}
+
+			if(sesiune.valori.length<sesiune.tabela.numarSimboli()){
+				sesiune.valori = Arrays.copyOf(sesiune.valori, Math.max(sesiune.tabela.numarSimboli(), 2*sesiune.valori.length));
+			}
+			if(sesiune.stiva.length<compilata.adancimeStiva){
+				sesiune.stiva = new int[compilata.adancimeStiva];
+			}
+			int rezultat = Evaluator.executa(compilata, sesiune.valori, sesiune.stiva);
+			sesiune.valori[slot] = rezultat;
+			return variabila + "=" + rezultat;
+		}catch(RuntimeException | StackOverflowError e){
+			return "eroare: " + (e.getMessage()!=null ? e.getMessage() : e.toString());
+		}
+	}
+
+	@Override
+	public String toString(){
+		return "server: sesiuni=" + sesiuniTotale + " deschise=" + sesiuniDeschise + " linii=" + liniiProcesate;
+	}
+}
@@ -0,0 +1,117 @@
+package Interpretor;
+
+import java.util.Arrays;
+
+/**Clasa interneaza numele variabilelor in indici intregi densi (sloturi), alocati in ordinea
+ * primei aparitii. Sloturile sunt folosite de analizatorul semantic (evidenta variabilelor
+ * declarate) si de evaluator (tabelul de valori) in locul numelor. Metodele sunt sincronizate,
+ * tabela fiind completata si de firele ce analizeaza sintactic fragmente ale fisierului in paralel.
+ */
+public class TabelaSimboli {
+
+	//Numele variabilelor, indexate dupa slot.
+	private String[] nume = new String[16];
+	//Citit fara sincronizare de evaluator, pentru dimensionarea tabelului de valori.
+	private volatile int numarSimboli = 0;
+
+	/*Tabel de dispersie cu adresare deschisa: fiecare intrare contine slotul+1
+	 * (0 inseamna intrare libera), iar cautarea se face direct dupa caracterele numelui.
+	 */
+	private int[] dispersie = new int[32];
+
+	/**Metoda intoarce slotul asociat numelui aflat intre doua pozitii dintr-o secventa de caractere,
+	 * alocand un slot nou daca numele nu a mai fost intalnit. Pentru un nume deja cunoscut nu se
+	 * aloca memorie.
+	 * @param sursa
+	 * Secventa de caractere ce contine numele.
+	 * @param inceput
+	 * Pozitia primului caracter al numelui.
+	 * @param sfarsit
+	 * Pozitia de dupa ultimul caracter al numelui.
+	 * @return
+	 * Slotul variabilei.
+	 */
+	public synchronized int interneaza(CharSequence sursa, int inceput, int sfarsit){
+		int hash = 0;
+		for(int i=inceput; i<sfarsit; i++){
+			hash = 31*hash + sursa.charAt(i);
+		}
+
+		int masca = dispersie.length-1;
+		int pozitie = amesteca(hash) & masca;
+		while(dispersie[pozitie]!=0){
+			int slot = dispersie[pozitie]-1;
+			if(egale(nume[slot], sursa, inceput, sfarsit)){
+				return slot;
+			}
+			pozitie = (pozitie+1) & masca;
+		}
+
+		//Numele nu a mai fost intalnit si primeste urmatorul slot liber.
+		if(numarSimboli==nume.length){
+			nume = Arrays.copyOf(nume, numarSimboli*2);
+		}
+		nume[numarSimboli] = sursa.subSequence(inceput, sfarsit).toString();
+		dispersie[pozitie] = ++numarSimboli;
+
+		//Tabelul de dispersie este tinut cel mult pe jumatate plin.
+		if(2*numarSimboli>dispersie.length){
+			redisperseaza();
+		}
+		return numarSimboli-1;
+	}
+
+	/**Metoda intoarce slotul asociat unui nume, alocand unul nou daca este nevoie.
+	 * @param nume
+	 * Numele variabilei.
+	 * @return
+	 * Slotul variabilei.
+	 */
+	public int interneaza(String nume){
+		return interneaza(nume, 0, nume.length());
+	}
+
+	/**Metoda intoarce numele variabilei asociate unui slot.
+	 * @param slot
+	 * Slotul variabilei.
+	 * @return
+	 * Numele variabilei.
+	 */
+	public synchronized String nume(int slot){
+		return nume[slot];
+	}
+
+	/**Metoda intoarce numarul de variabile internate pana acum.
+	 * @return
+	 * Numarul de sloturi alocate.
+	 */
+	public int numarSimboli(){
+		return numarSimboli;
+	}
+
+	private static int amesteca(int hash){
+		return hash ^ (hash>>>16);
+	}
+
+	private static boolean egale(String nume, CharSequence sursa, int inceput, int sfarsit){
+		if(nume.length()!=sfarsit-inceput) return false;
+		for(int i=0; i<nume.length(); i++){
+			if(nume.charAt(i)!=sursa.charAt(inceput+i)) return false;
+		}
+		return true;
+	}
+
+	/**Metoda dubleaza tabelul de dispersie si reinsereaza toate sloturile.
+	 */
+	private void redisperseaza(){
+		dispersie = new int[dispersie.length*2];
+		int masca = dispersie.length-1;
+		for(int slot=0; slot<numarSimboli; slot++){
+			int pozitie = amesteca(nume[slot].hashCode()) & masca;
+			while(dispersie[pozitie]!=0){
+				pozitie = (pozitie+1) & masca;
+			}
+			dispersie[pozitie] = slot+1;
+		}
+	}
+}
@@ -0,0 +1,433 @@
+package Interpretor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**Clasa urmareste un fisier de instructiuni si reinterpreteaza doar ceea ce s-a schimbat la
+ * fiecare modificare a acestuia. Intre doua versiuni se pastreaza liniile (cu arborele sintactic,
+ * afisarea arborelui de parsare, forma compilata, rezultatul analizei semantice si valoarea
+ * atribuita), tabela de simboluri si graful def-use (variabilele citite de fiecare linie).
+ * <p>
+ * La o modificare, liniile noi sunt cele dintre prefixul si sufixul comun celor doua versiuni.
+ * Acestea sunt analizate complet; dintre liniile de dupa ele sunt reanalizate semantic si
+ * evaluate doar cele ce citesc o variabila a carei stare (declarata, valoare) poate diferi
+ * fata de versiunea anterioara. O variabila reatribuita cu aceeasi valoare inceteaza sa mai
+ * fie considerata modificata, deci propagarea se opreste. In fisierele de output se rescrie
+ * doar portiunea dintre prima si ultima linie al carei output s-a schimbat, pe loc daca are
+ * aceeasi lungime, altfel de la prima linie schimbata pana la sfarsitul fisierului.
+ * <p>
+ * Toate liniile si outputul lor sunt tinute in memorie.
+ */
+public class Urmarire {
+
+	//Indicii fisierelor de output.
+	private static final int SA = 0;
+	private static final int PT = 1;
+	private static final int EE = 2;
+	private static final String[] SUFIXE = {"_sa", "_pt", "_ee"};
+	private static final int[] ETAPE = {Interpretor.ETAPA_SEMANTICA, Interpretor.ETAPA_ARBORE, Interpretor.ETAPA_EVALUARE};
+
+	private static final String SFARSIT_LINIE = System.lineSeparator();
+
+	//Timpul (in milisecunde) fara modificari dupa care se considera ca scrierea fisierului s-a terminat.
+	private static final long PAUZA_MODIFICARI = 50;
+
+	/**Clasa interna ce modeleaza o linie a fisierului urmarit, impreuna cu rezultatele
+	 * interpretarii ei si outputul scris pentru ea in fiecare fisier.
+	 */
+	private static class Linie{
+		final String text;
+		final CacheExpresii.Intrare intrare;
+		final Instructiune instructiune;
+		//Sloturile variabilelor citite de membrul drept.
+		final int[] citite;
+		boolean ok;
+		int valoare;
+		final String[] iesire = new String[3];
+		final int[] lungime = new int[3];
+
+		Linie(String text, CacheExpresii.Intrare intrare, Instructiune instructiune){
+			this.text=text;
+			this.intrare=intrare;
+			this.instructiune=instructiune;
+			this.citite=intrare.expresie.variabile();
+		}
+	}
+
+	private final String numeFisierCitire;
+	private final int etape;
+	private final String[] numeFisiereScriere = new String[3];
+
+	private final TabelaSimboli tabela = new TabelaSimboli();
+	private final AnalizatorSintactic sintactic = new AnalizatorSintactic(tabela);
+	private final CacheExpresii cache;
+	private final ArboreDeParsare arbore;
+	private final Evaluator compilator = new Evaluator(tabela);
+	private final StringWriter textSA = new StringWriter();
+	private final AnalizatorSemantic semantic;
+
+	private Linie[] linii = new Linie[0];
+	private int[] valori = new int[16];
+	private int[] stiva = new int[16];
+
+	private long actualizari = 0;
+	private long liniiReanalizate = 0;
+	private long liniiRefolosite = 0;
+	private long octetiScrisi = 0;
+
+	/**Constructorul pregateste urmarirea unui fisier; fisierul nu este citit inca.
+	 * @param numeFisierCitire
+	 * Numele fisierului ce contine instructiunile de interpretat si va influenta numele fisierelor de output.
+	 * @param etape
+	 * Combinatie (prin |) de Interpretor.ETAPA_SEMANTICA, ETAPA_ARBORE si ETAPA_EVALUARE.
+	 * @param dimensiuneCache
+	 * Numarul maxim de membri drepti retinuti in cache-ul de expresii.
+	 */
+	public Urmarire(String numeFisierCitire, int etape, int dimensiuneCache){
+		this.numeFisierCitire=numeFisierCitire;
+		this.etape=etape;
+		cache = new CacheExpresii(dimensiuneCache);
+		arbore = (etape & Interpretor.ETAPA_ARBORE)!=0 ? new ArboreDeParsare() : null;
+		//Fara fisierul sa, analiza semantica doar stabileste ce linii pot fi evaluate.
+		semantic = (etape & Interpretor.ETAPA_SEMANTICA)!=0 ? new AnalizatorSemantic(new PrintWriter(textSA)) : new AnalizatorSemantic();
+
+		//Extensia se cauta doar in numele fisierului, nu si in directoarele din cale.
+		int inceputNume = numeFisierCitire.length() - new File(numeFisierCitire).getName().length();
+		int pozitiePunctExtensie = numeFisierCitire.indexOf('.', inceputNume);
+		for(int f=0; f<3; f++){
+			if(pozitiePunctExtensie!=-1){
+				numeFisiereScriere[f] = numeFisierCitire.substring(0, pozitiePunctExtensie) + SUFIXE[f] + numeFisierCitire.substring(pozitiePunctExtensie);
+			}else{
+				numeFisiereScriere[f] = numeFisierCitire + SUFIXE[f];
+			}
+		}
+	}
+
+	/**Metoda interpreteaza fisierul si apoi il reinterpreteaza incremental la fiecare
+	 * modificare, pana la intreruperea firului de executie. O versiune cu erori de sintaxa
+	 * este raportata si ignorata, urmatoarea versiune fiind comparata cu ultima interpretata.
+	 * @throws IOException
+	 * Daca directorul fisierului nu poate fi urmarit.
+	 */
+	public void urmareste() throws IOException{
+		Path fisier = Paths.get(numeFisierCitire).toAbsolutePath();
+		try(WatchService serviciu = fisier.getFileSystem().newWatchService()){
+			fisier.getParent().register(serviciu, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+			actualizeazaSiRaporteaza();
+			while(true){
+				WatchKey cheie = serviciu.take();
+				boolean modificat = evenimentePentru(cheie, fisier);
+				if(!modificat) continue;
+				//Editoarele scriu fisierul in mai multi pasi; se asteapta pana nu mai apar modificari.
+				while((cheie = serviciu.poll(PAUZA_MODIFICARI, TimeUnit.MILLISECONDS))!=null){
+					evenimentePentru(cheie, fisier);
+				}
+				actualizeazaSiRaporteaza();
+			}
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**Metoda consuma evenimentele unei chei si stabileste daca vreunul priveste fisierul urmarit
+	 * (fisierele de output, aflate in acelasi director, sunt ignorate).
+	 */
+	private static boolean evenimentePentru(WatchKey cheie, Path fisier){
+		boolean modificat = false;
+		for(WatchEvent<?> eveniment : cheie.pollEvents()){
+			if(fisier.getFileName().equals(eveniment.context())){
+				modificat = true;
+			}
+		}
+		cheie.reset();
+		return modificat;
+	}
+
+	private void actualizeazaSiRaporteaza(){
+		try{
+			long inceput = System.nanoTime();
+			long reanalizateInainte = liniiReanalizate;
+			long scrisiInainte = octetiScrisi;
+			if(actualizeaza()){
+				System.out.println(String.format("%s: linii=%d reanalizate=%d octeti scrisi=%d timp=%.3fs",
+						numeFisierCitire, linii.length, liniiReanalizate-reanalizateInainte,
+						octetiScrisi-scrisiInainte, (System.nanoTime()-inceput)/1e9));
+			}
+		}catch(IOException | RuntimeException e){
+			System.out.println("Eroare la interpretarea fisierului " + numeFisierCitire + ": " + e.getMessage());
+		}
+	}
+
+	/**Metoda citeste versiunea curenta a fisierului si actualizeaza rezultatele si fisierele de output.
+	 * @return
+	 * true daca fisierul s-a schimbat fata de ultima versiune interpretata.
+	 * @throws IOException
+	 * Daca fisierul nu poate fi citit sau fisierele de output nu pot fi scrise.
+	 */
+	public boolean actualizeaza() throws IOException{
+		String[] noi = citesteLinii();
+		Linie[] vechi = linii;
+
+		//Liniile schimbate sunt cele dintre prefixul si sufixul comun celor doua versiuni.
+		int prefix = 0;
+		while(prefix<vechi.length && prefix<noi.length && vechi[prefix].text.equals(noi[prefix])){
+			prefix++;
+		}
+		int sufix = 0;
+		while(sufix<vechi.length-prefix && sufix<noi.length-prefix
+				&& vechi[vechi.length-1-sufix].text.equals(noi[noi.length-1-sufix])){
+			sufix++;
+		}
+		if(actualizari>0 && prefix==vechi.length && prefix==noi.length){
+			return false;
+		}
+		int sfarsitVechi = vechi.length-sufix;
+		int sfarsitNou = noi.length-sufix;
+
+		/*Liniile noi sunt analizate sintactic inaintea oricarei modificari a starii,
+		 * astfel incat o eroare de sintaxa lasa neschimbata ultima versiune interpretata.
+		 */
+		Linie[] actuale = new Linie[noi.length];
+		System.arraycopy(vechi, 0, actuale, 0, prefix);
+		for(int i=prefix; i<sfarsitNou; i++){
+			actuale[i] = analizeaza(noi[i]);
+		}
+		System.arraycopy(vechi, sfarsitVechi, actuale, sfarsitNou, sufix);
+
+		//Outputul versiunii anterioare, inainte ca liniile refolosite sa fie reanalizate.
+		String[][] iesiriVechi = new String[3][vechi.length];
+		int[][] lungimiVechi = new int[3][vechi.length];
+		for(int i=0; i<vechi.length; i++){
+			for(int f=0; f<3; f++){
+				iesiriVechi[f][i] = vechi[i].iesire[f];
+				lungimiVechi[f][i] = vechi[i].lungime[f];
+			}
+		}
+
+		//Starea variabilelor inaintea primei linii schimbate este refacuta din liniile prefixului.
+		semantic.reseteaza();
+		asiguraCapacitate();
+		for(int i=0; i<prefix; i++){
+			if(actuale[i].ok){
+				semantic.declara(actuale[i].instructiune.slot);
+				valori[actuale[i].instructiune.slot] = actuale[i].valoare;
+			}
+		}
+
+		//Variabilele a caror stare poate diferi de cea din versiunea anterioara, in acelasi punct.
+		BitSet modificate = new BitSet();
+		for(int i=prefix; i<sfarsitVechi; i++){
+			if(vechi[i].ok) modificate.set(vechi[i].instructiune.slot);
+		}
+		boolean liniiDeplasate = sfarsitNou!=sfarsitVechi;
+
+		//Daca nu se produc fisierele sa si ee, liniile nu sunt analizate semantic si nici evaluate.
+		int sfarsitAnaliza = (etape & (Interpretor.ETAPA_SEMANTICA | Interpretor.ETAPA_EVALUARE))!=0 ? actuale.length : prefix;
+		for(int i=prefix; i<sfarsitAnaliza; i++){
+			Linie linie = actuale[i];
+			int slot = linie.instructiune.slot;
+			boolean noua = i<sfarsitNou;
+			//Mesajele de eroare contin numarul liniei, deci se refac daca linia s-a deplasat.
+			if(noua || citesteModificate(linie, modificate) || (liniiDeplasate && !linie.ok)){
+				boolean okVechi = linie.ok;
+				int valoareVeche = linie.valoare;
+				interpreteaza(linie, i+1);
+				liniiReanalizate++;
+				if(noua){
+					if(linie.ok) modificate.set(slot);
+				}else if(linie.ok && okVechi && linie.valoare==valoareVeche){
+					modificate.clear(slot);
+				}else if(linie.ok || okVechi){
+					modificate.set(slot);
+				}
+			}else{
+				//Linia citeste aceleasi valori ca inainte, deci rezultatul ei nu se schimba.
+				if(linie.ok){
+					semantic.declara(slot);
+					valori[slot] = linie.valoare;
+					modificate.clear(slot);
+				}
+				liniiRefolosite++;
+			}
+		}
+
+		linii = actuale;
+		for(int f=0; f<3; f++){
+			if((etape & ETAPE[f])!=0){
+				octetiScrisi += scrie(f, iesiriVechi[f], lungimiVechi[f]);
+			}
+		}
+		actualizari++;
+		return true;
+	}
+
+	private String[] citesteLinii() throws IOException{
+		List<String> rezultat = new ArrayList<String>();
+		CititorMapat cititor = new CititorMapat(numeFisierCitire);
+		try{
+			while(cititor.urmatoareaLinie()){
+				rezultat.add(cititor.linie().toString());
+			}
+		}finally{
+			cititor.close();
+		}
+		return rezultat.toArray(new String[rezultat.size()]);
+	}
+
+	/**Metoda analizeaza sintactic o linie noua si ii construieste afisarea arborelui de parsare.
+	 */
+	private Linie analizeaza(String text){
+		int pozitieEgal = text.indexOf('=');
+		String membruDrept = text.substring(pozitieEgal+1);
+		CacheExpresii.Intrare intrare = cache.get(membruDrept);
+		if(intrare==null){
+			Expresie expresie = sintactic.parseaza(membruDrept);
+			intrare = new CacheExpresii.Intrare(expresie, arbore==null ? null : arbore.toTree(expresie));
+			cache.put(membruDrept, intrare);
+		}
+		int slot = tabela.interneaza(text, 0, Math.max(pozitieEgal, 0));
+		Linie linie = new Linie(text, intrare, new Instructiune(tabela.nume(slot), slot, intrare.expresie));
+		if(arbore!=null){
+			seteazaIesire(linie, PT, intrare.arbore);
+		}
+		return linie;
+	}
+
+	private static boolean citesteModificate(Linie linie, BitSet modificate){
+		if(modificate.isEmpty()) return false;
+		for(int slot : linie.citite){
+			if(modificate.get(slot)) return true;
+		}
+		return false;
+	}
+
+	/**Metoda aplica unei linii analiza semantica si evaluarea, in starea curenta a variabilelor.
+	 */
+	private void interpreteaza(Linie linie, int indiceLinie){
+		textSA.getBuffer().setLength(0);
+		linie.ok = semantic.analyzeRow(linie.instructiune, indiceLinie);
+		if((etape & Interpretor.ETAPA_SEMANTICA)!=0){
+			seteazaIesire(linie, SA, textSA.toString());
+		}
+		/*Fara fisierul ee liniile nu sunt evaluate: starea variabilelor se reduce la declararea
+		 * lor, deci propagarea modificarilor se opreste cand o linie isi pastreaza corectitudinea.
+		 */
+		if((etape & Interpretor.ETAPA_EVALUARE)==0){
+			return;
+		}
+		if(!linie.ok){
+			seteazaIesire(linie, EE, "error" + SFARSIT_LINIE);
+			return;
+		}
+
+		CacheExpresii.Intrare intrare = linie.intrare;
+		if(intrare.compilata==null){
+			intrare.compilata = compilator.compile(intrare.expresie);
+		}
+		asiguraCapacitate();
+		if(stiva.length<intrare.compilata.adancimeStiva){
+			stiva = new int[intrare.compilata.adancimeStiva];
+		}
+		linie.valoare = Evaluator.executa(intrare.compilata, valori, stiva);
+		valori[linie.instructiune.slot] = linie.valoare;
+		seteazaIesire(linie, EE, linie.instructiune.variabila + "=" + linie.valoare + SFARSIT_LINIE);
+	}
+
+	private void seteazaIesire(Linie linie, int fisier, String iesire){
+		if(!iesire.equals(linie.iesire[fisier])){
+			linie.iesire[fisier] = iesire;
+			linie.lungime[fisier] = iesire.getBytes().length;
+		}
+	}
+
+	private void asiguraCapacitate(){
+		if(valori.length<tabela.numarSimboli()){
+			valori = Arrays.copyOf(valori, Math.max(tabela.numarSimboli(), 2*valori.length));
+		}
+	}
+
+	/**Metoda rescrie portiunea schimbata a unui fisier de output.
+	 * @param fisier
+	 * Indicele fisierului (SA, PT sau EE).
+	 * @param vechi
+	 * Outputul fiecarei linii din versiunea anterioara, asa cum se afla in fisier.
+	 * @param lungimiVechi
+	 * Lungimea in octeti a outputului fiecarei linii din versiunea anterioara.
+	 * @return
+	 * Numarul de octeti scrisi.
+	 */
+	private long scrie(int fisier, String[] vechi, int[] lungimiVechi) throws IOException{
+		int numarVechi = vechi.length;
+		int numarNou = linii.length;
+
+		//Prima si ultima linie (numarata de la sfarsit) al carei output difera.
+		int prima = 0;
+		while(prima<numarVechi && prima<numarNou && vechi[prima].equals(linii[prima].iesire[fisier])){
+			prima++;
+		}
+		int comuneLaSfarsit = 0;
+		while(comuneLaSfarsit<numarVechi-prima && comuneLaSfarsit<numarNou-prima
+				&& vechi[numarVechi-1-comuneLaSfarsit].equals(linii[numarNou-1-comuneLaSfarsit].iesire[fisier])){
+			comuneLaSfarsit++;
+		}
+
+		long inceput = 0;
+		for(int i=0; i<prima; i++){
+			inceput += lungimiVechi[i];
+		}
+		long lungimeVeche = 0;
+		for(int i=prima; i<numarVechi-comuneLaSfarsit; i++){
+			lungimeVeche += lungimiVechi[i];
+		}
+		long lungimeNoua = 0;
+		for(int i=prima; i<numarNou-comuneLaSfarsit; i++){
+			lungimeNoua += linii[i].lungime[fisier];
+		}
+		if(actualizari>0 && prima==numarVechi && prima==numarNou){
+			return 0;
+		}
+
+		//Daca portiunea schimbata isi pastreaza lungimea, restul fisierului ramane pe loc.
+		int sfarsit = lungimeNoua==lungimeVeche && actualizari>0 ? numarNou-comuneLaSfarsit : numarNou;
+		long scrisi = 0;
+		try(RandomAccessFile iesire = new RandomAccessFile(numeFisiereScriere[fisier], "rw")){
+			iesire.seek(inceput);
+			ByteArrayOutputStream tampon = new ByteArrayOutputStream(1<<16);
+			for(int i=prima; i<sfarsit; i++){
+				tampon.write(linii[i].iesire[fisier].getBytes());
+				if(tampon.size()>=1<<16){
+					iesire.write(tampon.toByteArray());
+					scrisi += tampon.size();
+					tampon.reset();
+				}
+			}
+			iesire.write(tampon.toByteArray());
+			scrisi += tampon.size();
+			if(sfarsit==numarNou){
+				iesire.setLength(inceput+scrisi);
+			}
+		}
+		return scrisi;
+	}
+
+	@Override
+	public String toString(){
+		return "urmarire: actualizari=" + actualizari + " linii reanalizate=" + liniiReanalizate
+				+ " refolosite=" + liniiRefolosite + " octeti scrisi=" + octetiScrisi;
+	}
+}